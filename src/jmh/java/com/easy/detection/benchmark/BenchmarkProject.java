@@ -0,0 +1,303 @@
+package com.easy.detection.benchmark;
+
+import com.easy.detection.data.Context;
+import com.easy.detection.input.CppStatsFolderReader;
+import com.easy.detection.input.SrcMlFolderReader;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Input of the benchmarks: a cppstats result folder, i.e., a folder containing <code>cppstats.csv</code>,
+ * <code>cppstats_featurelocations.csv</code> and the srcML files below <code>_cppstats/</code>.  A project is
+ * specified by a string, which is the value of the <code>project</code> parameter of the benchmarks:
+ * <ul>
+ * <li><code>synthetic:FILES</code> or <code>synthetic:FILESxFUNCTIONS</code> generates a project with the given
+ * number of source files and functions per file (20 by default).  The functions contain feature references in all
+ * the places that Skunk distinguishes: global declarations, function bodies (nested and combined), parameter lists,
+ * <code>if</code>/<code>else</code> statements and alternative function definitions.  The project is generated with
+ * a fixed seed, so it is the same in every run.</li>
+ * <li>Any other value is the path of an existing cppstats result folder, e.g., of a real project, which can be
+ * benchmarked via <code>-p project=/path/to/folder</code>.</li>
+ * </ul>
+ */
+public final class BenchmarkProject implements Closeable {
+    private static final String SYNTHETIC_PREFIX = "synthetic:";
+    private static final int DEFAULT_FUNCTIONS_PER_FILE = 20;
+    private static final int NUM_FEATURES = 40;
+
+    private final Path folder;
+    private final boolean generated;
+
+    private BenchmarkProject(Path folder, boolean generated) {
+        this.folder = folder;
+        this.generated = generated;
+    }
+
+    /**
+     * @param spec the project specification, see the class description
+     * @return the project; must be closed to remove generated files
+     * @throws IOException if generating the project fails
+     */
+    public static BenchmarkProject open(String spec) throws IOException {
+        if (spec.startsWith(SYNTHETIC_PREFIX)) {
+            String[] size = spec.substring(SYNTHETIC_PREFIX.length()).split("x");
+            int numFiles = Integer.parseInt(size[0]);
+            int functionsPerFile = (size.length > 1) ? Integer.parseInt(size[1]) : DEFAULT_FUNCTIONS_PER_FILE;
+            Path folder = Files.createTempDirectory("skunk-benchmark");
+            generate(folder, numFiles, functionsPerFile);
+            return new BenchmarkProject(folder, true);
+        }
+        Path folder = Paths.get(spec);
+        if (!Files.isRegularFile(folder.resolve("cppstats_featurelocations.csv"))) {
+            throw new IllegalArgumentException("Not a cppstats result folder: " + spec);
+        }
+        return new BenchmarkProject(folder, false);
+    }
+
+    /**
+     * @return the path of the cppstats result folder
+     */
+    public String getFolder() {
+        return folder.toString();
+    }
+
+    /**
+     * @return the paths of all srcML files of the project, in alphabetical order
+     * @throws IOException if listing the files fails
+     */
+    public List<Path> srcMlFiles() throws IOException {
+        try (Stream<Path> files = Files.walk(folder.resolve("_cppstats"))) {
+            return files.filter(p -> p.toString().endsWith(".xml")).sorted().collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Reads the cppstats CSV files of the project into a new context, as the first phase of processing a project
+     *
+     * @return the context
+     */
+    public Context readCppStats() {
+        Context ctx = new Context(null);
+        new CppStatsFolderReader(ctx, getFolder()).ProcessFiles();
+        return ctx;
+    }
+
+    /**
+     * Processes the project completely, just like <code>Skunk --source</code> does before running any detection.
+     *
+     * @param streaming whether to read the srcML files with the streaming parser
+     * @return the context holding the processed data
+     */
+    public Context process(boolean streaming) {
+        Context ctx = readCppStats();
+        SrcMlFolderReader mlReader = new SrcMlFolderReader(ctx);
+        mlReader.setStreaming(streaming);
+        mlReader.ProcessFiles();
+        ctx.functions.PostAction();
+        ctx.files.PostAction();
+        return ctx;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (generated) deleteRecursively(folder);
+    }
+
+    static void deleteRecursively(Path dir) throws IOException {
+        Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path d, IOException exc) throws IOException {
+                Files.delete(d);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * A feature location as listed in <code>cppstats_featurelocations.csv</code>
+     */
+    private static final class Location implements Comparable<Location> {
+        final int start;
+        final int end;
+        final String type;
+        final String expression;
+
+        Location(int start, int end, String type, String expression) {
+            this.start = start;
+            this.end = end;
+            this.type = type;
+            this.expression = expression;
+        }
+
+        @Override
+        public int compareTo(Location o) {
+            return Integer.compare(start, o.start);
+        }
+    }
+
+    private static void generate(Path root, int numFiles, int functionsPerFile) throws IOException {
+        final Random random = new Random(42);
+        final Path srcDir = root.toAbsolutePath().resolve("_cppstats").resolve("src");
+        Files.createDirectories(srcDir);
+        List<String> locationRows = new ArrayList<>();
+        List<String> locRows = new ArrayList<>();
+        for (int iFile = 0; iFile < numFiles; iFile++) {
+            Path path = srcDir.resolve("file" + iFile + ".c.xml");
+            List<String> lines = new ArrayList<>();
+            List<Location> locations = new ArrayList<>();
+            lines.add("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>");
+            lines.add("<unit xmlns=\"http://www.sdml.info/srcML/src\" xmlns:cpp=\"http://www.sdml.info/srcML/cpp\""
+                    + " language=\"C\" filename=\"file" + iFile + ".c\">");
+            lines.add("");
+            for (int iFunc = 0; iFunc < functionsPerFile; iFunc++) {
+                generateFunction(random, iFile, iFunc, lines, locations);
+            }
+            lines.add("</unit>");
+            Files.write(path, lines, StandardCharsets.UTF_8);
+            Collections.sort(locations);
+            for (Location l : locations) {
+                locationRows.add(path + "," + l.start + "," + l.end + "," + l.type + ",\"" + l.expression + "\",x");
+            }
+            locRows.add(path + "," + (lines.size() - 2));
+        }
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(root.resolve("cppstats_featurelocations.csv"),
+                StandardCharsets.UTF_8))) {
+            out.println("FILENAME,LINE_START,LINE_END,TYPE,EXPRESSION,CONSTANTS");
+            locationRows.forEach(out::println);
+        }
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(root.resolve("cppstats.csv"),
+                StandardCharsets.UTF_8))) {
+            out.println("FILENAME,LOC");
+            locRows.forEach(out::println);
+        }
+    }
+
+    /**
+     * Appends a function (and maybe some global declarations) to the lines of a srcML file.  The C line number of a
+     * srcML line is its index in <code>lines</code>, since the first line holds the XML declaration.
+     */
+    private static void generateFunction(Random random, int iFile, int iFunc, List<String> lines,
+                                         List<Location> locations) {
+        final String ifdef = "<cpp:ifdef>#<cpp:directive>ifdef</cpp:directive> <name>%s</name></cpp:ifdef>";
+        final String endif = "<cpp:endif>#<cpp:directive>endif</cpp:directive></cpp:endif>";
+        int start;
+        // annotated global declaration
+        if (random.nextDouble() < 0.3) {
+            String f = feature(random);
+            start = lines.size();
+            lines.add(String.format(ifdef, f));
+            lines.add("<decl_stmt><decl><type><name>int</name></type> <name>g" + iFile + "_" + iFunc
+                    + "</name></decl>;</decl_stmt>");
+            lines.add(endif);
+            locations.add(new Location(start, lines.size() - 1, "#ifdef", f));
+        }
+        // alternative definitions of the same function
+        if (random.nextDouble() < 0.2) {
+            String f = feature(random);
+            String name = "dup" + iFile + "_" + iFunc;
+            start = lines.size();
+            lines.add(String.format(ifdef, f));
+            lines.add("<function><type><name>int</name></type> <name>" + name + "</name><parameter_list>()"
+                    + "</parameter_list>");
+            lines.add("<block>{ <return>return <expr><literal type=\"number\">1</literal></expr>;</return> }</block>"
+                    + "</function>");
+            lines.add("<cpp:else>#<cpp:directive>else</cpp:directive></cpp:else>");
+            lines.add("<function><type><name>int</name></type> <name>" + name + "</name><parameter_list>()"
+                    + "</parameter_list>");
+            lines.add("<block>{");
+            String g = feature(random);
+            int innerStart = lines.size();
+            lines.add(String.format(ifdef, g));
+            lines.add("  <if>if <condition>(<expr><name>b</name></expr>)</condition><then> <block>{ }</block></then>"
+                    + " <else>else <block>{ }</block></else></if>");
+            lines.add(endif);
+            lines.add("<return>return <expr><literal type=\"number\">0</literal></expr>;</return> }</block></function>");
+            lines.add(endif);
+            locations.add(new Location(start, lines.size() - 1, "#ifdef", f));
+            locations.add(new Location(innerStart, innerStart + 2, "#ifdef", g));
+        }
+        final String name = "func" + iFile + "_" + iFunc;
+        final String head = "<function><type><specifier>static</specifier> <name>int</name></type> <name>" + name
+                + "</name><parameter_list>(<param><decl><type><name>int</name> *</type><name>a</name></decl></param>,";
+        final String lastParam = "<param><decl><type><name>char</name></type> <name>b</name></decl></param>)"
+                + "</parameter_list>";
+        if (random.nextDouble() < 0.3) {
+            // annotated parameter
+            String f = feature(random);
+            lines.add(head);
+            start = lines.size();
+            lines.add(String.format(ifdef, f));
+            lines.add("<param><decl><type><name>long</name></type> <name>c</name></decl></param>,");
+            lines.add(endif);
+            locations.add(new Location(start, lines.size() - 1, "#ifdef", f));
+            lines.add(lastParam);
+        } else {
+            lines.add(head + " " + lastParam);
+        }
+        lines.add("<block>{");
+        if (random.nextDouble() < 0.3) {
+            // annotated if with an unannotated else
+            String f = feature(random);
+            start = lines.size();
+            lines.add("<cpp:ifndef>#<cpp:directive>ifndef</cpp:directive> <name>" + f + "</name></cpp:ifndef>");
+            lines.add("  <if>if <condition>(<expr><name>b</name></expr>)</condition><then> <block>{ <expr_stmt><expr>"
+                    + "<name>x</name>++</expr>;</expr_stmt> }</block></then>");
+            lines.add(endif);
+            lines.add("  <else>else <block>{ <expr_stmt><expr><name>x</name>--</expr>;</expr_stmt> }</block></else>"
+                    + "</if>");
+            locations.add(new Location(start, start + 2, "#ifndef", f));
+        }
+        final int numAnnotatedStatements = random.nextInt(5);
+        for (int j = 0; j < numAnnotatedStatements; j++) {
+            // combined feature expression, maybe with a nested annotation
+            String a = feature(random);
+            String b = feature(random);
+            boolean negated = random.nextDouble() < 0.3;
+            String expression = negated ? "!defined(" + a + ") && defined(" + b + ")"
+                    : "defined(" + a + ") || defined(" + b + ")";
+            start = lines.size();
+            lines.add("<cpp:if>#<cpp:directive>if</cpp:directive> <expr>" + expression.replace("&", "&amp;")
+                    + "</expr></cpp:if>");
+            lines.add("  <expr_stmt><expr><name>x</name> = <call><name>f</name><argument_list>(<argument><expr>"
+                    + "<name>a</name></expr></argument>)</argument_list></call></expr>;</expr_stmt>");
+            Location nested = null;
+            if (random.nextDouble() < 0.4) {
+                String c = feature(random);
+                int nestedStart = lines.size();
+                lines.add(String.format(ifdef, c));
+                lines.add("  <if>if <condition>(<expr><name>b</name></expr>)</condition><then> <block>{ <return>return"
+                        + " <expr><literal type=\"number\">1</literal></expr>;</return> }</block></then></if>");
+                lines.add(endif);
+                nested = new Location(nestedStart, nestedStart + 2, "#ifdef", c);
+            }
+            lines.add("");
+            lines.add(endif);
+            locations.add(new Location(start, lines.size() - 1, "#if", expression));
+            if (nested != null) locations.add(nested);
+        }
+        lines.add("  <return>return <expr><literal type=\"number\">0</literal></expr>;</return>");
+        lines.add("}</block></function>");
+        lines.add("");
+    }
+
+    private static String feature(Random random) {
+        return "FEAT_" + random.nextInt(NUM_FEATURES);
+    }
+}
@@ -0,0 +1,84 @@
+package com.easy.detection.benchmark;
+
+import com.easy.detection.data.Context;
+import com.easy.detection.detector.DetectionConfig;
+import com.easy.detection.detector.DetectionResult;
+import com.easy.detection.detector.Detector;
+import com.easy.detection.output.AnalyzedDataHandler;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for detecting smells in a processed project and for writing the results.  The smell configurations are
+ * read from the folder given by the system property <code>skunk.codesmells</code>, which defaults to the
+ * <code>CodeSmells</code> folder of the working directory.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DetectionBenchmark {
+    @Param({"synthetic:20", "synthetic:200"})
+    public String project;
+
+    @Param({"AnnotationBundle_min", "AnnotationFile_min", "LargeFeature_min", "ShotgunSurgery_min"})
+    public String config;
+
+    /**
+     * Number of worker threads of the detection, 1 for the sequential detection
+     */
+    @Param({"1", "4"})
+    public int threads;
+
+    private Context ctx;
+    private DetectionResult results;
+    private Path resultsDir;
+
+    @Setup(Level.Trial)
+    public void processProject() throws Exception {
+        try (BenchmarkProject input = BenchmarkProject.open(project)) {
+            Context processed = input.process(false);
+            Path configFile = Paths.get(System.getProperty("skunk.codesmells", "CodeSmells"), config + ".csm");
+            ctx = processed.withConfig(new DetectionConfig(configFile.toString()));
+        }
+        results = new Detector(ctx).Perform();
+        resultsDir = Files.createTempDirectory("skunk-benchmark-results");
+    }
+
+    @TearDown(Level.Trial)
+    public void removeResults() throws IOException {
+        BenchmarkProject.deleteRecursively(resultsDir);
+    }
+
+    /**
+     * Runs the detection ({@link Detector#Perform()}).
+     */
+    @Benchmark
+    public DetectionResult detect() {
+        return new Detector(ctx, threads).Perform();
+    }
+
+    /**
+     * Writes the metrics of all functions, files and features as CSV files
+     * ({@link AnalyzedDataHandler#SaveCsvResults(String)}).
+     */
+    @Benchmark
+    public void writeCsvResults() {
+        new AnalyzedDataHandler(ctx).SaveCsvResults(resultsDir.toString());
+    }
+
+    /**
+     * Writes the detection results as text files ({@link AnalyzedDataHandler#SaveTextResults(DetectionResult, String)}).
+     */
+    @Benchmark
+    public void writeTextResults() {
+        new AnalyzedDataHandler(ctx).SaveTextResults(results, resultsDir.toString());
+    }
+}
@@ -0,0 +1,110 @@
+package com.easy.detection.benchmark;
+
+import com.easy.detection.data.Context;
+import com.easy.detection.input.SrcMlFolderReader;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the phases of processing a project (<code>Skunk --source</code>): reading the cppstats CSV files,
+ * reading the srcML files and the metric post-actions of the function and file collections.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProcessingBenchmark {
+    @Param({"synthetic:20", "synthetic:200"})
+    public String project;
+
+    private BenchmarkProject input;
+
+    @Setup(Level.Trial)
+    public void openProject() throws IOException {
+        input = BenchmarkProject.open(project);
+    }
+
+    @TearDown(Level.Trial)
+    public void closeProject() throws IOException {
+        input.close();
+    }
+
+    /**
+     * Reads the feature locations and lines of code from the cppstats CSV files.  This includes creating the
+     * feature references and determining the empty lines of each file.
+     */
+    @Benchmark
+    public Context readCppStats() {
+        return input.readCppStats();
+    }
+
+    /**
+     * State for reading the srcML files, which requires a context into which the cppstats CSV files have already been
+     * read.  Reading the srcML files changes the context, so a fresh one is created for each invocation.
+     */
+    @State(Scope.Thread)
+    public static class CppStatsRead {
+        @Param({"false", "true"})
+        public boolean streaming;
+
+        Context ctx;
+
+        @Setup(Level.Invocation)
+        public void readCppStats(ProcessingBenchmark benchmark) {
+            ctx = benchmark.input.readCppStats();
+        }
+    }
+
+    /**
+     * Reads all srcML files, parses the function signatures and assigns the feature references to functions.
+     */
+    @Benchmark
+    public Context readSrcMl(CppStatsRead state) {
+        SrcMlFolderReader mlReader = new SrcMlFolderReader(state.ctx);
+        mlReader.setStreaming(state.streaming);
+        mlReader.ProcessFiles();
+        return state.ctx;
+    }
+
+    /**
+     * State for the post-actions, which require a context into which the project has been read.  The post-actions
+     * recompute their metrics from scratch, so the same context can be used for all invocations.
+     */
+    @State(Scope.Benchmark)
+    public static class Processed {
+        /**
+         * Number of worker threads of the post-actions, 1 for the sequential post-actions
+         */
+        @Param({"1", "4"})
+        public int threads;
+
+        Context ctx;
+
+        @Setup(Level.Trial)
+        public void process(ProcessingBenchmark benchmark) {
+            ctx = benchmark.input.process(false);
+        }
+    }
+
+    /**
+     * Computes the metrics of all functions ({@link com.easy.detection.data.MethodCollection#PostAction(int)}).
+     */
+    @Benchmark
+    public Context functionsPostAction(Processed state) {
+        state.ctx.functions.PostAction(state.threads);
+        return state.ctx;
+    }
+
+    /**
+     * Computes the metrics of all files ({@link com.easy.detection.data.FileCollection#PostAction(int)}).
+     */
+    @Benchmark
+    public Context filesPostAction(Processed state) {
+        state.ctx.files.PostAction(state.threads);
+        return state.ctx;
+    }
+}
@@ -0,0 +1,65 @@
+package com.easy.detection.benchmark;
+
+import com.easy.detection.input.PositionalXmlReader;
+import com.easy.detection.input.StreamingSrcMlReader;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for parsing the srcML files of a project, either into a DOM or with the streaming reader.  The files are
+ * read into memory beforehand, so only the XML parsing is measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SrcMlReadingBenchmark {
+    @Param({"synthetic:20", "synthetic:200"})
+    public String project;
+
+    private List<byte[]> srcMlFiles;
+
+    @Setup(Level.Trial)
+    public void readFiles() throws Exception {
+        srcMlFiles = new ArrayList<>();
+        try (BenchmarkProject input = BenchmarkProject.open(project)) {
+            for (Path p : input.srcMlFiles()) {
+                srcMlFiles.add(Files.readAllBytes(p));
+            }
+        }
+    }
+
+    /**
+     * Builds a DOM with line numbers for each file, as {@link com.easy.detection.input.SrcMlFolderReader} does by
+     * default.
+     */
+    @Benchmark
+    public void readDom(Blackhole bh) throws Exception {
+        PositionalXmlReader reader = new PositionalXmlReader();
+        for (byte[] contents : srcMlFiles) {
+            bh.consume(reader.readXML(new ByteArrayInputStream(contents)));
+        }
+    }
+
+    /**
+     * Reads each file with the streaming reader, which only builds DOM subtrees of the functions.
+     */
+    @Benchmark
+    public void readStreaming(Blackhole bh) throws Exception {
+        StreamingSrcMlReader reader = new StreamingSrcMlReader();
+        for (byte[] contents : srcMlFiles) {
+            bh.consume(reader.read(new ByteArrayInputStream(contents), Collections.emptyMap(),
+                    (functionIndex, functionNode) -> bh.consume(functionNode)));
+        }
+    }
+}
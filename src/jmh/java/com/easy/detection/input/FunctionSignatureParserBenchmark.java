@@ -0,0 +1,246 @@
+package com.easy.detection.input;
+
+import com.easy.detection.benchmark.BenchmarkProject;
+import com.easy.detection.data.FilePath;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for parsing function signatures.  Compares the cost of locating the nodes of a function signature via
+ * {@link ChildElementPath} with evaluating the same paths as XPath expressions, which is what
+ * {@link FunctionSignatureParser} used to do.  For each function definition of the project, the lookups are the same
+ * as when parsing a regular function signature.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FunctionSignatureParserBenchmark {
+    private static final ChildElementPath[] ALL_PATHS = {FunctionSignatureParser.PATH_TYPE,
+            FunctionSignatureParser.PATH_SPECIFIER, FunctionSignatureParser.PATH_NAME,
+            FunctionSignatureParser.PATH_PARAMETER_LIST, FunctionSignatureParser.PATH_PARAM,
+            FunctionSignatureParser.PATH_DECL_TYPE, FunctionSignatureParser.PATH_DECL_NAME};
+
+    @Param({"synthetic:20"})
+    public String project;
+
+    private List<Node> functionNodes;
+    private FilePath filePath;
+
+    /**
+     * Strategy for evaluating a path
+     */
+    private interface Navigator {
+        Node findFirst(Node context, ChildElementPath path);
+
+        List<Node> findAll(Node context, ChildElementPath path);
+    }
+
+    private static class ChildWalkingNavigator implements Navigator {
+        @Override
+        public Node findFirst(Node context, ChildElementPath path) {
+            return path.findFirst(context);
+        }
+
+        @Override
+        public List<Node> findAll(Node context, ChildElementPath path) {
+            return path.findAll(context);
+        }
+    }
+
+    /**
+     * Evaluates the XPath expression each time, like the old parser did
+     */
+    private static class XPathNavigator implements Navigator {
+        final XPath xPath = XPathFactory.newInstance().newXPath();
+
+        @Override
+        public Node findFirst(Node context, ChildElementPath path) {
+            try {
+                return (Node) xPath.evaluate(path.getExpression(), context, XPathConstants.NODE);
+            } catch (XPathExpressionException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public List<Node> findAll(Node context, ChildElementPath path) {
+            try {
+                return toList((NodeList) xPath.evaluate(path.getExpression(), context, XPathConstants.NODESET));
+            } catch (XPathExpressionException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    /**
+     * Evaluates precompiled XPath expressions
+     */
+    private static class CompiledXPathNavigator implements Navigator {
+        final Map<ChildElementPath, XPathExpression> compiled = new HashMap<>();
+
+        CompiledXPathNavigator() {
+            XPath xPath = XPathFactory.newInstance().newXPath();
+            for (ChildElementPath path : ALL_PATHS) {
+                try {
+                    compiled.put(path, xPath.compile(path.getExpression()));
+                } catch (XPathExpressionException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        }
+
+        @Override
+        public Node findFirst(Node context, ChildElementPath path) {
+            try {
+                return (Node) compiled.get(path).evaluate(context, XPathConstants.NODE);
+            } catch (XPathExpressionException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public List<Node> findAll(Node context, ChildElementPath path) {
+            try {
+                return toList((NodeList) compiled.get(path).evaluate(context, XPathConstants.NODESET));
+            } catch (XPathExpressionException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    private static Navigator newNavigator(String name) {
+        switch (name) {
+            case "childWalking":
+                return new ChildWalkingNavigator();
+            case "xPath":
+                return new XPathNavigator();
+            case "compiledXPath":
+                return new CompiledXPathNavigator();
+            default:
+                throw new IllegalArgumentException("Unknown navigator: " + name);
+        }
+    }
+
+    private static List<Node> toList(NodeList nodeList) {
+        List<Node> result = new ArrayList<>(nodeList.getLength());
+        for (int i = 0; i < nodeList.getLength(); i++) {
+            result.add(nodeList.item(i));
+        }
+        return result;
+    }
+
+    @Setup(Level.Trial)
+    public void readFunctionNodes() throws Exception {
+        PositionalXmlReader reader = new PositionalXmlReader();
+        functionNodes = new ArrayList<>();
+        try (BenchmarkProject input = BenchmarkProject.open(project)) {
+            for (Path p : input.srcMlFiles()) {
+                Document doc;
+                try (InputStream is = Files.newInputStream(p)) {
+                    doc = reader.readXML(is);
+                }
+                functionNodes.addAll(toList(doc.getElementsByTagName("function")));
+                if (filePath == null) filePath = new FilePath(p.toString(), p.toString());
+            }
+        }
+    }
+
+    /**
+     * The navigator used by {@link #lookUpSignatureNodes(Lookup, Blackhole)}
+     */
+    @State(Scope.Benchmark)
+    public static class Lookup {
+        @Param({"childWalking", "xPath", "compiledXPath"})
+        public String navigator;
+
+        Navigator nav;
+
+        @Setup(Level.Trial)
+        public void createNavigator(FunctionSignatureParserBenchmark benchmark) {
+            nav = newNavigator(navigator);
+            benchmark.checkSameResults(new ChildWalkingNavigator(), nav);
+        }
+    }
+
+    /**
+     * Performs the lookups of {@link FunctionSignatureParser} for a regular function signature
+     *
+     * @return the nodes found, in the order in which they were looked up (missing nodes are <code>null</code>)
+     */
+    private static List<Node> lookUpSignatureNodes(Navigator nav, Node functionNode, List<Node> found) {
+        Node returnType = nav.findFirst(functionNode, FunctionSignatureParser.PATH_TYPE);
+        found.add(returnType);
+        if (returnType != null) {
+            found.addAll(nav.findAll(returnType, FunctionSignatureParser.PATH_SPECIFIER));
+            found.add(nav.findFirst(returnType, FunctionSignatureParser.PATH_NAME));
+        }
+        found.add(nav.findFirst(functionNode, FunctionSignatureParser.PATH_NAME));
+        Node parameterList = nav.findFirst(functionNode, FunctionSignatureParser.PATH_PARAMETER_LIST);
+        found.add(parameterList);
+        if (parameterList != null) {
+            for (Node param : nav.findAll(parameterList, FunctionSignatureParser.PATH_PARAM)) {
+                Node typeDeclaration = nav.findFirst(param, FunctionSignatureParser.PATH_DECL_TYPE);
+                found.add(typeDeclaration);
+                if (typeDeclaration != null) {
+                    found.add(nav.findFirst(typeDeclaration, FunctionSignatureParser.PATH_NAME));
+                }
+                found.add(nav.findFirst(param, FunctionSignatureParser.PATH_DECL_NAME));
+            }
+        }
+        return found;
+    }
+
+    private void checkSameResults(Navigator expected, Navigator actual) {
+        for (Node functionNode : functionNodes) {
+            List<Node> e = lookUpSignatureNodes(expected, functionNode, new ArrayList<>());
+            List<Node> a = lookUpSignatureNodes(actual, functionNode, new ArrayList<>());
+            if (!e.equals(a)) {
+                throw new AssertionError("Navigators disagree on function at line "
+                        + FunctionSignatureParser.parseFunctionStartLoc(functionNode) + ": " + e + " vs. " + a);
+            }
+        }
+    }
+
+    /**
+     * Locates the signature nodes of all functions with the navigator given by {@link Lookup#navigator}
+     */
+    @Benchmark
+    public void lookUpSignatureNodes(Lookup lookup, Blackhole bh) {
+        List<Node> found = new ArrayList<>();
+        for (Node functionNode : functionNodes) {
+            found.clear();
+            bh.consume(lookUpSignatureNodes(lookup.nav, functionNode, found));
+        }
+    }
+
+    /**
+     * Parses the signatures of all functions with {@link FunctionSignatureParser}, which includes cloning and
+     * cleaning the signature nodes.
+     */
+    @Benchmark
+    public void parseFunctionSignatures(Blackhole bh) {
+        for (Node functionNode : functionNodes) {
+            bh.consume(new FunctionSignatureParser(functionNode, filePath).parseFunctionSignature());
+        }
+    }
+}
@@ -0,0 +1,591 @@
+package com.easy.detection.data;
+
+import com.easy.util.IntSet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Compact binary representation of the processed data of a {@link Context}, i.e., its features, feature references,
+ * functions and files.  This is an alternative to the XStream-based XML files, which are slow to load for big
+ * projects.
+ * <p>
+ * All strings (file paths, feature names, function signatures) are stored once in a string table and referred to by
+ * their index.  Features, references, functions and files are each stored as a count followed by one column per
+ * attribute (e.g., the start lines of all references, then their end lines, and so on).  References to other objects
+ * are stored as indices.  The IDs of the feature references ({@link FeatureReference#id}) are stored as well, so they
+ * stay the same when the data is loaded again.  The data is preceded by a magic number and a format version.  Files with a different
+ * version are rejected and need to be re-created from the source.
+ * </p>
+ * <p>
+ * Line sets that are only needed while processing the source ({@link File#emptyLines}, {@link File#loac},
+ * {@link Method#loac}) are not stored, just like in the XML files.  The exception is data saved by an incremental
+ * run: if the files have content hashes ({@link File#contentHash}), an additional section stores the hashes, the line
+ * sets and the order of the feature references of each file.  This is everything {@link ProcessedFileCache} needs to
+ * restore unchanged files in the next run.
+ * </p>
+ */
+public final class BinaryProcessedData {
+    private static final int MAGIC = 0x534B4E4B; // "SKNK"
+
+    /**
+     * Version of the format.  Needs to be incremented whenever the layout changes.
+     */
+    public static final int VERSION = 3;
+
+    private static final int NULL_INDEX = -1;
+
+    private BinaryProcessedData() {
+    }
+
+    /**
+     * Writes the processed data of the given context.
+     *
+     * @param ctx the context whose data to write
+     * @param out the stream to write to; not closed by this method
+     * @throws IOException if writing fails
+     */
+    public static void write(Context ctx, OutputStream out) throws IOException {
+        new Encoder(ctx).write(out);
+    }
+
+    /**
+     * Reads processed data into the given (empty) context.
+     *
+     * @param ctx  the context to populate
+     * @param data the data, as written by {@link #write(Context, OutputStream)}
+     */
+    public static void read(Context ctx, ByteBuffer data) {
+        try {
+            new Decoder(ctx, data).read();
+        } catch (BufferUnderflowException e) {
+            throw new RuntimeException("Binary processed data is truncated", e);
+        }
+    }
+
+    /**
+     * Reads the per-file data saved by an incremental run.  The files, functions and feature references are created
+     * for the given context, but not added to it.
+     *
+     * @param ctx  the context for which to create the cached objects
+     * @param data the data, as written by {@link #write(Context, OutputStream)}
+     * @return the cache, which is empty if the data was not saved by an incremental run
+     */
+    static ProcessedFileCache readCache(Context ctx, ByteBuffer data) {
+        try {
+            return new Decoder(ctx, data).readCache();
+        } catch (BufferUnderflowException e) {
+            throw new RuntimeException("Binary processed data is truncated", e);
+        }
+    }
+
+    private static final class Encoder {
+        final Context ctx;
+        final Map<String, Integer> stringIndex = new LinkedHashMap<>();
+        /**
+         * Index of each reference in {@link #references}, by reference ID
+         */
+        final int[] referenceIndex;
+        final Map<Method, Integer> methodIndex = new IdentityHashMap<>();
+        final List<Feature> features;
+        final List<FeatureReference> references = new ArrayList<>();
+        final Map<String, List<Method>> methodsByFile;
+        final List<Method> methods = new ArrayList<>();
+        final List<File> files;
+
+        Encoder(Context ctx) {
+            this.ctx = ctx;
+            this.features = new ArrayList<>(ctx.featureExpressions.GetFeatures());
+            int endId = 0;
+            for (Feature feature : features) {
+                for (int i = 0; i < feature.references.size(); i++) {
+                    FeatureReference ref = ctx.featureExpressions.GetFeatureConstant(feature.references.get(i));
+                    references.add(ref);
+                    endId = Math.max(endId, ref.id + 1);
+                }
+            }
+            this.referenceIndex = new int[endId];
+            Arrays.fill(referenceIndex, NULL_INDEX);
+            for (int i = 0; i < references.size(); i++) referenceIndex[references.get(i).id] = i;
+            this.methodsByFile = ctx.functions.MethodsByFile();
+            for (List<Method> methodsOfFile : methodsByFile.values()) {
+                for (Method method : methodsOfFile) {
+                    methodIndex.put(method, methods.size());
+                    methods.add(method);
+                }
+            }
+            this.files = new ArrayList<>(ctx.files.AllFiles());
+        }
+
+        void write(OutputStream out) throws IOException {
+            // The string table has to be written first, but is only complete once the body has been encoded.
+            ByteArrayOutputStream bodyBytes = new ByteArrayOutputStream();
+            DataOutputStream body = new DataOutputStream(bodyBytes);
+            writeFeatures(body);
+            writeReferences(body);
+            writeMethods(body);
+            writeFiles(body);
+            writeIncrementalData(body);
+            body.flush();
+
+            DataOutputStream header = new DataOutputStream(out);
+            header.writeInt(MAGIC);
+            header.writeInt(VERSION);
+            header.writeInt(ctx.featureExpressions.GetLoc());
+            header.writeInt(ctx.featureExpressions.GetMeanLofc());
+            header.writeInt(ctx.featureExpressions.numberOfFeatureConstantReferences);
+            header.writeInt(stringIndex.size());
+            for (String s : stringIndex.keySet()) {
+                byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                header.writeInt(bytes.length);
+                header.write(bytes);
+            }
+            header.flush();
+            bodyBytes.writeTo(out);
+            out.flush();
+        }
+
+        private void writeFeatures(DataOutputStream out) throws IOException {
+            out.writeInt(features.size());
+            for (Feature f : features) out.writeInt(str(f.Name));
+            for (Feature f : features) out.writeInt(f._lofc);
+            for (Feature f : features) out.writeInt(f.minNestingDepth);
+            for (Feature f : features) out.writeInt(f.maxNestingDepth);
+            for (Feature f : features) out.writeInt(str(f.minGranularity));
+            for (Feature f : features) out.writeInt(str(f.maxGranularity));
+            for (Feature f : features) out.writeInt(f.references.size());
+            for (Feature f : features) out.writeInt(f.compilationFiles.size());
+            for (Feature f : features) {
+                for (int i = 0; i < f.compilationFiles.size(); i++) {
+                    out.writeInt(str(ctx.filePaths.Get(f.compilationFiles.get(i))));
+                }
+            }
+        }
+
+        private void writeReferences(DataOutputStream out) throws IOException {
+            out.writeInt(references.size());
+            for (FeatureReference r : references) out.writeInt(r.id);
+            for (FeatureReference r : references) out.writeInt(str(r.GetFilePath()));
+            for (FeatureReference r : references) out.writeInt(r.GetStart());
+            for (FeatureReference r : references) out.writeInt(r.GetEnd());
+            for (FeatureReference r : references) out.writeInt(r.GetNestingDepth());
+            for (FeatureReference r : references) out.writeByte(r.GetNotFlag() ? 1 : 0);
+            for (FeatureReference r : references) out.writeInt(str(r.GetGranularity()));
+            for (FeatureReference r : references) out.writeInt(str(r.GetDiscipline()));
+            for (FeatureReference r : references) {
+                out.writeInt(r.GetInMethod() == null ? NULL_INDEX : method(r.GetInMethod()));
+            }
+            for (FeatureReference r : references) out.writeInt(r.GetCombinedWith().length);
+            for (FeatureReference r : references) {
+                for (int id : r.GetCombinedWith()) out.writeInt(reference(id));
+            }
+        }
+
+        private void writeMethods(DataOutputStream out) throws IOException {
+            out.writeInt(methodsByFile.size());
+            for (Map.Entry<String, List<Method>> e : methodsByFile.entrySet()) {
+                out.writeInt(str(e.getKey()));
+                out.writeInt(e.getValue().size());
+            }
+            for (Method m : methods) out.writeInt(str(m.originalFunctionSignature));
+            for (Method m : methods) out.writeInt(str(m.uniqueFunctionSignature));
+            for (Method m : methods) out.writeInt(str(m.functionName));
+            for (Method m : methods) out.writeInt(str(m.filePath));
+            for (Method m : methods) out.writeInt(m.start1);
+            for (Method m : methods) out.writeInt(m.end1);
+            for (Method m : methods) out.writeInt(m.grossLoc);
+            for (Method m : methods) out.writeInt(m.signatureGrossLinesOfCode);
+            for (Method m : methods) out.writeInt(m.netLoc);
+            for (Method m : methods) out.writeLong(m.lofc);
+            for (Method m : methods) out.writeInt(m.nestingSum);
+            for (Method m : methods) out.writeInt(m.nestingDepthMax);
+            for (Method m : methods) out.writeInt(m.processedLoac);
+            for (Method m : methods) out.writeInt(m.numberFeatureConstantsNonDup);
+            for (Method m : methods) out.writeInt(m.numberFeatureLocations);
+            for (Method m : methods) out.writeInt(m.negationCount);
+            for (Method m : methods) out.writeInt(m.featureReferences.size());
+            for (Method m : methods) writeReferenceSet(out, m.featureReferences);
+        }
+
+        private void writeFiles(DataOutputStream out) throws IOException {
+            out.writeInt(files.size());
+            for (File f : files) out.writeInt(str(f.filePath));
+            for (File f : files) out.writeInt(f.loc);
+            for (File f : files) out.writeInt(f.lofc);
+            for (File f : files) out.writeInt(f.nestingSum);
+            for (File f : files) out.writeInt(f.nestingDepthMax);
+            for (File f : files) out.writeInt(f.processedLoac);
+            for (File f : files) out.writeInt(f.numberFeatureConstantsNonDup);
+            for (File f : files) out.writeInt(f.numberOfFeatureLocations);
+            for (File f : files) out.writeInt(f.negationCount);
+            for (File f : files) out.writeInt(f.featureConstants.size());
+            for (File f : files) writeReferenceSet(out, f.featureConstants);
+            for (File f : files) out.writeInt(f.methods.size());
+            for (File f : files) {
+                for (Method m : f.methods) out.writeInt(method(m));
+            }
+        }
+
+        private void writeIncrementalData(DataOutputStream out) throws IOException {
+            boolean hasHashes = !files.isEmpty();
+            for (File f : files) hasHashes &= (f.contentHash != null);
+            out.writeBoolean(hasHashes);
+            if (!hasHashes) return;
+            for (File f : files) out.writeInt(str(f.contentHash));
+            for (File f : files) writeLineSet(out, f.emptyLines);
+            for (File f : files) writeLineSet(out, f.loac);
+            for (File f : files) out.writeInt(ctx.featureExpressions.GetReferencesInFile(f.filePath).size());
+            for (File f : files) {
+                for (FeatureReference r : ctx.featureExpressions.GetReferencesInFile(f.filePath)) {
+                    out.writeInt(reference(r.id));
+                }
+            }
+            for (Method m : methods) writeLineSet(out, m.loac);
+            for (FeatureReference r : references) out.writeInt(str(r.GetFirstGranularity()));
+        }
+
+        private void writeLineSet(DataOutputStream out, BitSet lines) throws IOException {
+            long[] words = lines.toLongArray();
+            out.writeInt(words.length);
+            for (long w : words) out.writeLong(w);
+        }
+
+        private void writeReferenceSet(DataOutputStream out, IntSet ids) throws IOException {
+            for (int i = 0; i < ids.size(); i++) out.writeInt(reference(ids.get(i)));
+        }
+
+        private int str(String s) {
+            if (s == null) return NULL_INDEX;
+            Integer index = stringIndex.get(s);
+            if (index == null) {
+                index = stringIndex.size();
+                stringIndex.put(s, index);
+            }
+            return index;
+        }
+
+        private int str(Enum<?> e) {
+            return (e == null) ? NULL_INDEX : str(e.name());
+        }
+
+        private int reference(int id) {
+            int index = (id >= 0) && (id < referenceIndex.length) ? referenceIndex[id] : NULL_INDEX;
+            if (index == NULL_INDEX) {
+                throw new RuntimeException("Internal error: reference to unknown feature reference " + id);
+            }
+            return index;
+        }
+
+        private int method(Method m) {
+            Integer index = methodIndex.get(m);
+            if (index == null) {
+                throw new RuntimeException("Internal error: reference to unknown function " + m);
+            }
+            return index;
+        }
+    }
+
+    private static final class Decoder {
+        final Context ctx;
+        final ByteBuffer in;
+        String[] strings;
+        Feature[] features;
+        FeatureReference[] references;
+        Method[] methods;
+        /**
+         * Keys of the files that have functions, and the functions of each of these files
+         */
+        final Map<String, List<Method>> methodsByFileKey = new LinkedHashMap<>();
+        List<File> files;
+        /**
+         * References of each file, in the order they were added, or <code>null</code> if the data was not saved by
+         * an incremental run
+         */
+        List<List<FeatureReference>> referencesOfFiles;
+        /**
+         * The attributes of the decoded references.  They are copied into the context when the features or files are
+         * restored.
+         */
+        final FeatureReferenceStore store;
+
+        Decoder(Context ctx, ByteBuffer in) {
+            this.ctx = ctx;
+            this.in = in;
+            this.store = new FeatureReferenceStore(ctx.filePaths);
+        }
+
+        void read() {
+            final int[] header = readHeader();
+            for (Feature f : features) ctx.featureExpressions.RestoreFeature(f, store, ctx.filePaths);
+            for (Map.Entry<String, List<Method>> e : methodsByFileKey.entrySet()) {
+                ctx.functions.RestoreMethodsOfFile(e.getKey(), e.getValue());
+            }
+            for (File f : files) ctx.files.RestoreFile(f);
+            ctx.featureExpressions.AddLoc(header[0]);
+            ctx.featureExpressions.SetMeanLofc(header[1]);
+            ctx.featureExpressions.numberOfFeatureConstantReferences = header[2];
+        }
+
+        ProcessedFileCache readCache() {
+            readHeader();
+            // new references of changed files must not get the IDs of cached references
+            int endId = 0;
+            for (FeatureReference r : references) endId = Math.max(endId, r.id + 1);
+            ctx.featureExpressions.ReserveReferenceIds(endId);
+            Map<String, ProcessedFileCache.CachedFile> cachedFiles = new HashMap<>();
+            if (referencesOfFiles != null) {
+                for (int i = 0; i < files.size(); i++) {
+                    File f = files.get(i);
+                    List<Method> methodsOfFile = methodsByFileKey.get(FileCollection.KeyFromFilePath(f.filePath));
+                    if (methodsOfFile == null) methodsOfFile = Collections.emptyList();
+                    cachedFiles.put(f.filePath,
+                            new ProcessedFileCache.CachedFile(f, referencesOfFiles.get(i), methodsOfFile));
+                }
+            }
+            return new ProcessedFileCache(ctx, cachedFiles);
+        }
+
+        /**
+         * Decodes all data, without adding it to the context
+         *
+         * @return the project LOC, mean LOFC and number of feature constant references
+         */
+        private int[] readHeader() {
+            int magic = in.getInt();
+            if (magic != MAGIC) {
+                throw new RuntimeException("Not a file of binary processed data (bad magic number)");
+            }
+            int version = in.getInt();
+            if (version != VERSION) {
+                throw new RuntimeException("Unsupported version of binary processed data: " + version + " (expected "
+                        + VERSION + "). Re-create the processed data from the source.");
+            }
+            final int loc = in.getInt();
+            final int meanLofc = in.getInt();
+            final int numberOfFeatureConstantReferences = in.getInt();
+            readStrings();
+
+            int[] refsPerFeature = readFeatures();
+            int[] inMethod = readReferences(refsPerFeature);
+            readMethods();
+            for (int i = 0; i < references.length; i++) {
+                if (inMethod[i] != NULL_INDEX) references[i].SetInMethod(methods[inMethod[i]]);
+            }
+            files = readFiles();
+            readIncrementalData();
+            return new int[]{loc, meanLofc, numberOfFeatureConstantReferences};
+        }
+
+        private void readStrings() {
+            strings = new String[in.getInt()];
+            for (int i = 0; i < strings.length; i++) {
+                int len = in.getInt();
+                // the backing array may extend past the limit of the buffer
+                if (len > in.remaining()) throw new BufferUnderflowException();
+                String s;
+                if (in.hasArray()) {
+                    s = new String(in.array(), in.arrayOffset() + in.position(), len, StandardCharsets.UTF_8);
+                    skip(len);
+                } else {
+                    byte[] bytes = new byte[len];
+                    in.get(bytes);
+                    s = new String(bytes, StandardCharsets.UTF_8);
+                }
+                strings[i] = s;
+            }
+        }
+
+        /**
+         * @return the number of references of each feature
+         */
+        private int[] readFeatures() {
+            final int n = in.getInt();
+            int[] name = ints(n), lofc = ints(n), minNesting = ints(n), maxNesting = ints(n);
+            int[] minGranularity = ints(n), maxGranularity = ints(n), refCount = ints(n), fileCount = ints(n);
+            features = new Feature[n];
+            for (int i = 0; i < n; i++) {
+                Feature f = new Feature(ctx, str(name[i]));
+                f._lofc = lofc[i];
+                f.minNestingDepth = minNesting[i];
+                f.maxNestingDepth = maxNesting[i];
+                f.minGranularity = granularity(minGranularity[i]);
+                f.maxGranularity = granularity(maxGranularity[i]);
+                for (int j = 0; j < fileCount[i]; j++) f.compilationFiles.add(ctx.filePaths.Intern(str(in.getInt())));
+                features[i] = f;
+            }
+            return refCount;
+        }
+
+        /**
+         * @return the index of the method containing each reference, or {@link #NULL_INDEX}
+         */
+        private int[] readReferences(int[] refsPerFeature) {
+            final int n = in.getInt();
+            int[] id = ints(n), filePath = ints(n), start = ints(n), end = ints(n), nestingDepth = ints(n);
+            byte[] notFlag = new byte[n];
+            in.get(notFlag);
+            int[] granularity = ints(n), discipline = ints(n), inMethod = ints(n), combinedCount = ints(n);
+            references = new FeatureReference[n];
+            int iRef = 0;
+            for (int iFeature = 0; iFeature < features.length; iFeature++) {
+                Feature feature = features[iFeature];
+                for (int j = 0; j < refsPerFeature[iFeature]; j++, iRef++) {
+                    FeatureReference r = store.Add(id[iRef], str(filePath[iRef]), start[iRef], end[iRef],
+                            nestingDepth[iRef], notFlag[iRef] > 0);
+                    store.SetGranularity(r.id, granularity(granularity[iRef]), null);
+                    store.SetDiscipline(r.id, discipline(discipline[iRef]));
+                    r.SetFeature(feature);
+                    feature.references.add(r.id);
+                    references[iRef] = r;
+                }
+            }
+            if (iRef != n) {
+                throw new RuntimeException("Corrupt binary processed data: expected " + iRef + " feature references, got "
+                        + n);
+            }
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < combinedCount[i]; j++) references[i].AddCombinedWith(references[in.getInt()]);
+            }
+            return inMethod;
+        }
+
+        private void readMethods() {
+            final int numFiles = in.getInt();
+            String[] fileKeys = new String[numFiles];
+            int[] methodsPerFile = new int[numFiles];
+            for (int i = 0; i < numFiles; i++) {
+                fileKeys[i] = str(in.getInt());
+                methodsPerFile[i] = in.getInt();
+            }
+            final int n = Arrays.stream(methodsPerFile).sum();
+            int[] originalSignature = ints(n), uniqueSignature = ints(n), name = ints(n), filePath = ints(n);
+            int[] start1 = ints(n), end1 = ints(n), grossLoc = ints(n), signatureGrossLoc = ints(n), netLoc = ints(n);
+            long[] lofc = longs(n);
+            int[] nestingSum = ints(n), nestingDepthMax = ints(n), processedLoac = ints(n), constantsNonDup = ints(n);
+            int[] featureLocations = ints(n), negationCount = ints(n), refCount = ints(n);
+            methods = new Method[n];
+            for (int i = 0; i < n; i++) {
+                Method m = new Method(ctx, str(originalSignature[i]), str(filePath[i]), start1[i], grossLoc[i],
+                        signatureGrossLoc[i]);
+                m.uniqueFunctionSignature = str(uniqueSignature[i]);
+                m.functionName = str(name[i]);
+                m.end1 = end1[i];
+                m.netLoc = netLoc[i];
+                m.lofc = lofc[i];
+                m.nestingSum = nestingSum[i];
+                m.nestingDepthMax = nestingDepthMax[i];
+                m.processedLoac = processedLoac[i];
+                m.numberFeatureConstantsNonDup = constantsNonDup[i];
+                m.numberFeatureLocations = featureLocations[i];
+                m.negationCount = negationCount[i];
+                methods[i] = m;
+            }
+            for (int i = 0; i < n; i++) readReferenceSet(refCount[i], methods[i].featureReferences);
+
+            int iMethod = 0;
+            for (int i = 0; i < numFiles; i++) {
+                List<Method> methodsOfFile = Arrays.asList(methods).subList(iMethod, iMethod + methodsPerFile[i]);
+                methodsByFileKey.put(fileKeys[i], methodsOfFile);
+                iMethod += methodsPerFile[i];
+            }
+        }
+
+        private List<File> readFiles() {
+            final int n = in.getInt();
+            int[] filePath = ints(n), loc = ints(n), lofc = ints(n), nestingSum = ints(n), nestingDepthMax = ints(n);
+            int[] processedLoac = ints(n), constantsNonDup = ints(n), featureLocations = ints(n);
+            int[] negationCount = ints(n), refCount = ints(n);
+            List<File> files = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                File f = new File(ctx, str(filePath[i]), false);
+                f.loc = loc[i];
+                f.lofc = lofc[i];
+                f.nestingSum = nestingSum[i];
+                f.nestingDepthMax = nestingDepthMax[i];
+                f.processedLoac = processedLoac[i];
+                f.numberFeatureConstantsNonDup = constantsNonDup[i];
+                f.numberOfFeatureLocations = featureLocations[i];
+                f.negationCount = negationCount[i];
+                files.add(f);
+            }
+            for (int i = 0; i < n; i++) readReferenceSet(refCount[i], files.get(i).featureConstants);
+            int[] methodCount = ints(n);
+            for (int i = 0; i < n; i++) {
+                List<Method> methodsOfFile = files.get(i).methods;
+                for (int j = 0; j < methodCount[i]; j++) methodsOfFile.add(methods[in.getInt()]);
+            }
+            return files;
+        }
+
+        private void readIncrementalData() {
+            if (in.get() == 0) return;
+            final int n = files.size();
+            int[] contentHash = ints(n);
+            for (int i = 0; i < n; i++) files.get(i).contentHash = str(contentHash[i]);
+            for (File f : files) f.emptyLines = readLineSet();
+            for (File f : files) f.loac = readLineSet();
+            int[] refCount = ints(n);
+            referencesOfFiles = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                List<FeatureReference> refs = new ArrayList<>(refCount[i]);
+                for (int j = 0; j < refCount[i]; j++) refs.add(references[in.getInt()]);
+                referencesOfFiles.add(refs);
+            }
+            for (Method m : methods) m.loac = readLineSet();
+            int[] firstGranularity = ints(references.length);
+            for (int i = 0; i < references.length; i++) {
+                store.SetGranularity(references[i].id, references[i].GetGranularity(),
+                        granularity(firstGranularity[i]));
+            }
+        }
+
+        private BitSet readLineSet() {
+            return BitSet.valueOf(longs(in.getInt()));
+        }
+
+        private void readReferenceSet(int size, IntSet ids) {
+            for (int j = 0; j < size; j++) ids.add(references[in.getInt()].id);
+        }
+
+        private int[] ints(int n) {
+            int[] result = new int[n];
+            in.asIntBuffer().get(result);
+            skip(n * 4);
+            return result;
+        }
+
+        private long[] longs(int n) {
+            long[] result = new long[n];
+            in.asLongBuffer().get(result);
+            skip(n * 8);
+            return result;
+        }
+
+        /**
+         * Moves the position of the buffer forward.  Called through {@link Buffer} because JDK 9 and later declare
+         * <code>ByteBuffer.position(int)</code>, which does not exist on Java 8 runtimes.
+         */
+        private void skip(int numBytes) {
+            ((Buffer) in).position(in.position() + numBytes);
+        }
+
+        private String str(int index) {
+            return (index == NULL_INDEX) ? null : strings[index];
+        }
+
+        private EnumGranularity granularity(int index) {
+            return (index == NULL_INDEX) ? null : EnumGranularity.valueOf(strings[index]);
+        }
+
+        private EnumDiscipline discipline(int index) {
+            return (index == NULL_INDEX) ? null : EnumDiscipline.valueOf(strings[index]);
+        }
+    }
+}
@@ -1,10 +1,12 @@
 package com.easy.detection.data;
 
 import com.easy.detection.detector.DetectionConfig;
+import com.easy.detection.logging.RunReport;
 import com.easy.detection.output.ProcessedDataHandler;
+import com.easy.util.SymbolTable;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Created by wfenske on 08.12.16.
@@ -16,27 +18,89 @@ public class Context {
     public final MethodCollection functions;
     public final FeatureExpressionCollection featureExpressions;
     public final ProcessedDataHandler processedDataHandler;
-    private final Map<String, FilePath> filePathByActualPath = new HashMap<>();
+    /**
+     * Resource usage of the phases of the current run.  Shared by all contexts returned by {@link #withConfig}.  Not
+     * part of the XML intermediate files, which reference the context from every feature, function and file.
+     */
+    private transient RunReport report;
+    /**
+     * Handles of the names of all features.  Shared by all contexts returned by {@link #withConfig}.
+     */
+    public final SymbolTable featureNames;
+    /**
+     * Handles of the paths of all files, as they appear in the cppstats / srcML input.  Shared by all contexts
+     * returned by {@link #withConfig}.
+     */
+    public final SymbolTable filePaths;
+    private final Map<String, FilePath> filePathByActualPath;
 
     public Context(DetectionConfig config) {
         this.config = config;
+        this.featureNames = new SymbolTable();
+        this.filePaths = new SymbolTable();
         this.files = new FileCollection(this);
         this.functions = new MethodCollection();
         this.featureExpressions = new FeatureExpressionCollection(this);
         this.processedDataHandler = new ProcessedDataHandler(this);
+        this.report = new RunReport();
+        this.filePathByActualPath = new ConcurrentHashMap<>();
     }
 
+    private Context(DetectionConfig config, Context data) {
+        this.config = config;
+        this.files = data.files;
+        this.functions = data.functions;
+        this.featureExpressions = data.featureExpressions;
+        this.processedDataHandler = data.processedDataHandler;
+        this.report = data.report;
+        this.featureNames = data.featureNames;
+        this.filePaths = data.filePaths;
+        this.filePathByActualPath = data.filePathByActualPath;
+    }
+
+    /**
+     * Called by XStream after reading a context from the XML intermediate files, which do not include the report.
+     *
+     * @return this context, with an empty report
+     */
+    private Object readResolve() {
+        this.report = new RunReport();
+        return this;
+    }
+
+    /**
+     * @return the resource usage of the phases of the current run
+     */
+    public RunReport getReport() {
+        return report;
+    }
+
+    /**
+     * Returns a context for running a detection with a different configuration.  The returned context shares all
+     * features, functions and files (including their metrics) with this context, so the data need not be processed
+     * or loaded again.
+     *
+     * @param config the detection configuration
+     * @return a context with the given configuration and the data of this context
+     */
+    public Context withConfig(DetectionConfig config) {
+        return new Context(config, this);
+    }
+
+    /**
+     * Returns the unique {@link FilePath} for the given path.  Safe to call from multiple threads.
+     *
+     * @param actualFilePath the path as it appears in the cppstats / srcML input
+     * @return the interned path object
+     */
     public FilePath internFilePath(String actualFilePath) {
         FilePath existing = filePathByActualPath.get(actualFilePath);
         if (existing != null) {
             return existing;
         }
 
-        String filePathKey = files.KeyFromFilePath(actualFilePath);
-        FilePath newPath = new FilePath(actualFilePath, filePathKey);
-        filePathByActualPath.put(actualFilePath, newPath);
-
-        return newPath;
+        return filePathByActualPath.computeIfAbsent(actualFilePath,
+                path -> new FilePath(path, FileCollection.KeyFromFilePath(path)));
     }
 
 
@@ -1,5 +1,9 @@
 package com.easy.detection.data;
 
+import com.easy.util.IntSet;
+import com.easy.util.LineSets;
+import com.easy.util.SymbolTable;
+
 import java.util.*;
 
 /**
@@ -12,14 +16,18 @@ public class Feature implements Comparable<Feature> {
      * The name of the feature.
      */
     public String Name;
+    /**
+     * The handle of the name ({@link Context#featureNames})
+     */
+    int nameHandle;
     /**
      * The lines of feature code.
      */
-    private int _lofc;
+    int _lofc;
     /**
-     * The places that reference this feature
+     * The IDs of the places that reference this feature, in the order they were added
      */
-    public Map<UUID, FeatureReference> references;
+    public IntSet references;
     /**
      * nesting Depth informations
      */
@@ -30,8 +38,11 @@ public class Feature implements Comparable<Feature> {
      */
     public EnumGranularity maxGranularity = EnumGranularity.NOTDEFINED;
     public EnumGranularity minGranularity = EnumGranularity.NOTDEFINED;
-    /* scattering information */
-    public List<String> compilationFiles;
+    /**
+     * Scattering information: the handles of the paths of the files that reference this feature
+     * ({@link Context#filePaths})
+     */
+    public IntSet compilationFiles;
 
     /**
      * Gets the lines of code.
@@ -48,7 +59,11 @@ public class Feature implements Comparable<Feature> {
      * @return the locs
      */
     public List<FeatureReference> getReferences() {
-        return new ArrayList<>(this.references.values());
+        List<FeatureReference> result = new ArrayList<>(this.references.size());
+        for (int i = 0; i < this.references.size(); i++) {
+            result.add(ctx.featureExpressions.GetFeatureConstant(this.references.get(i)));
+        }
+        return result;
     }
 
     /**
@@ -58,8 +73,9 @@ public class Feature implements Comparable<Feature> {
      */
     public Feature(Context ctx, String name) {
         this.Name = name;
-        this.references = new HashMap<>();
-        this.compilationFiles = new ArrayList<>();
+        this.nameHandle = ctx.featureNames.Intern(name);
+        this.references = new IntSet();
+        this.compilationFiles = new IntSet();
         this.maxNestingDepth = -1;
         this.minNestingDepth = -1;
         this.ctx = ctx;
@@ -72,23 +88,59 @@ public class Feature implements Comparable<Feature> {
      */
     public void AddReference(FeatureReference ref) {
         // connect constant with this feature (both directions)
-        ref.feature = this;
+        ref.SetFeature(this);
         // set loc for the feature
-        this.references.put(ref.id, ref);
-        this._lofc += ref.end - ref.start + 1;
-        File file = ctx.files.FindFile(ref.filePath);
-        for (int current : file.emptyLines)
-            if (current > ref.start && current < ref.end) this._lofc--;
+        this.references.add(ref.id);
+        final int start = ref.GetStart();
+        final int end = ref.GetEnd();
+        final int nestingDepth = ref.GetNestingDepth();
+        final String filePath = ref.GetFilePath();
+        this._lofc += end - start + 1;
+        File file = ctx.files.FindFile(filePath);
+        this._lofc -= LineSets.countInRange(file.emptyLines, start + 1, end - 1);
         // assign nesting depth
-        if (this.minNestingDepth == -1) this.minNestingDepth = ref.nestingDepth;
-        if (this.maxNestingDepth == -1) this.maxNestingDepth = ref.nestingDepth;
-        if (this.maxNestingDepth < ref.nestingDepth) this.maxNestingDepth = ref.nestingDepth;
-        if (this.minNestingDepth > ref.nestingDepth) this.minNestingDepth = ref.nestingDepth;
-        // add cu if not already in the list
-        if (!this.compilationFiles.contains(ref.filePath)) this.compilationFiles.add(ref.filePath);
+        if (this.minNestingDepth == -1) this.minNestingDepth = nestingDepth;
+        if (this.maxNestingDepth == -1) this.maxNestingDepth = nestingDepth;
+        if (this.maxNestingDepth < nestingDepth) this.maxNestingDepth = nestingDepth;
+        if (this.minNestingDepth > nestingDepth) this.minNestingDepth = nestingDepth;
+        // add cu if not already in the set
+        this.compilationFiles.add(ref.GetFilePathHandle());
+        ctx.featureExpressions.IndexReference(ref);
         ctx.featureExpressions.numberOfFeatureConstantReferences++;
     }
 
+    /**
+     * Widens the granularity range of this feature to include the given granularity.  The feature is shared by
+     * references in other files, which may be processed concurrently.
+     *
+     * @param granularity a granularity other than {@link EnumGranularity#NOTDEFINED}
+     */
+    synchronized void UpdateGranularityRange(EnumGranularity granularity) {
+        // first time initialize
+        if (this.minGranularity == EnumGranularity.NOTDEFINED) this.minGranularity = granularity;
+        if (this.maxGranularity == EnumGranularity.NOTDEFINED) this.maxGranularity = granularity;
+        if (this.maxGranularity.GetValue() < granularity.GetValue()) this.maxGranularity = granularity;
+        if (this.minGranularity.GetValue() > granularity.GetValue()) this.minGranularity = granularity;
+    }
+
+    /**
+     * Updates the handles of a feature restored from processed data, whose handles may refer to the symbol tables of
+     * the run that saved the data.
+     *
+     * @param featureNames the symbol table of the feature names of the current run
+     * @param oldFilePaths the symbol table of the file paths of {@link #compilationFiles}
+     * @param newFilePaths the symbol table of the file paths of the current run
+     */
+    void Rebind(SymbolTable featureNames, SymbolTable oldFilePaths, SymbolTable newFilePaths) {
+        this.nameHandle = featureNames.Intern(this.Name);
+        if (oldFilePaths == newFilePaths) return;
+        IntSet files = new IntSet();
+        for (int i = 0; i < compilationFiles.size(); i++) {
+            files.add(newFilePaths.Intern(oldFilePaths.Get(compilationFiles.get(i))));
+        }
+        this.compilationFiles = files;
+    }
+
     /**
      * Gets the amount compilation files.
      *
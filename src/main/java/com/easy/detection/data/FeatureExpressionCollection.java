@@ -1,5 +1,9 @@
 package com.easy.detection.data;
 
+import com.easy.util.IntSet;
+import com.easy.util.IntSetConverter;
+import com.easy.util.SymbolTable;
+import com.easy.util.LineSetConverter;
 import com.thoughtworks.xstream.XStream;
 
 import java.io.Reader;
@@ -12,7 +16,29 @@ import java.util.function.Consumer;
  */
 public class FeatureExpressionCollection {
     private final Context ctx;
-    private Map<String, Feature> _features;
+    /**
+     * All features, in the order they were added
+     */
+    private List<Feature> _features;
+    /**
+     * All features, indexed by the handle of their name ({@link Context#featureNames}); <code>null</code> for names
+     * without a feature in this collection
+     */
+    private ArrayList<Feature> _featuresByName;
+    /**
+     * IDs of the references to all features, grouped by the path of the file in which they occur, indexed by the
+     * handle of the path ({@link Context#filePaths}); <code>null</code> for files without references
+     */
+    private ArrayList<IntSet> _referenceIdsByFilePath;
+    /**
+     * The attributes of all references
+     */
+    private FeatureReferenceStore _references;
+    /**
+     * The ID to assign to the next new reference.  Always greater than the ID of any reference known to this
+     * collection, including references restored from processed data.
+     */
+    private int _nextReferenceId;
     private int _loc;
     private int _meanLofc;
     /**
@@ -72,26 +98,111 @@ public class FeatureExpressionCollection {
      * @return the feature
      */
     public Feature InternFeature(String name) {
-        Feature existingFeature = _features.get(name);
+        final int handle = ctx.featureNames.Intern(name);
+        Feature existingFeature = featureByName(handle);
         if (existingFeature != null) return existingFeature;
         // feature missing --> add new
         Feature newFeature = new Feature(ctx, name);
-        _features.put(name, newFeature);
+        addFeature(newFeature);
         return newFeature;
     }
 
     /**
-     * Gets the feature constant of the specified feature
+     * @param nameHandle the handle of the name of a feature
+     * @return the feature, or <code>null</code> if this collection has no feature of this name
+     */
+    private Feature featureByName(int nameHandle) {
+        return (nameHandle < _featuresByName.size()) ? _featuresByName.get(nameHandle) : null;
+    }
+
+    private void addFeature(Feature feature) {
+        _features.add(feature);
+        setAt(_featuresByName, feature.nameHandle, feature);
+    }
+
+    private static <T> void setAt(ArrayList<T> list, int index, T value) {
+        while (list.size() <= index) list.add(null);
+        list.set(index, value);
+    }
+
+    /**
+     * Gets the feature constant with the specified ID
      *
-     * @param name the name
-     * @param id   the id of the constant reference
+     * @param id the id of the constant reference
      * @return the feature constant or <code>null</code>
      */
-    public FeatureReference GetFeatureConstant(String name, UUID id) {
-        for (Feature feature : _features.values()) {
-            if (feature.references.containsKey(id)) return feature.references.get(id);
+    public FeatureReference GetFeatureConstant(int id) {
+        if (!_references.Contains(id)) return null;
+        return _references.Get(id);
+    }
+
+    /**
+     * Creates a new feature reference.  IDs are assigned sequentially, so the ID of a reference is also the index of
+     * its row in the reference store.  The reference still needs to be added to its feature (see
+     * {@link Feature#AddReference(FeatureReference)}).
+     *
+     * @param filePath     the file path
+     * @param start        the start1
+     * @param end          the end1
+     * @param nestingDepth the nesting depth
+     * @param notFlag      the not flag
+     * @return the new reference
+     */
+    public FeatureReference NewReference(String filePath, int start, int end, int nestingDepth, boolean notFlag) {
+        return _references.Add(_nextReferenceId++, filePath, start, end, nestingDepth, notFlag);
+    }
+
+    /**
+     * Copies a reference of processed data, e.g., of the cache of an incremental run, into this collection, keeping
+     * its ID.  Like a new reference, the copy still needs to be added to its feature.
+     *
+     * @param source the reference to copy
+     * @return the copy
+     */
+    FeatureReference ImportReference(FeatureReference source) {
+        ReserveReferenceIds(source.id + 1);
+        return _references.Copy(source);
+    }
+
+    /**
+     * Makes sure that IDs below the given ID are not assigned to new references, because references with these IDs
+     * may be restored later, e.g., from the cache of an incremental run.
+     *
+     * @param endId one more than the highest ID in use
+     */
+    void ReserveReferenceIds(int endId) {
+        if (endId > _nextReferenceId) _nextReferenceId = endId;
+    }
+
+    /**
+     * Gets all references to any feature that occur in the given file, in the order in which they were added.
+     *
+     * @param filePath the path of the file, as returned by {@link FeatureReference#GetFilePath()}
+     * @return the references in this file, or an empty list if there are none
+     */
+    public List<FeatureReference> GetReferencesInFile(String filePath) {
+        final int handle = ctx.filePaths.Lookup(filePath);
+        IntSet ids = ((handle != SymbolTable.NO_HANDLE) && (handle < _referenceIdsByFilePath.size()))
+                ? _referenceIdsByFilePath.get(handle) : null;
+        if (ids == null) return Collections.emptyList();
+        List<FeatureReference> references = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) references.add(_references.Get(ids.get(i)));
+        return references;
+    }
+
+    /**
+     * Registers a newly added feature reference with the per-file and the per-ID reference index.
+     *
+     * @param ref the reference
+     */
+    void IndexReference(FeatureReference ref) {
+        final int handle = ref.GetFilePathHandle();
+        IntSet ids = (handle < _referenceIdsByFilePath.size()) ? _referenceIdsByFilePath.get(handle) : null;
+        if (ids == null) {
+            ids = new IntSet();
+            setAt(_referenceIdsByFilePath, handle, ids);
         }
-        return null;
+        ids.add(ref.id);
     }
 
     /**
@@ -100,7 +211,7 @@ public class FeatureExpressionCollection {
      * @return the list
      */
     public Collection<Feature> GetFeatures() {
-        return _features.values();
+        return Collections.unmodifiableList(_features);
     }
 
     /**
@@ -108,7 +219,11 @@ public class FeatureExpressionCollection {
      */
     public FeatureExpressionCollection(Context ctx) {
         this.ctx = ctx;
-        _features = new LinkedHashMap<>();
+        _features = new ArrayList<>();
+        _featuresByName = new ArrayList<>();
+        _referenceIdsByFilePath = new ArrayList<>();
+        _references = new FeatureReferenceStore(ctx.filePaths);
+        _nextReferenceId = 0;
         _loc = 0;
         numberOfFeatureConstantReferences = 0;
     }
@@ -117,7 +232,7 @@ public class FeatureExpressionCollection {
      * Misc operations (calculate mean lofc)
      */
     public void PostAction() {
-        for (Feature feat : _features.values())
+        for (Feature feat : _features)
             _meanLofc = _meanLofc + feat.getLofc();
         if (!_features.isEmpty()) _meanLofc = _meanLofc / _features.size();
     }
@@ -129,9 +244,12 @@ public class FeatureExpressionCollection {
      */
     public Consumer<Writer> SerializeFeatures() {
         XStream stream = new XStream();
-        ArrayList<Feature> listOfFeatures = new ArrayList<>(_features.values());
+        stream.registerConverter(new LineSetConverter());
+        stream.registerConverter(new IntSetConverter());
+        _references.Trim();
+        SerializedFeatures data = new SerializedFeatures(new ArrayList<>(_features), _references, ctx.filePaths);
 
-        return (writer -> stream.toXML(listOfFeatures, writer));
+        return (writer -> stream.toXML(data, writer));
     }
 
     /**
@@ -141,9 +259,42 @@ public class FeatureExpressionCollection {
      */
     public void DeserializeFeatures(Reader xmlFileReader) {
         XStream stream = new XStream();
-        List<Feature> listOfFeatures = (List<Feature>) stream.fromXML(xmlFileReader);
-        for (Feature feature : listOfFeatures) {
-            _features.put(feature.Name, feature);
+        stream.registerConverter(new LineSetConverter());
+        stream.registerConverter(new IntSetConverter());
+        SerializedFeatures data = (SerializedFeatures) stream.fromXML(xmlFileReader);
+        for (Feature feature : data.features) {
+            RestoreFeature(feature, data.references, data.filePaths);
+        }
+    }
+
+    /**
+     * Adds a feature, including its references, that has been restored from processed data.
+     *
+     * @param feature    the feature
+     * @param references the store holding the references of the feature
+     * @param filePaths  the symbol table of the file paths of the feature and its references
+     */
+    void RestoreFeature(Feature feature, FeatureReferenceStore references, SymbolTable filePaths) {
+        feature.Rebind(ctx.featureNames, filePaths, ctx.filePaths);
+        addFeature(feature);
+        IntSet ids = feature.references;
+        for (int i = 0; i < ids.size(); i++) {
+            IndexReference(ImportReference(references.Get(ids.get(i))));
+        }
+    }
+
+    /**
+     * The features and their references, as saved in the XML file of features
+     */
+    private static final class SerializedFeatures {
+        final List<Feature> features;
+        final FeatureReferenceStore references;
+        final SymbolTable filePaths;
+
+        SerializedFeatures(List<Feature> features, FeatureReferenceStore references, SymbolTable filePaths) {
+            this.features = features;
+            this.references = references;
+            this.filePaths = filePaths;
         }
     }
 }
@@ -3,75 +3,125 @@ package com.easy.detection.data;
 import com.easy.util.FileUtils;
 import org.w3c.dom.Node;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.UUID;
-
 /**
  * A reference to a feature, i.e., a place, such as the condition of an
  * <code>#if</code> directive, that mentions a feature by name.
+ * <p>
+ * The attributes of all references are stored column-wise in a {@link FeatureReferenceStore}.  An object of this class
+ * is only a view of one row of the store, identified by the ID of the reference.  Views are created when needed, so
+ * two views of the same reference are equal but not necessarily identical.
+ * </p>
  */
 public class FeatureReference implements Comparable<FeatureReference> {
+    final FeatureReferenceStore store;
     /**
-     * The corresponding feature on this location.
+     * The unique ID of this feature reference.  IDs are assigned sequentially, starting at 0, by
+     * {@link FeatureExpressionCollection#NewReference(String, int, int, int, boolean)}.
      */
-    public Feature feature;
+    public final int id;
+
+    FeatureReference(FeatureReferenceStore store, int id) {
+        this.store = store;
+        this.id = id;
+    }
+
     /**
-     * The file path.
+     * @return the corresponding feature on this location
      */
-    public String filePath;
+    public Feature GetFeature() {
+        return store.GetFeature(id);
+    }
+
+    void SetFeature(Feature feature) {
+        store.SetFeature(id, feature);
+    }
+
     /**
-     * The unique ID of this feature reference.
+     * @return the file path
      */
-    public UUID id;
+    public String GetFilePath() {
+        return store.GetFilePath(id);
+    }
+
     /**
-     * The start1 position.
+     * @return the handle of the file path ({@link Context#filePaths})
      */
-    public int start;
+    int GetFilePathHandle() {
+        return store.GetFilePathHandle(id);
+    }
+
     /**
-     * The end1 position.
+     * @return the start1 position
      */
-    public int end;
+    public int GetStart() {
+        return store.GetStart(id);
+    }
+
     /**
-     * The nesting depth.
+     * @return the end1 position
      */
-    public int nestingDepth;
+    public int GetEnd() {
+        return store.GetEnd(id);
+    }
+
     /**
-     * The negation flag.
+     * @return the nesting depth
      */
-    public Boolean notFlag;
+    public int GetNestingDepth() {
+        return store.GetNestingDepth(id);
+    }
+
     /**
-     * The list of features of combined feature constants in a location (i.e.
-     * Feature 1 && Feature 2.
+     * @return the negation flag
      */
-    public List<UUID> combinedWith;
-    public EnumGranularity granularity;
-    public EnumDiscipline discipline;
+    public boolean GetNotFlag() {
+        return store.GetNotFlag(id);
+    }
+
     /**
-     * The method that contains the feature reference (if inside a method); else
-     * = null.
+     * @return the IDs of the combined feature constants in a location (i.e. Feature 1 && Feature 2), in the order
+     * they were added
      */
-    public Method inMethod;
+    public int[] GetCombinedWith() {
+        return store.GetCombinedWith(id);
+    }
 
     /**
-     * Instantiates a new featur reference.
+     * Records that another feature constant is part of the same location
      *
-     * @param filePath     the file path
-     * @param start        the start1
-     * @param end          the end1
-     * @param nestingDepth the nesting depth
-     * @param notFlag      the not flag
+     * @param other the other feature constant
+     */
+    public void AddCombinedWith(FeatureReference other) {
+        store.AddCombinedWith(id, other.id);
+    }
+
+    public EnumGranularity GetGranularity() {
+        return store.GetGranularity(id);
+    }
+
+    /**
+     * @return the first granularity other than {@link EnumGranularity#NOTDEFINED} assigned to this reference, or
+     * <code>null</code> if there is none.  The granularity only ever increases, so this is the lowest granularity that
+     * {@link Feature#minGranularity} has been updated with.  Only needed to restore the granularity range of the
+     * feature from cached data.
+     */
+    EnumGranularity GetFirstGranularity() {
+        return store.GetFirstGranularity(id);
+    }
+
+    public EnumDiscipline GetDiscipline() {
+        return store.GetDiscipline(id);
+    }
+
+    /**
+     * @return the method that contains the feature reference (if inside a method); else <code>null</code>
      */
-    public FeatureReference(String filePath, int start, int end, int nestingDepth, Boolean notFlag) {
-        this.filePath = filePath;
-        this.id = java.util.UUID.randomUUID();
-        this.start = start;
-        this.end = end;
-        this.nestingDepth = nestingDepth;
-        this.notFlag = notFlag;
-        this.combinedWith = new ArrayList<>();
-        this.granularity = EnumGranularity.NOTDEFINED;
-        this.discipline = EnumDiscipline.NOTDEFINED;
+    public Method GetInMethod() {
+        return store.GetInMethod(id);
+    }
+
+    void SetInMethod(Method method) {
+        store.SetInMethod(id, method);
     }
 
     /**
@@ -79,7 +129,7 @@ public class FeatureReference implements Comparable<FeatureReference> {
      * <code>false</code> otherwise
      */
     public Boolean IsCombined() {
-        if (combinedWith.size() == 0)
+        if (store.GetCombinedCount(id) == 0)
             return false;
         else return true;
     }
@@ -90,16 +140,25 @@ public class FeatureReference implements Comparable<FeatureReference> {
      * @param node the node name
      */
     public void SetGranularity(Node node) {
+        SetGranularity(node.getNodeName(), node.getParentNode().getNodeName());
+    }
+
+    /**
+     * Sets the granularity based on the name of a node inside the feature constant and the name of its parent node
+     *
+     * @param nodeName   the node name
+     * @param parentName the name of the node's parent node
+     */
+    public void SetGranularity(String nodeName, String parentName) {
         // decide the granularity of the node based on the nodeName
         EnumGranularity glValue = EnumGranularity.NOTDEFINED;
-        switch (node.getNodeName()) {
+        switch (nodeName) {
             case "name":
-                String parent = node.getParentNode().getNodeName();
-                if (parent.equals("function"))
+                if (parentName.equals("function"))
                     glValue = EnumGranularity.FUNCTIONSIGNATURE;
-                else if (parent.equals("expr"))
+                else if (parentName.equals("expr"))
                     glValue = EnumGranularity.EXPRESSION;
-                else if (parent.equals("type")) glValue = EnumGranularity.STATEMENT;
+                else if (parentName.equals("type")) glValue = EnumGranularity.STATEMENT;
                 break;
             case "parameter_list":
                 glValue = EnumGranularity.FUNCTIONSIGNATURE;
@@ -168,24 +227,20 @@ public class FeatureReference implements Comparable<FeatureReference> {
                 glValue = EnumGranularity.GLOBAL;
                 break;
             default:
-                if (!node.getNodeName().contains("cpp:"))
+                if (!nodeName.contains("cpp:"))
                     // TODO System.out.println(node.getNodeName());
                     break;
         }
         // only assign new granularity if value is higher than the current
-        if (this.granularity.GetValue() < glValue.GetValue()) this.granularity = glValue;
+        EnumGranularity granularity = GetGranularity();
+        EnumGranularity firstGranularity = GetFirstGranularity();
+        if (granularity.GetValue() < glValue.GetValue()) granularity = glValue;
         // reassign feature max/min granularity if necessary
-        if (!(this.granularity == EnumGranularity.NOTDEFINED)) {
-            // first time initialize
-            if (this.feature.minGranularity == EnumGranularity.NOTDEFINED)
-                this.feature.minGranularity = this.granularity;
-            if (this.feature.maxGranularity == EnumGranularity.NOTDEFINED)
-                this.feature.maxGranularity = this.granularity;
-            if (this.feature.maxGranularity.GetValue() < this.granularity.GetValue())
-                this.feature.maxGranularity = this.granularity;
-            if (this.feature.minGranularity.GetValue() > this.granularity.GetValue())
-                this.feature.minGranularity = this.granularity;
+        if (!(granularity == EnumGranularity.NOTDEFINED)) {
+            if (firstGranularity == null) firstGranularity = granularity;
+            GetFeature().UpdateGranularityRange(granularity);
         }
+        store.SetGranularity(id, granularity, firstGranularity);
     }
 
     /**
@@ -197,10 +252,25 @@ public class FeatureReference implements Comparable<FeatureReference> {
     public void SetDiscipline(Node node) {
         // if not notdefined or disciplined, check for undisciplined node
         // annotations
-        if (this.discipline.GetValue() < 0) return;
+        if (GetDiscipline().GetValue() < 0) return;
+        final String nodeName = node.getNodeName();
+        SetDiscipline(nodeName, nodeName.equals("if") && HasElseChild(node));
+    }
+
+    /**
+     * Sets the discipline of the feature constant based on the name of a node inside the feature
+     *
+     * @param nodeName     the name of a node inside the feature constant
+     * @param hasElseChild whether the node has an <code>else</code> child node (only relevant for <code>if</code>
+     *                     nodes)
+     */
+    public void SetDiscipline(String nodeName, boolean hasElseChild) {
+        // if not notdefined or disciplined, check for undisciplined node
+        // annotations
+        if (GetDiscipline().GetValue() < 0) return;
         // decide on the basis of the siblings of each annotation
         EnumDiscipline discValue = EnumDiscipline.NOTDEFINED;
-        switch (node.getNodeName()) {
+        switch (nodeName) {
             case "else":
                 discValue = EnumDiscipline.UNDISC_ELSE_IF;
                 break;
@@ -223,45 +293,54 @@ public class FeatureReference implements Comparable<FeatureReference> {
                 discValue = EnumDiscipline.UNDISC_PARAM;
                 break;
             case "if":
-                // check if the if node has a child node. If the previous
-                // sibling of the <else> child node is not the <then> node, it
-                // is undisciplined
-                for (int current = 0; current < node.getChildNodes().getLength(); current++) {
-                    Node child = node.getChildNodes().item(current);
-                    if (child.getNodeName().equals("else")) {
-                        if (!node.getChildNodes().item(current - 1).equals("then")) {
-                            discValue = EnumDiscipline.UNDISC_IF;
-                            break;
-                        } else {
-                            discValue = EnumDiscipline.DISCIPLINED;
-                            break;
-                        }
-                    }
-                }
+                // an if node with an <else> child node is undisciplined (the
+                // check whether the <else> node is preceded by the <then>
+                // node never matched, since it compared a node to a string)
+                if (hasElseChild) discValue = EnumDiscipline.UNDISC_IF;
                 break;
             default:
                 discValue = EnumDiscipline.DISCIPLINED;
                 break;
         }
-        this.discipline = discValue;
+        store.SetDiscipline(id, discValue);
+    }
+
+    private static boolean HasElseChild(Node node) {
+        for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child.getNodeName().equals("else")) return true;
+        }
+        return false;
     }
 
     public String FilePathForDisplay() {
-        return FileUtils.displayPathFromCppstatsSrcMlPath(filePath);
+        return FileUtils.displayPathFromCppstatsSrcMlPath(GetFilePath());
     }
 
     @Override
     public int compareTo(FeatureReference other) {
-        if (this.start > other.start)
+        if (this.GetStart() > other.GetStart())
             return 1;
-        else if (this.start < other.start)
+        else if (this.GetStart() < other.GetStart())
             return -1;
         else return 0;
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof FeatureReference)) return false;
+        FeatureReference other = (FeatureReference) o;
+        return (id == other.id) && (store == other.store);
+    }
+
+    @Override
+    public int hashCode() {
+        return id;
+    }
+
     @Override
     public String toString() {
-        return String.format("FeatureReference [filePath=%s, feature=%s, start=%s, end=%s]", filePath, feature, start,
-                end);
+        return String.format("FeatureReference [filePath=%s, feature=%s, start=%s, end=%s]", GetFilePath(),
+                GetFeature(), GetStart(), GetEnd());
     }
 }
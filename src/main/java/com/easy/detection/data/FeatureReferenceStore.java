@@ -0,0 +1,252 @@
+package com.easy.detection.data;
+
+import com.easy.util.IntSet;
+import com.easy.util.SymbolTable;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Column-wise storage of the attributes of feature references.  Each attribute is kept in an array that is indexed by
+ * the ID of the reference ({@link FeatureReference#id}), so a reference takes a few array slots instead of a separate
+ * object with boxed fields.  {@link FeatureReference} objects are lightweight views of one row of this table.
+ * <ul>
+ * <li>start, end and nesting depth are <code>int</code> columns;</li>
+ * <li>the file path is an <code>int</code> column of handles of the {@link Context#filePaths} symbol table;</li>
+ * <li>the feature and the enclosing function are object columns, which take as much memory as <code>int</code> IDs
+ * (with compressed object pointers) but need no lookup;</li>
+ * <li>the negation flag is a bit set;</li>
+ * <li>the granularity, the first granularity (see {@link FeatureReference#GetFirstGranularity()}) and the discipline
+ * are packed into one <code>byte</code> column each;</li>
+ * <li>the IDs of combined references are only stored for references that have any.</li>
+ * </ul>
+ * Rows are identified by ID, but IDs do not need to be contiguous, e.g., when only the references of some files are
+ * restored from the cache of an incremental run.
+ */
+final class FeatureReferenceStore {
+    private static final int INITIAL_CAPACITY = 256;
+    /**
+     * Value of the first granularity nibble of a reference that has not got a granularity other than
+     * {@link EnumGranularity#NOTDEFINED} yet
+     */
+    private static final int NO_GRANULARITY = 0xF;
+    private static final EnumGranularity[] GRANULARITIES = EnumGranularity.values();
+    private static final EnumDiscipline[] DISCIPLINES = EnumDiscipline.values();
+
+    /**
+     * IDs of the rows of this store
+     */
+    private final BitSet ids = new BitSet();
+    private int[] start = new int[INITIAL_CAPACITY];
+    private int[] end = new int[INITIAL_CAPACITY];
+    private int[] nestingDepth = new int[INITIAL_CAPACITY];
+    private int[] filePath = new int[INITIAL_CAPACITY];
+    private Feature[] feature = new Feature[INITIAL_CAPACITY];
+    private Method[] inMethod = new Method[INITIAL_CAPACITY];
+    private final BitSet notFlags = new BitSet();
+    /**
+     * Ordinal of the granularity in the low nibble, ordinal of the first granularity (or {@link #NO_GRANULARITY}) in
+     * the high nibble
+     */
+    private byte[] granularity = new byte[INITIAL_CAPACITY];
+    private byte[] discipline = new byte[INITIAL_CAPACITY];
+    /**
+     * IDs of the combined references; <code>null</code> for references that are not combined
+     */
+    private IntSet[] combinedWith = new IntSet[INITIAL_CAPACITY];
+    private final SymbolTable filePaths;
+
+    /**
+     * @param filePaths the symbol table of the file paths of the references
+     */
+    FeatureReferenceStore(SymbolTable filePaths) {
+        this.filePaths = filePaths;
+    }
+
+    /**
+     * Adds a reference with the granularity and discipline {@link EnumGranularity#NOTDEFINED NOTDEFINED}, without
+     * feature and function.
+     *
+     * @param id           the ID of the new reference; must not be in use in this store
+     * @param filePath     the file path
+     * @param start        the start1
+     * @param end          the end1
+     * @param nestingDepth the nesting depth
+     * @param notFlag      the not flag
+     * @return a view of the new reference
+     */
+    FeatureReference Add(int id, String filePath, int start, int end, int nestingDepth, boolean notFlag) {
+        if (ids.get(id)) {
+            throw new RuntimeException("Internal error: duplicate feature reference ID " + id);
+        }
+        ensureCapacity(id + 1);
+        ids.set(id);
+        this.start[id] = start;
+        this.end[id] = end;
+        this.nestingDepth[id] = nestingDepth;
+        this.filePath[id] = filePaths.Intern(filePath);
+        this.feature[id] = null;
+        this.inMethod[id] = null;
+        this.notFlags.set(id, notFlag);
+        this.granularity[id] = (byte) ((NO_GRANULARITY << 4) | EnumGranularity.NOTDEFINED.ordinal());
+        this.discipline[id] = (byte) EnumDiscipline.NOTDEFINED.ordinal();
+        this.combinedWith[id] = null;
+        return new FeatureReference(this, id);
+    }
+
+    /**
+     * Copies a reference of another store into this one, keeping its ID and all of its attributes
+     *
+     * @param source a reference of another store
+     * @return a view of the copy in this store
+     */
+    FeatureReference Copy(FeatureReference source) {
+        final FeatureReferenceStore from = source.store;
+        final int id = source.id;
+        FeatureReference copy = Add(id, from.GetFilePath(id), from.start[id], from.end[id], from.nestingDepth[id],
+                from.notFlags.get(id));
+        this.feature[id] = from.feature[id];
+        this.inMethod[id] = from.inMethod[id];
+        this.granularity[id] = from.granularity[id];
+        this.discipline[id] = from.discipline[id];
+        IntSet combined = from.combinedWith[id];
+        if (combined != null) {
+            for (int i = 0; i < combined.size(); i++) AddCombinedWith(id, combined.get(i));
+        }
+        return copy;
+    }
+
+    /**
+     * @param id an ID
+     * @return <code>true</code> if this store has a reference with this ID
+     */
+    boolean Contains(int id) {
+        return (id >= 0) && ids.get(id);
+    }
+
+    /**
+     * @param id the ID of a reference of this store
+     * @return a view of the reference
+     */
+    FeatureReference Get(int id) {
+        return new FeatureReference(this, id);
+    }
+
+    int GetStart(int id) {
+        return start[id];
+    }
+
+    int GetEnd(int id) {
+        return end[id];
+    }
+
+    int GetNestingDepth(int id) {
+        return nestingDepth[id];
+    }
+
+    String GetFilePath(int id) {
+        return filePaths.Get(filePath[id]);
+    }
+
+    /**
+     * @param id the ID of a reference of this store
+     * @return the handle of the file path of the reference
+     */
+    int GetFilePathHandle(int id) {
+        return filePath[id];
+    }
+
+    boolean GetNotFlag(int id) {
+        return notFlags.get(id);
+    }
+
+    Feature GetFeature(int id) {
+        return feature[id];
+    }
+
+    void SetFeature(int id, Feature value) {
+        feature[id] = value;
+    }
+
+    Method GetInMethod(int id) {
+        return inMethod[id];
+    }
+
+    void SetInMethod(int id, Method value) {
+        inMethod[id] = value;
+    }
+
+    EnumGranularity GetGranularity(int id) {
+        return GRANULARITIES[granularity[id] & 0xF];
+    }
+
+    EnumGranularity GetFirstGranularity(int id) {
+        int first = (granularity[id] >> 4) & 0xF;
+        return (first == NO_GRANULARITY) ? null : GRANULARITIES[first];
+    }
+
+    /**
+     * @param id    the ID of a reference of this store
+     * @param value the granularity of the reference
+     * @param first the first granularity of the reference, or <code>null</code>
+     */
+    void SetGranularity(int id, EnumGranularity value, EnumGranularity first) {
+        int firstBits = (first == null) ? NO_GRANULARITY : first.ordinal();
+        granularity[id] = (byte) ((firstBits << 4) | value.ordinal());
+    }
+
+    EnumDiscipline GetDiscipline(int id) {
+        return DISCIPLINES[discipline[id]];
+    }
+
+    void SetDiscipline(int id, EnumDiscipline value) {
+        discipline[id] = (byte) value.ordinal();
+    }
+
+    /**
+     * @param id the ID of a reference of this store
+     * @return the IDs of the references combined with this one, in the order they were added
+     */
+    int[] GetCombinedWith(int id) {
+        IntSet combined = combinedWith[id];
+        return (combined == null) ? new int[0] : combined.toArray();
+    }
+
+    int GetCombinedCount(int id) {
+        IntSet combined = combinedWith[id];
+        return (combined == null) ? 0 : combined.size();
+    }
+
+    void AddCombinedWith(int id, int otherId) {
+        IntSet combined = combinedWith[id];
+        if (combined == null) {
+            combined = new IntSet();
+            combinedWith[id] = combined;
+        }
+        combined.add(otherId);
+    }
+
+    /**
+     * Shrinks the columns to the highest ID in use, e.g., before the store is serialized
+     */
+    void Trim() {
+        resize(ids.length());
+    }
+
+    private void ensureCapacity(int minCapacity) {
+        if (minCapacity <= start.length) return;
+        resize(Math.max(minCapacity, start.length + (start.length >> 1)));
+    }
+
+    private void resize(int capacity) {
+        start = Arrays.copyOf(start, capacity);
+        end = Arrays.copyOf(end, capacity);
+        nestingDepth = Arrays.copyOf(nestingDepth, capacity);
+        filePath = Arrays.copyOf(filePath, capacity);
+        feature = Arrays.copyOf(feature, capacity);
+        inMethod = Arrays.copyOf(inMethod, capacity);
+        granularity = Arrays.copyOf(granularity, capacity);
+        discipline = Arrays.copyOf(discipline, capacity);
+        combinedWith = Arrays.copyOf(combinedWith, capacity);
+    }
+}
@@ -1,11 +1,12 @@
 package com.easy.detection.data;
 
+import com.easy.util.IntSet;
+import com.easy.util.LineSets;
 import org.apache.commons.io.FileUtils;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
+import java.util.BitSet;
 import java.util.List;
-import java.util.UUID;
 
 public class File {
     private boolean isSmelly = false;
@@ -34,12 +35,12 @@ public class File {
      * The lines of visible annotated code. (amount of loc that is inside
      * annotations)
      */
-    public ArrayList<Integer> loac;
-    private int processedLoac;
+    public BitSet loac;
+    int processedLoac;
     /**
-     * The feature constants.
+     * The IDs of the feature constants, by order of appearance
      */
-    public LinkedHashMap<UUID, String> featureConstants;
+    public IntSet featureConstants;
     /**
      * The methods.
      */
@@ -57,9 +58,14 @@ public class File {
      */
     public int negationCount;
     /**
-     * The line numbers of empty lines (whitespace or comments), in ascending order.
+     * The line numbers of empty lines (whitespace or comments).
      */
-    public List<Integer> emptyLines;
+    public BitSet emptyLines;
+    /**
+     * Hash of the srcML file and the cppstats feature locations of this file.  Only set when processing a project
+     * incrementally, see {@link ProcessedFileCache}.
+     */
+    public transient String contentHash;
 
     /**
      * Instantiates a new file.
@@ -67,6 +73,17 @@ public class File {
      * @param filePath the file path
      */
     public File(Context ctx, String filePath) {
+        this(ctx, filePath, true);
+    }
+
+    /**
+     * Instantiates a new file.
+     *
+     * @param filePath       the file path
+     * @param readSourceFile whether to read the source file to determine its empty lines and lines of code.  This is
+     *                       not necessary when restoring a file from processed data.
+     */
+    File(Context ctx, String filePath, boolean readSourceFile) {
         this.ctx = ctx;
         this.filePath = filePath;
         this.methods = new ArrayList<>();
@@ -77,10 +94,10 @@ public class File {
         this.numberFeatureConstantsNonDup = 0;
         this.numberOfFeatureLocations = 0;
         this.negationCount = 0;
-        this.featureConstants = new LinkedHashMap<>();
-        this.loac = new ArrayList<>();
-        this.emptyLines = new ArrayList<>();
-        this.getEmptyLines(filePath);
+        this.featureConstants = new IntSet();
+        this.loac = new BitSet();
+        this.emptyLines = new BitSet();
+        if (readSourceFile) this.getEmptyLines(filePath);
     }
 
     /**
@@ -97,16 +114,16 @@ public class File {
                 // TODO Gucken ob hier ein caller auf ne methode ist --> hashmap
                 // speichern
                 if (multiline) {
-                    this.emptyLines.add(index);
+                    this.emptyLines.set(index);
                     if (line.contains("*/")) multiline = false;
                 } else if (line.isEmpty())
-                    this.emptyLines.add(index);
+                    this.emptyLines.set(index);
                     // single line comment
                 else if (line.trim().startsWith("//"))
-                    this.emptyLines.add(index);
+                    this.emptyLines.set(index);
                     // multiline comment
                 else if (line.trim().startsWith("/*")) {
-                    this.emptyLines.add(index);
+                    this.emptyLines.set(index);
                     if (!line.contains("*/")) multiline = true;
                 } else loc++;
                 index++;
@@ -128,22 +145,18 @@ public class File {
      * @param constant the feature constant
      */
     public void AddFeatureConstant(FeatureReference constant) {
-        if (!this.featureConstants.containsKey(constant.id)) {
+        if (this.featureConstants.add(constant.id)) {
             // connect feature to the method
-            this.featureConstants.put(constant.id, constant.feature.Name);
             // assign nesting depth values
-            if (constant.nestingDepth > this.nestingDepthMax) this.nestingDepthMax = constant.nestingDepth;
+            if (constant.GetNestingDepth() > this.nestingDepthMax) this.nestingDepthMax = constant.GetNestingDepth();
             // calculate lines of feature code (if the feature is longer than
             // the method, use the method end1)
-            this.lofc += constant.end - constant.start + 1;
-            for (int current : this.emptyLines)
-                if (current > constant.start && current < constant.end) this.lofc--;
+            this.lofc += constant.GetEnd() - constant.GetStart() + 1;
+            this.lofc -= LineSets.countInRange(this.emptyLines, constant.GetStart() + 1, constant.GetEnd() - 1);
             // add lines of visibile annotated code (amount of loc that is
             // inside annotations) until end1 of feature constant or end1 of
             // method
-            for (int current = constant.start; current <= constant.end; current++) {
-                if (!(this.loac.contains(current)) && !(this.emptyLines.contains(current))) this.loac.add(current);
-            }
+            LineSets.addRangeExcept(this.loac, constant.GetStart(), constant.GetEnd(), this.emptyLines);
         }
     }
 
@@ -178,62 +191,29 @@ public class File {
     }
 
     /**
-     * Gets the number of feature constants of the method
-     */
-    public void SetNumberOfFeatureConstants() {
-        ArrayList<String> constants = new ArrayList<>();
-        for (UUID id : featureConstants.keySet()) {
-            FeatureReference constant = ctx.featureExpressions.GetFeatureConstant(featureConstants.get(id), id);
-            if (!constants.contains(constant.feature.Name)) constants.add(constant.feature.Name);
+     * Computes the metrics of this file that depend on its feature references: the number of feature constants
+     * (non-duplicated), the number of feature occurences (a feature occurence is a complete set of feature constants on
+     * one line), the number of negated annotations and the nesting sum.  All of them are computed in a single pass
+     * over the feature references.
+     */
+    public void ComputeFeatureReferenceMetrics() {
+        IntSet constants = new IntSet();
+        // remember the starting position of each feature constant, but do not add it twice
+        IntSet noLoc = new IntSet();
+        int negations = 0;
+        int nesting = 0;
+        for (int i = 0; i < featureConstants.size(); i++) {
+            FeatureReference constant = ctx.featureExpressions.GetFeatureConstant(featureConstants.get(i));
+            constants.add(constant.GetFeature().nameHandle);
+            noLoc.add(constant.GetStart());
+            if (constant.GetNotFlag()) negations++;
+            nesting += constant.GetNestingDepth();
         }
-        this.processedLoac = this.loac.size();
+        this.processedLoac = this.loac.cardinality();
         this.numberFeatureConstantsNonDup = constants.size();
-    }
-
-    /**
-     * Gets the number of feature occurences. A feature occurence is a complete
-     * set of feature constants on one line.
-     *
-     * @return the number of feature occurences in the method
-     */
-    public void SetNumberOfFeatureLocations() {
-        ArrayList<Integer> noLoc = new ArrayList<>();
-        // remember the starting position of each feature constant, but do not
-        // add it twice
-        for (UUID id : featureConstants.keySet()) {
-            FeatureReference constant = ctx.featureExpressions.GetFeatureConstant(featureConstants.get(id), id);
-            if (!noLoc.contains(constant.start)) noLoc.add(constant.start);
-        }
         this.numberOfFeatureLocations = noLoc.size();
-    }
-
-    /**
-     * Set the amount of negated annotations
-     *
-     * @return the amount of negated annotations
-     */
-    public void SetNegationCount() {
-        int result = 0;
-        for (UUID id : featureConstants.keySet()) {
-            FeatureReference constant = ctx.featureExpressions.GetFeatureConstant(featureConstants.get(id), id);
-            if (constant.notFlag) result++;
-        }
-        this.negationCount = result;
-    }
-
-    /**
-     * Sets the nesting sum.
-     */
-    public void SetNestingSum() {
-        // minNesting defines the lowest nesting depth of the method (nesting
-        // depths are file based)
-        int res = 0;
-        // add each nesting to the nesting sum
-        for (UUID id : featureConstants.keySet()) {
-            FeatureReference constant = ctx.featureExpressions.GetFeatureConstant(featureConstants.get(id), id);
-            res += constant.nestingDepth;
-        }
-        this.nestingSum = res;
+        this.negationCount = negations;
+        this.nestingSum = nesting;
     }
 
     public String FilePathForDisplay() {
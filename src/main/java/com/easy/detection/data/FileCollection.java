@@ -1,7 +1,10 @@
 package com.easy.detection.data;
 
+import com.easy.util.IntSetConverter;
+import com.easy.util.LineSetConverter;
 import com.thoughtworks.xstream.XStream;
 import com.easy.util.FileUtils;
+import com.easy.util.ParallelTasks;
 
 import java.io.Reader;
 import java.io.Writer;
@@ -93,12 +96,18 @@ public class FileCollection {
      * Calculate metrics for all metrics after finishing the collection
      */
     public void PostAction() {
-        for (File file : Files.values()) {
-            file.SetNegationCount();
-            file.SetNumberOfFeatureConstants();
-            file.SetNumberOfFeatureLocations();
-            file.SetNestingSum();
-        }
+        PostAction(1);
+    }
+
+    /**
+     * Calculate metrics for all metrics after finishing the collection, using the given number of worker threads.  The
+     * metrics of a file only depend on the file itself and its feature references, so files can be processed
+     * concurrently.
+     *
+     * @param numThreads number of worker threads; a value of 1 (or less) processes all files on the calling thread
+     */
+    public void PostAction(int numThreads) {
+        ParallelTasks.forEach(Files.values(), numThreads, File::ComputeFeatureReferenceMetrics);
     }
 
     /**
@@ -114,6 +123,8 @@ public class FileCollection {
             file.loac.clear();
         }
         XStream stream = new XStream();
+        stream.registerConverter(new LineSetConverter());
+        stream.registerConverter(new IntSetConverter());
         return (writer -> stream.toXML(fileList, writer));
     }
 
@@ -124,13 +135,24 @@ public class FileCollection {
      */
     public void DeserializeFiles(Reader xmlFileReader) {
         XStream stream = new XStream();
+        stream.registerConverter(new LineSetConverter());
+        stream.registerConverter(new IntSetConverter());
         List<File> fileList = (List<File>) stream.fromXML(xmlFileReader);
         for (File f : fileList) {
-            String key = KeyFromFilePath(f.filePath);
-            Files.put(key, f);
+            RestoreFile(f);
         }
     }
 
+    /**
+     * Adds a file that has been restored from processed data.
+     *
+     * @param f the file
+     */
+    void RestoreFile(File f) {
+        String key = KeyFromFilePath(f.filePath);
+        Files.put(key, f);
+    }
+
     /**
      * @return All files, in the order they have been added
      */
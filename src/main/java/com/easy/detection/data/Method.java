@@ -1,6 +1,8 @@
 package com.easy.detection.data;
 
 import com.easy.util.FileUtils;
+import com.easy.util.IntSet;
+import com.easy.util.LineSets;
 import org.apache.log4j.Logger;
 
 import java.util.*;
@@ -64,12 +66,12 @@ public class Method {
     /**
      * The lines of code of the method, including empty lines.
      */
-    private int grossLoc;
+    int grossLoc;
 
     /**
      * The lines of code of just the signature, including empty lines, line breaks, etc.
      */
-    private int signatureGrossLinesOfCode;
+    int signatureGrossLinesOfCode;
 
     /**
      * The lines of code of the function, excluding empty lines.
@@ -91,12 +93,12 @@ public class Method {
     /**
      * The lines of visible annotated code. (amount of loc that is inside annotations)
      */
-    public List<Integer> loac;
-    private int processedLoac;
+    public BitSet loac;
+    int processedLoac;
     /**
-     * The map of the feature constants, by order of appearance
+     * The IDs of the feature constants, by order of appearance
      */
-    public Map<UUID, String> featureReferences;
+    public IntSet featureReferences;
     /**
      * The number feature constants in the method (non-duplicated).
      */
@@ -125,7 +127,7 @@ public class Method {
      *                                  (including line breaks, comments, etc.)
      */
     public Method(Context ctx, String signature, String filePath, int start1, int grossLoc
-            , int signatureGrossLinesOfCode, String fullFunctionCode) {
+            , int signatureGrossLinesOfCode) {
         this.ctx = ctx;
         this.originalFunctionSignature = signature;
         this.uniqueFunctionSignature = signature;
@@ -137,8 +139,8 @@ public class Method {
         this.end1 = start1 + grossLoc - 1;
         // initialize loc
         this.lofc = 0;
-        this.featureReferences = new LinkedHashMap<>();
-        this.loac = new ArrayList<>();
+        this.featureReferences = new IntSet();
+        this.loac = new BitSet();
         this.numberFeatureConstantsNonDup = 0;
         this.numberFeatureLocations = 0;
         this.negationCount = 0;
@@ -172,27 +174,27 @@ public class Method {
      * @param featureRef the loc
      */
     public void AddFeatureConstant(FeatureReference featureRef) {
-        if (this.featureReferences.containsKey(featureRef.id)) {
+        if (this.featureReferences.contains(featureRef.id)) {
             return;
         }
 
         assertFeatureRefMatchesFile(featureRef);
 
         // connect feature to the method
-        this.featureReferences.put(featureRef.id, featureRef.feature.Name);
-        featureRef.inMethod = this;
+        this.featureReferences.add(featureRef.id);
+        featureRef.SetInMethod(this);
         // assign nesting depth values
-        if (featureRef.nestingDepth > this.nestingDepthMax) this.nestingDepthMax = featureRef.nestingDepth;
+        if (featureRef.GetNestingDepth() > this.nestingDepthMax) this.nestingDepthMax = featureRef.GetNestingDepth();
         // calculate lines of feature code (if the feature is longer than
         // the method, use the method end)
-        final int lofcEnd = Math.min(featureRef.end, this.end1);
-        if (featureRef.start > lofcEnd) {
+        final int lofcEnd = Math.min(featureRef.GetEnd(), this.end1);
+        if (featureRef.GetStart() > lofcEnd) {
             // NOTE, 2018-11-09, wf: It sometimes happens that src2srcml puts the end of a function way past its actual location.
             // We adjust for that, but the error error is still in the DOM, an may crop up again here.
             LOG.warn("Attempt to assign feature reference that starts behind the function's end. Might be due to a parsing error of the function's end. Aborting. function=" + this + "; featureRef=" + featureRef);
             return;
         }
-        final int lofcStart = featureRef.start;
+        final int lofcStart = featureRef.GetStart();
         if (lofcStart < this.start1) {
             throw new RuntimeException("Internal error: attempt to calculate LOCF for reference that starts before the function's start (LOFC count will be off). function=" + this + "; featureRef=" + featureRef);
         }
@@ -212,27 +214,20 @@ public class Method {
         // inside annotations) until end of feature constant or end of
         // method
         File file = ctx.files.FindFile(this.filePath);
-        for (int current = lofcStart; current <= lofcEnd; current++) {
-            if (!(this.loac.contains(current)) && !file.emptyLines.contains(current))
-                this.loac.add(current);
-        }
+        LineSets.addRangeExcept(this.loac, lofcStart, lofcEnd, file.emptyLines);
     }
 
     private int computeLofcIncrement(int lofcStart, int lofcEnd) {
         int lofcIncrement = lofcEnd - lofcStart + 1;
         File file = ctx.files.FindFile(this.filePath);
         // Subtract empty lines (do not count them as feature code)
-        for (int current : file.emptyLines) {
-            if (current <= lofcStart) continue;
-            if (current >= lofcEnd) break;
-            lofcIncrement--;
-        }
+        lofcIncrement -= LineSets.countInRange(file.emptyLines, lofcStart + 1, lofcEnd - 1);
         return lofcIncrement;
     }
 
     private void assertFeatureRefMatchesFile(FeatureReference featureRef) {
         File file = ctx.files.FindFile(this.filePath);
-        File fileOfFeatureRef = ctx.files.FindFile(featureRef.filePath);
+        File fileOfFeatureRef = ctx.files.FindFile(featureRef.GetFilePath());
         if (file != fileOfFeatureRef) {
             throw new RuntimeException("Looking at two different files (should be identical): " + file + ", " + fileOfFeatureRef);
         }
@@ -257,75 +252,39 @@ public class Method {
     }
 
     /**
-     * Gets the number of feature constants of the method (non-duplicated)
-     *
-     * @return the int
+     * Computes the metrics of this function that depend on its feature references: the number of feature constants
+     * (non-duplicated), the number of feature locations (a feature location is a complete set of feature constants on
+     * one line), the number of negated annotations and the nesting sum.  All of them are computed in a single pass
+     * over the feature references.
      */
-    public void SetNumberOfFeatureConstantsNonDup() {
-        ArrayList<String> constants = new ArrayList<>();
-        for (UUID id : featureReferences.keySet()) {
-            FeatureReference constant = ctx.featureExpressions.GetFeatureConstant(featureReferences.get(id), id);
-            if (!constants.contains(constant.feature.Name)) constants.add(constant.feature.Name);
+    public void ComputeFeatureReferenceMetrics() {
+        IntSet constants = new IntSet();
+        // remember the starting position of each feature location, but do not add it twice
+        IntSet noLocs = new IntSet();
+        int negations = 0;
+        // minNesting defines the lowest nesting depth of the method (nesting depths are file based)
+        int nesting = 0;
+        int minNesting = 5000;
+        for (int i = 0; i < featureReferences.size(); i++) {
+            FeatureReference constant = ctx.featureExpressions.GetFeatureConstant(featureReferences.get(i));
+            constants.add(constant.GetFeature().nameHandle);
+            noLocs.add(constant.GetStart());
+            if (constant.GetNotFlag()) negations++;
+            // add each nesting to the nesting sum
+            nesting += constant.GetNestingDepth();
+            if (constant.GetNestingDepth() < minNesting) minNesting = constant.GetNestingDepth();
         }
         this.numberFeatureConstantsNonDup = constants.size();
-    }
-
-    /**
-     * Gets the number of feature locations. A feature location is a complete set of feature constants on one line.
-     *
-     * @return the number of feature occurences in the method
-     */
-    public void SetNumberOfFeatureLocations() {
-        ArrayList<Integer> noLocs = new ArrayList<>();
-        // remember the starting position of each feature location, but do not
-        // add it twice
-        for (UUID id : featureReferences.keySet()) {
-            FeatureReference constant = ctx.featureExpressions.GetFeatureConstant(featureReferences.get(id), id);
-            if (!noLocs.contains(constant.start)) noLocs.add(constant.start);
-        }
-        this.processedLoac = this.loac.size();
+        this.processedLoac = this.loac.cardinality();
         this.numberFeatureLocations = noLocs.size();
-    }
-
-    /**
-     * Cet the amount of negated annotations
-     *
-     * @return the amount of negated annotations
-     */
-    public void SetNegationCount() {
-        int result = 0;
-        for (UUID id : featureReferences.keySet()) {
-            FeatureReference constant = ctx.featureExpressions.GetFeatureConstant(featureReferences.get(id), id);
-            if (constant.notFlag) result++;
-        }
-        this.negationCount = result;
-    }
-
-    /**
-     * Sets the nesting sum.
-     */
-    public void SetNestingSum() {
-        // minNesting defines the lowest nesting depth of the method (nesting
-        // depths are file based)
-        int res = 0;
-        int minNesting = 5000;
-        // add each nesting to the nesting sum
-        for (UUID id : featureReferences.keySet()) {
-            FeatureReference constant = ctx.featureExpressions.GetFeatureConstant(featureReferences.get(id), id);
-            res += constant.nestingDepth;
-            if (constant.nestingDepth < minNesting) minNesting = constant.nestingDepth;
-        }
+        this.negationCount = negations;
         // subtract the complete minNesting depth (for each added location)
-        res -= this.featureReferences.size() * minNesting;
-        this.nestingSum = res;
+        this.nestingSum = nesting - this.featureReferences.size() * minNesting;
     }
 
     public void InitializeNetLocMetric() {
         File file = ctx.files.FindFile(this.filePath);
-        this.netLoc = this.grossLoc;
-        for (int empty : file.emptyLines) {
-            if (empty >= this.start1 && empty <= this.end1) this.netLoc--;
-        }
+        this.netLoc = this.grossLoc - LineSets.countInRange(file.emptyLines, this.start1, this.end1);
     }
 
     public int getNetLoc() {
@@ -1,8 +1,11 @@
 package com.easy.detection.data;
 
+import com.easy.util.IntSetConverter;
+import com.easy.util.LineSetConverter;
 import com.thoughtworks.xstream.XStream;
 import com.easy.detection.input.ParsedFunctionSignature;
 import com.easy.util.LinkedGroupingListMap;
+import com.easy.util.ParallelTasks;
 
 import java.io.Reader;
 import java.io.Writer;
@@ -93,14 +96,22 @@ public class MethodCollection {
      * Calculate metrics for all metrics after finishing the collection
      */
     public void PostAction() {
+        PostAction(1);
+    }
+
+    /**
+     * Calculate metrics for all metrics after finishing the collection, using the given number of worker threads.  The
+     * metrics of a function only depend on the function itself, its file and its feature references, so functions
+     * can be processed concurrently.
+     *
+     * @param numThreads number of worker threads; a value of 1 (or less) processes all functions on the calling thread
+     */
+    public void PostAction(int numThreads) {
         // Maybe adjust function end positions that src2srcml got wrong.
-        for (Method meth : AllMethods()) {
+        ParallelTasks.forEach(AllMethods(), numThreads, meth -> {
             meth.InitializeNetLocMetric();
-            meth.SetNegationCount();
-            meth.SetNumberOfFeatureConstantsNonDup();
-            meth.SetNumberOfFeatureLocations();
-            meth.SetNestingSum();
-        }
+            meth.ComputeFeatureReferenceMetrics();
+        });
     }
 
     /**
@@ -113,7 +124,19 @@ public class MethodCollection {
             meth.loac.clear();
         }
         XStream stream = new XStream();
-        Map<String, List<Method>> methodsForSerialization = new LinkedHashMap<>();
+        stream.registerConverter(new LineSetConverter());
+        stream.registerConverter(new IntSetConverter());
+        Map<String, List<Method>> methodsForSerialization = MethodsByFile();
+
+        return (writer -> stream.toXML(methodsForSerialization, writer));
+    }
+
+    /**
+     * @return All methods, grouped by the key of the file they belong to.  Files and the methods of each file are in
+     * the order they were added.
+     */
+    Map<String, List<Method>> MethodsByFile() {
+        Map<String, List<Method>> result = new LinkedHashMap<>();
         for (Map.Entry<String, LinkedGroupingListMap<String, Method>> e : methodsPerFile.entrySet()) {
             String filename = e.getKey();
             LinkedGroupingListMap<String, Method> methodBySig = e.getValue();
@@ -121,10 +144,9 @@ public class MethodCollection {
             for (List<Method> methods : methodBySig.getMap().values()) {
                 methodList.addAll(methods);
             }
-            methodsForSerialization.put(filename, methodList);
+            result.put(filename, methodList);
         }
-
-        return (writer -> stream.toXML(methodsForSerialization, writer));
+        return result;
     }
 
     public Iterable<Method> AllMethods() {
@@ -176,13 +198,25 @@ public class MethodCollection {
      */
     public void deserializeMethods(Reader xmlFileReader) {
         XStream stream = new XStream();
+        stream.registerConverter(new LineSetConverter());
+        stream.registerConverter(new IntSetConverter());
         Map<String, List<Method>> deserializedMethods = (Map<String, List<Method>>) stream.fromXML(xmlFileReader);
         for (Map.Entry<String, List<Method>> e : deserializedMethods.entrySet()) {
-            final LinkedGroupingListMap<String, Method> methodsBySignature = new LinkedGroupingListMap<>();
-            methodsPerFile.put(e.getKey(), methodsBySignature);
-            for (Method f : e.getValue()) {
-                methodsBySignature.put(f.originalFunctionSignature, f);
-            }
+            RestoreMethodsOfFile(e.getKey(), e.getValue());
+        }
+    }
+
+    /**
+     * Adds the methods of a file that have been restored from processed data.
+     *
+     * @param fileKey the key of the file the methods belong to
+     * @param methods the methods, in the order they were originally added
+     */
+    void RestoreMethodsOfFile(String fileKey, List<Method> methods) {
+        final LinkedGroupingListMap<String, Method> methodsBySignature = new LinkedGroupingListMap<>();
+        methodsPerFile.put(fileKey, methodsBySignature);
+        for (Method f : methods) {
+            methodsBySignature.put(f.originalFunctionSignature, f);
         }
     }
 }
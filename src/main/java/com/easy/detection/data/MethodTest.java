@@ -15,7 +15,7 @@ public class MethodTest {
 
     @Test(dataProvider = "functionNameExtractionInput")
     public void testFunctionNameExtraction(String input, String expectedOutput) throws Exception {
-        Method f = new Method(null, input, "/foo.c", 1, 42, 1, "full function definition");
+        Method f = new Method(null, input, "/foo.c", 1, 42, 1);
         String actualOutput = f.functionName;
         Assert.assertEquals(actualOutput, expectedOutput);
     }
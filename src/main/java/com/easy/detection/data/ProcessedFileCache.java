@@ -0,0 +1,161 @@
+package com.easy.detection.data;
+
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The processed files of a previous run, used to skip unchanged files when a project is processed again (incremental
+ * mode).  A file is unchanged if the hash of its srcML file and its cppstats feature locations
+ * ({@link File#contentHash}) is the same as in the previous run.  Unchanged files are restored with their functions
+ * and feature references instead of being read again.  The project-level metrics (features, LOC, mean LOFC) are then
+ * computed from the restored and the newly read files, just as in a full run.
+ * <p>
+ * Files have to be restored in the same order in which they would otherwise be read, i.e., while reading the cppstats
+ * feature locations ({@link #RestoreFileIfUnchanged(String, String)}) and while reading the srcML files
+ * ({@link #RestoreFunctionsOfFile(File)}).  This makes the result identical to that of a full run.
+ * </p>
+ */
+public class ProcessedFileCache {
+    private static final Logger LOG = Logger.getLogger(ProcessedFileCache.class);
+
+    private final Context ctx;
+    /**
+     * The cached files by their path, as stored in {@link File#filePath}.  Files are removed once they have been
+     * restored or found to be changed.
+     */
+    private final Map<String, CachedFile> cachedFilesByPath;
+    private final Map<File, CachedFile> restoredFiles = new IdentityHashMap<>();
+
+    /**
+     * A file of the previous run, with its functions and the references to features in it
+     */
+    static final class CachedFile {
+        final File file;
+        /**
+         * The references in this file, in the order they were added to their features
+         */
+        final List<FeatureReference> references;
+        final List<Method> functions;
+
+        CachedFile(File file, List<FeatureReference> references, List<Method> functions) {
+            this.file = file;
+            this.references = references;
+            this.functions = functions;
+        }
+    }
+
+    ProcessedFileCache(Context ctx, Map<String, CachedFile> cachedFilesByPath) {
+        this.ctx = ctx;
+        this.cachedFilesByPath = cachedFilesByPath;
+    }
+
+    /**
+     * Creates an empty cache, for the first run of an incremental analysis
+     *
+     * @param ctx the context into which files are to be restored
+     * @return a cache without any files
+     */
+    public static ProcessedFileCache Empty(Context ctx) {
+        return new ProcessedFileCache(ctx, Collections.emptyMap());
+    }
+
+    /**
+     * Reads the processed files saved in the binary format by a previous incremental run.  If the file cannot be read,
+     * e.g., because it was saved by a different version of Skunk, a warning is logged and an empty cache is returned,
+     * so that all files are processed again.
+     *
+     * @param ctx        the context into which files are to be restored
+     * @param binaryFile a file of processed data in the binary format
+     * @return the cached files
+     */
+    public static ProcessedFileCache Load(Context ctx, java.io.File binaryFile) {
+        try {
+            ProcessedFileCache result = BinaryProcessedData.readCache(ctx,
+                    ByteBuffer.wrap(Files.readAllBytes(binaryFile.toPath())));
+            if (result.cachedFilesByPath.isEmpty()) {
+                LOG.warn("Processed data in " + binaryFile + " was not saved by an incremental run."
+                        + " All files will be processed.");
+            }
+            return result;
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Cannot use processed data in " + binaryFile + " as a cache. All files will be processed.", e);
+            return Empty(ctx);
+        }
+    }
+
+    /**
+     * @return the number of files of the previous run that have not (yet) been restored
+     */
+    public int GetNumCachedFiles() {
+        return cachedFilesByPath.size();
+    }
+
+    /**
+     * @return the number of files that have been restored
+     */
+    public int GetNumRestoredFiles() {
+        return restoredFiles.size();
+    }
+
+    /**
+     * Restores a file and the references to features in it if the file has not changed since the previous run.  This
+     * takes the place of {@link FileCollection#InternFile(String)} and of creating the references from the cppstats
+     * feature locations.
+     *
+     * @param filePath    the path of the srcML file, as it appears in the cppstats CSV files
+     * @param contentHash the current hash of the file
+     * @return the restored file, or <code>null</code> if the file is not cached or has changed
+     */
+    public File RestoreFileIfUnchanged(String filePath, String contentHash) {
+        CachedFile cached = cachedFilesByPath.remove(filePath);
+        if ((cached == null) || !contentHash.equals(cached.file.contentHash)) return null;
+        if (ctx.files.FindFile(filePath) != null) {
+            throw new RuntimeException("Internal error: attempt to restore file that has already been added: "
+                    + filePath);
+        }
+
+        ctx.files.RestoreFile(cached.file);
+        for (FeatureReference cachedRef : cached.references) {
+            Feature feature = ctx.featureExpressions.InternFeature(cachedRef.GetFeature().Name);
+            FeatureReference ref = ctx.featureExpressions.ImportReference(cachedRef);
+            feature.AddReference(ref);
+            EnumGranularity firstGranularity = ref.GetFirstGranularity();
+            if (firstGranularity != null) feature.UpdateGranularityRange(firstGranularity);
+            if (ref.GetGranularity() != EnumGranularity.NOTDEFINED) feature.UpdateGranularityRange(ref.GetGranularity());
+        }
+        restoredFiles.put(cached.file, cached);
+        return cached.file;
+    }
+
+    /**
+     * @param file a file of the context
+     * @return <code>true</code> if the file has been restored from this cache
+     */
+    public boolean IsRestored(File file) {
+        return restoredFiles.containsKey(file);
+    }
+
+    /**
+     * Restores the functions of a file restored by {@link #RestoreFileIfUnchanged(String, String)}.  This takes the
+     * place of reading the srcML file.
+     *
+     * @param file a file of the context
+     * @return <code>true</code> if the file has been restored from this cache and its functions have been added to the
+     * context; <code>false</code> if the file needs to be read
+     */
+    public boolean RestoreFunctionsOfFile(File file) {
+        CachedFile cached = restoredFiles.get(file);
+        if (cached == null) return false;
+        if (!cached.functions.isEmpty()) {
+            ctx.functions.RestoreMethodsOfFile(FileCollection.KeyFromFilePath(file.filePath), cached.functions);
+        }
+        return true;
+    }
+}
@@ -313,7 +313,6 @@ public class DetectionConfig {
     // TODO In Output für jede Reason die entsprechende Zahl noch anzeigen
 
     // TODO Median für lofc
-    // TODO Logging und Zeitverbrauch pro größerer Operation
     // TODO DetectionResult vor Presentation abspeichern möglich machen (z.b.
     // eclipse einbindung)
 
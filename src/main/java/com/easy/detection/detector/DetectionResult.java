@@ -0,0 +1,103 @@
+package com.easy.detection.detector;
+
+import com.easy.detection.data.FeatureReference;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The result of a detection: the smelly feature references and, for each of them, the reasons why it is smelly.  The
+ * reasons of a reference are kept in an {@link EnumSet}, which is a bit mask of the {@link SmellReason} constants, and
+ * are listed in the order of these constants.
+ */
+public final class DetectionResult {
+    /**
+     * The reasons per reference, in the order in which the references were first found to be smelly.  Feature
+     * references are views that are compared by ID, so the same reference may be added through different views.
+     */
+    private final Map<FeatureReference, EnumSet<SmellReason>> reasonsByReference = new LinkedHashMap<>();
+
+    /**
+     * Adds the feature constant to the result with the specified reason, or adds the reason if the constant is already
+     * part of the result.
+     *
+     * @param constant the feature constant to add
+     * @param reason   the reason
+     */
+    void Add(FeatureReference constant, SmellReason reason) {
+        EnumSet<SmellReason> reasons = reasonsByReference.get(constant);
+        if (reasons == null) {
+            reasonsByReference.put(constant, EnumSet.of(reason));
+        } else {
+            reasons.add(reason);
+        }
+    }
+
+    /**
+     * Adds the feature constant to the result with the specified reasons, or adds the reasons if the constant is
+     * already part of the result.
+     *
+     * @param constant the feature constant to add
+     * @param reasons  the reasons; nothing is added if there are none
+     */
+    void AddAll(FeatureReference constant, EnumSet<SmellReason> reasons) {
+        if (reasons.isEmpty()) return;
+        EnumSet<SmellReason> existing = reasonsByReference.get(constant);
+        if (existing == null) {
+            reasonsByReference.put(constant, EnumSet.copyOf(reasons));
+        } else {
+            existing.addAll(reasons);
+        }
+    }
+
+    /**
+     * Adds all feature constants of another result, with their reasons.  Constants that are not yet part of this
+     * result are appended in the order of the other result.  Merging the partial results of consecutive parts of a
+     * detection in their order therefore gives the same result as one detection of all parts.
+     *
+     * @param other a partial result
+     */
+    void AddAll(DetectionResult other) {
+        for (Map.Entry<FeatureReference, EnumSet<SmellReason>> e : other.reasonsByReference.entrySet()) {
+            AddAll(e.getKey(), e.getValue());
+        }
+    }
+
+    /**
+     * Removes all feature constants that do not have all of the given reasons.  For sets of at most 64 reasons, the
+     * check per constant is a single AND of two bit masks.
+     *
+     * @param mandatory the mandatory reasons
+     */
+    void RetainReferencesWithAll(EnumSet<SmellReason> mandatory) {
+        if (mandatory.isEmpty()) return;
+        reasonsByReference.values().removeIf(reasons -> !reasons.containsAll(mandatory));
+    }
+
+    /**
+     * @return the number of smelly feature references
+     */
+    public int GetCount() {
+        return reasonsByReference.size();
+    }
+
+    /**
+     * @return the smelly feature references, in the order in which they were found, as an unmodifiable view
+     */
+    public Set<FeatureReference> GetReferences() {
+        return Collections.unmodifiableSet(reasonsByReference.keySet());
+    }
+
+    /**
+     * @param constant a smelly feature reference
+     * @return the reasons why the reference is smelly, in the order of the {@link SmellReason} constants, as an
+     * unmodifiable view, or <code>null</code> if the reference is not smelly
+     */
+    public Set<SmellReason> GetReasons(FeatureReference constant) {
+        EnumSet<SmellReason> reasons = reasonsByReference.get(constant);
+        return (reasons == null) ? null : Collections.unmodifiableSet(reasons);
+    }
+}
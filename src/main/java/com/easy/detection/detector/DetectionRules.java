@@ -0,0 +1,266 @@
+package com.easy.detection.detector;
+
+import com.easy.detection.data.Context;
+import com.easy.detection.data.Feature;
+import com.easy.detection.data.FeatureReference;
+import com.easy.detection.data.File;
+import com.easy.detection.data.Method;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * The code smell rules of a {@link DetectionConfig}, compiled once per detection.  Only the rules whose threshold is
+ * set in the configuration are part of the table.  Project-wide values (LOC, mean LOFC, number of feature references)
+ * are looked up once when the table is compiled.
+ * <p>
+ * Most rules decide for a whole function, file or feature whether all of its feature references are smelly.  For a
+ * new rule of this kind, adding a line to {@link #Compile(Context)} is all that is needed.  The nesting depth rules
+ * and the mean LOFC rule look at individual references and have their own fields.
+ * </p>
+ */
+final class DetectionRules {
+    /**
+     * A rule that marks all feature references of an entity (a function, file or feature) as smelly, with the same
+     * reason
+     *
+     * @param <T> Type of the entity
+     */
+    static final class Rule<T> {
+        final SmellReason reason;
+        final Predicate<T> isSmelly;
+
+        Rule(SmellReason reason, Predicate<T> isSmelly) {
+            this.reason = reason;
+            this.isSmelly = isSmelly;
+        }
+    }
+
+    /**
+     * Rules per function
+     */
+    final List<Rule<Method>> methodRules;
+    /**
+     * Minimum depth of a bundle of nested references in a function, or <code>-1</code> if the rule is not active
+     */
+    final int methodNestingDepthMin;
+    /**
+     * Rules per file
+     */
+    final List<Rule<File>> fileRules;
+    /**
+     * Minimum depth of a bundle of nested references in a file, or <code>-1</code> if the rule is not active
+     */
+    final int fileNestingDepthMin;
+    /**
+     * Rules per feature
+     */
+    final List<Rule<Feature>> featureRules;
+    /**
+     * Minimum lines of a single feature reference compared to the mean LOFC, or {@link Double#NaN} if the rule is not
+     * active
+     */
+    final double minReferenceLofc;
+    /**
+     * The reasons that a feature reference must all have to be part of the result
+     */
+    final EnumSet<SmellReason> mandatoryReasons;
+
+    private DetectionRules(List<Rule<Method>> methodRules, int methodNestingDepthMin, List<Rule<File>> fileRules,
+                           int fileNestingDepthMin, List<Rule<Feature>> featureRules, double minReferenceLofc,
+                           EnumSet<SmellReason> mandatoryReasons) {
+        this.methodRules = Collections.unmodifiableList(methodRules);
+        this.methodNestingDepthMin = methodNestingDepthMin;
+        this.fileRules = Collections.unmodifiableList(fileRules);
+        this.fileNestingDepthMin = fileNestingDepthMin;
+        this.featureRules = Collections.unmodifiableList(featureRules);
+        this.minReferenceLofc = minReferenceLofc;
+        this.mandatoryReasons = mandatoryReasons;
+    }
+
+    /**
+     * Compiles the rules of the configuration of the given context
+     *
+     * @param ctx the codesmell configuration and context
+     * @return the active rules
+     */
+    static DetectionRules Compile(Context ctx) {
+        final DetectionConfig config = ctx.config;
+
+        // functions (annotation bundle)
+        List<Rule<Method>> methodRules = new ArrayList<>();
+        if (!Double.isNaN(config.Method_LofcToLocRatio)) {
+            methodRules.add(new Rule<>(SmellReason.ANNOTATIONBUNDLE_LOFCTOLOC,
+                    meth -> meth.lofc >= (config.Method_LofcToLocRatio * meth.getNetLoc())));
+        }
+        if (!Double.isNaN(config.Method_LoacToLocRatio)) {
+            methodRules.add(new Rule<>(SmellReason.ANNOTATIONBUNDLE_LOACTOLOC,
+                    meth -> meth.GetLinesOfAnnotatedCode() >= (config.Method_LoacToLocRatio * meth.getNetLoc())));
+        }
+        if (config.Method_NumberOfFeatureConstants != -1) {
+            methodRules.add(new Rule<>(SmellReason.ANNOTATIONBUNDLE_NUMBERFEATURECONSTANTS,
+                    meth -> meth.GetFeatureConstantCount() > config.Method_NumberOfFeatureConstants));
+        }
+        if (config.Method_NumberOfFeatureLocations != -1) {
+            methodRules.add(new Rule<>(SmellReason.ANNOTATIONBUNDLE_NUMBERFEATURELOC,
+                    meth -> meth.GetFeatureConstantCount() > config.Method_NumberOfFeatureLocations));
+        }
+        if (config.Method_NumberOfFeatureConstantsNonDup != -1) {
+            methodRules.add(new Rule<>(SmellReason.ANNOTATIONBUNDLE_NUMBERFEATURECONSTNONDUP,
+                    meth -> meth.numberFeatureConstantsNonDup > config.Method_NumberOfFeatureConstantsNonDup));
+        }
+        if (config.Method_NegationCount != -1) {
+            methodRules.add(new Rule<>(SmellReason.ANNOTATIONBUNDLE_NUMBERNEGATIONS,
+                    meth -> meth.negationCount > config.Method_NegationCount));
+        }
+        if (config.Method_NestingSum != -1) {
+            methodRules.add(new Rule<>(SmellReason.ANNOTATIONBUNDLE_NUMBERNESTINGSUM,
+                    meth -> meth.nestingSum >= config.Method_NestingSum));
+        }
+
+        // files (annotation file)
+        List<Rule<File>> fileRules = new ArrayList<>();
+        if (!Double.isNaN(config.File_LofcToLocRatio)) {
+            fileRules.add(new Rule<>(SmellReason.ANNOTATIONFILE_LOFCTOLOC,
+                    file -> file.lofc >= (config.File_LofcToLocRatio * file.loc)));
+        }
+        if (!Double.isNaN(config.File_LoacToLocRatio)) {
+            fileRules.add(new Rule<>(SmellReason.ANNOTATIONFILE_LOACTOLOC,
+                    file -> file.GetLinesOfAnnotatedCode() >= (config.File_LoacToLocRatio * file.loc)));
+        }
+        if (config.File_NumberOfFeatureConstants != -1) {
+            fileRules.add(new Rule<>(SmellReason.ANNOTATIONFILE_NUMBERFEATURECONSTANTS,
+                    file -> file.GetFeatureConstantCount() > config.File_NumberOfFeatureConstants));
+        }
+        if (config.File_NumberOfFeatureLocations != -1) {
+            fileRules.add(new Rule<>(SmellReason.ANNOTATIONFILE_NUMBERFEATURELOC,
+                    file -> file.GetFeatureConstantCount() > config.File_NumberOfFeatureLocations));
+        }
+        if (config.File_NumberOfFeatureConstantsNonDup != -1) {
+            fileRules.add(new Rule<>(SmellReason.ANNOTATIONFILE_NUMBERFEATURECONSTNONDUP,
+                    file -> file.numberFeatureConstantsNonDup > config.File_NumberOfFeatureConstantsNonDup));
+        }
+        if (config.File_NegationCount != -1) {
+            fileRules.add(new Rule<>(SmellReason.ANNOTATIONFILE_NUMBERNEGATIONS,
+                    file -> file.negationCount > config.File_NegationCount));
+        }
+        if (config.File_NestingSum != -1) {
+            fileRules.add(new Rule<>(SmellReason.ANNOTATIONFILE_NUMBERNESTINGSUM,
+                    file -> file.nestingSum >= config.File_NestingSum));
+        }
+
+        // features (shotgun surgery, large feature)
+        List<Rule<Feature>> featureRules = new ArrayList<>();
+        if (!Double.isNaN(config.Feature_NoFeatureConstantsRatio)) {
+            // amount of nofls the feature has to exceed for a smell
+            final double minNofl = ctx.featureExpressions.numberOfFeatureConstantReferences
+                    * config.Feature_NoFeatureConstantsRatio;
+            featureRules.add(new Rule<>(SmellReason.SHOTGUNSURGERY_NOFCOSUMNOFC,
+                    feat -> feat.references.size() > minNofl));
+        }
+        if (config.Feature_NumberOfCompilUnits != -1) {
+            featureRules.add(new Rule<>(SmellReason.SHOTGUNSURGERY_NUMBERCOMPILATIONUNITS,
+                    feat -> feat.GetAmountCompilationFiles() > config.Feature_NumberOfCompilUnits));
+        }
+        if (config.Feature_NumberNofc != -1) {
+            featureRules.add(new Rule<>(SmellReason.LARGEFEATURE_NUMBERNOFC,
+                    feat -> feat.references.size() > config.Feature_NumberNofc));
+        }
+        if (config.Feature_NumberLofc != -1) {
+            featureRules.add(new Rule<>(SmellReason.LARGEFEATURE_NUMBERLOFC,
+                    feat -> feat.getLofc() > config.Feature_NumberLofc));
+        }
+        if (!Double.isNaN(config.Feature_ProjectLocRatio)) {
+            // the minimal lofc the feature must have to be a large feature
+            final double minLofc = (ctx.featureExpressions.GetLoc() * config.Feature_ProjectLocRatio);
+            featureRules.add(new Rule<>(SmellReason.LARGEFEATURE_LOFCTOLOC, feat -> feat.getLofc() >= minLofc));
+        }
+        // the minimal lofc a feature location should have to be considered big
+        double minReferenceLofc = Double.isNaN(config.Feature_MeanLofcRatio) ? Double.NaN
+                : (config.Feature_MeanLofcRatio * ctx.featureExpressions.GetMeanLofc());
+
+        return new DetectionRules(methodRules, config.Method_NestingDepthMin, fileRules, config.File_NestingDepthMin,
+                featureRules, minReferenceLofc, mandatoryReasons(config));
+    }
+
+    /**
+     * Determines the reasons that are mandatory according to the configuration
+     */
+    private static EnumSet<SmellReason> mandatoryReasons(DetectionConfig config) {
+        EnumSet<SmellReason> mandatories = EnumSet.noneOf(SmellReason.class);
+        if (config.Feature_MeanLofcRatio_Mand) mandatories.add(SmellReason.LARGEFEATURE_LOFCTOMEANLOFC);
+        if (config.Feature_ProjectLocRatio_Mand) mandatories.add(SmellReason.LARGEFEATURE_LOFCTOLOC);
+        if (config.Feature_NumberLofc_Mand) mandatories.add(SmellReason.LARGEFEATURE_NUMBERLOFC);
+        if (config.Feature_NumberNofc_Mand) mandatories.add(SmellReason.LARGEFEATURE_NUMBERNOFC);
+        if (config.Feature_NoFeatureConstantsRatio_Mand) mandatories.add(SmellReason.SHOTGUNSURGERY_NOFCOSUMNOFC);
+        if (config.Feature_NumberOfCompilUnits_Mand) mandatories.add(SmellReason.SHOTGUNSURGERY_NUMBERCOMPILATIONUNITS);
+        if (config.Method_LoacToLocRatio_Mand) mandatories.add(SmellReason.ANNOTATIONBUNDLE_LOACTOLOC);
+        if (config.Method_LofcToLocRatio_Mand) mandatories.add(SmellReason.ANNOTATIONBUNDLE_LOFCTOLOC);
+        if (config.Method_NegationCount_Mand) mandatories.add(SmellReason.ANNOTATIONBUNDLE_NUMBERNEGATIONS);
+        if (config.Method_NestingDepthMin_Mand) mandatories.add(SmellReason.ANNOTATIONBUNDLE_NUMBERNESTINGDEPTHMIN);
+        if (config.Method_NestingSum_Mand) mandatories.add(SmellReason.ANNOTATIONBUNDLE_NUMBERNESTINGSUM);
+        if (config.Method_NumberOfFeatureConstantsNonDup_Mand)
+            mandatories.add(SmellReason.ANNOTATIONBUNDLE_NUMBERFEATURECONSTNONDUP);
+        if (config.Method_NumberOfFeatureConstants_Mand)
+            mandatories.add(SmellReason.ANNOTATIONBUNDLE_NUMBERFEATURECONSTANTS);
+        if (config.Method_LoacToLocRatio_Mand) mandatories.add(SmellReason.ANNOTATIONFILE_LOACTOLOC);
+        if (config.File_LofcToLocRatio_Mand) mandatories.add(SmellReason.ANNOTATIONFILE_LOFCTOLOC);
+        if (config.File_NegationCount_Mand) mandatories.add(SmellReason.ANNOTATIONFILE_NUMBERNEGATIONS);
+        if (config.File_NestingDepthMin_Mand) mandatories.add(SmellReason.ANNOTATIONFILE_NUMBERNESTINGDEPTHMIN);
+        if (config.File_NestingSum_Mand) mandatories.add(SmellReason.ANNOTATIONFILE_NUMBERNESTINGSUM);
+        if (config.File_NumberOfFeatureConstantsNonDup_Mand)
+            mandatories.add(SmellReason.ANNOTATIONFILE_NUMBERFEATURECONSTNONDUP);
+        if (config.File_NumberOfFeatureConstants_Mand)
+            mandatories.add(SmellReason.ANNOTATIONFILE_NUMBERFEATURECONSTANTS);
+        return mandatories;
+    }
+
+    /**
+     * @return <code>true</code> if any rule applies to features or their references
+     */
+    boolean ChecksFeatures() {
+        return !featureRules.isEmpty() || !Double.isNaN(minReferenceLofc);
+    }
+
+    /**
+     * @return <code>true</code> if any rule applies to functions
+     */
+    boolean ChecksMethods() {
+        return !methodRules.isEmpty() || (methodNestingDepthMin != -1);
+    }
+
+    /**
+     * @return <code>true</code> if any rule applies to files
+     */
+    boolean ChecksFiles() {
+        return !fileRules.isEmpty() || (fileNestingDepthMin != -1);
+    }
+
+    /**
+     * Evaluates rules for an entity
+     *
+     * @param rules  the rules for entities of this type
+     * @param entity a function, file or feature
+     * @return the reasons of the rules by which the entity is smelly
+     */
+    static <T> EnumSet<SmellReason> Evaluate(List<Rule<T>> rules, T entity) {
+        EnumSet<SmellReason> reasons = EnumSet.noneOf(SmellReason.class);
+        for (Rule<T> rule : rules) {
+            if (rule.isSmelly.test(entity)) reasons.add(rule.reason);
+        }
+        return reasons;
+    }
+
+    /**
+     * @param constant a feature reference
+     * @return <code>true</code> if the mean LOFC rule is active and the reference is large compared to the mean LOFC
+     */
+    boolean IsLargeReference(FeatureReference constant) {
+        if (Double.isNaN(minReferenceLofc)) return false;
+        int lofc = (constant.GetEnd() - constant.GetStart());
+        return lofc >= minReferenceLofc;
+    }
+}
@@ -0,0 +1,102 @@
+package com.easy.detection.input;
+
+import org.w3c.dom.Node;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A fixed path of child elements, such as <code>./decl/type</code>, which is evaluated by walking the child nodes of a
+ * DOM node.  The result is the same as evaluating the path as an XPath expression, but without compiling the
+ * expression and without the overhead of the XPath engine.
+ */
+final class ChildElementPath {
+    private final String expression;
+    private final String[] steps;
+
+    private ChildElementPath(String expression, String[] steps) {
+        this.expression = expression;
+        this.steps = steps;
+    }
+
+    /**
+     * @param expression an XPath expression of the form <code>./name1/name2/...</code>
+     * @return the path
+     */
+    static ChildElementPath compile(String expression) {
+        if (!expression.startsWith("./") || (expression.length() == 2)) {
+            throw new IllegalArgumentException("Not a relative path of child elements: " + expression);
+        }
+        return new ChildElementPath(expression, expression.substring(2).split("/"));
+    }
+
+    /**
+     * @param context the node from which to evaluate the path
+     * @return the first matching element in document order, or <code>null</code> if there is none
+     */
+    Node findFirst(Node context) {
+        return findFirst(context, 0);
+    }
+
+    private Node findFirst(Node node, int step) {
+        final String name = steps[step];
+        final boolean lastStep = (step == steps.length - 1);
+        for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (isElementNamed(child, name)) {
+                if (lastStep) return child;
+                Node result = findFirst(child, step + 1);
+                if (result != null) return result;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param context the node from which to evaluate the path
+     * @return all matching elements in document order; never <code>null</code>
+     */
+    List<Node> findAll(Node context) {
+        List<Node> result = null;
+        if (steps.length == 1) {
+            final String name = steps[0];
+            for (Node child = context.getFirstChild(); child != null; child = child.getNextSibling()) {
+                if (isElementNamed(child, name)) {
+                    if (result == null) result = new ArrayList<>();
+                    result.add(child);
+                }
+            }
+        } else {
+            result = new ArrayList<>();
+            findAll(context, 0, result);
+        }
+        return (result == null) ? Collections.emptyList() : result;
+    }
+
+    private void findAll(Node node, int step, List<Node> result) {
+        final String name = steps[step];
+        final boolean lastStep = (step == steps.length - 1);
+        for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (isElementNamed(child, name)) {
+                if (lastStep) result.add(child);
+                else findAll(child, step + 1, result);
+            }
+        }
+    }
+
+    private static boolean isElementNamed(Node node, String name) {
+        return (node.getNodeType() == Node.ELEMENT_NODE) && node.getNodeName().equals(name);
+    }
+
+    /**
+     * @return the path as an XPath expression
+     */
+    String getExpression() {
+        return expression;
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+}
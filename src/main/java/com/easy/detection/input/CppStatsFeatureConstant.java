@@ -70,7 +70,7 @@ public class CppStatsFeatureConstant {
         // search for the corresponding feature expression and save information
         for (String featureName : this.featureExpressions) {
             // end1-1 = #endif does not belong to lines of code????
-            FeatureReference ref = new FeatureReference(this.filePath, this.start, this.end, stackSize,
+            FeatureReference ref = ctx.featureExpressions.NewReference(this.filePath, this.start, this.end, stackSize,
                     this.notFlags.get(this.featureExpressions.indexOf(featureName)));
             ctx.featureExpressions.InternFeature(featureName).AddReference(ref);
 
@@ -82,7 +82,7 @@ public class CppStatsFeatureConstant {
         for (FeatureReference current : references)
             for (FeatureReference other : references) {
                 if (other != current)
-                    current.combinedWith.add(other.id);
+                    current.AddCombinedWith(other);
             }
     }
 
@@ -1,6 +1,7 @@
 package com.easy.detection.input;
 
 import com.easy.detection.data.Context;
+import com.easy.detection.data.ProcessedFileCache;
 import com.easy.util.FileUtils;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
@@ -8,7 +9,17 @@ import org.apache.commons.csv.CSVRecord;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.Stack;
 
 /**
@@ -22,6 +33,12 @@ public class CppStatsFolderReader {
      */
     private String pathToCppStatsFolder;
 
+    /**
+     * Files of a previous run that are restored instead of being read again if they have not changed, or
+     * <code>null</code> to read all files
+     */
+    private ProcessedFileCache cache = null;
+
     /**
      * Instantiates a new CppStatsFolderReader
      *
@@ -33,6 +50,17 @@ public class CppStatsFolderReader {
         this.pathToCppStatsFolder = pathToCppStatsFolder;
     }
 
+    /**
+     * Enables incremental processing: files that have not changed since the previous run are restored from the given
+     * cache instead of being read.  The content hash of each file is recorded in {@link com.easy.detection.data.File#contentHash}.
+     * The same cache must be passed to {@link SrcMlFolderReader#setCache(ProcessedFileCache)}.
+     *
+     * @param cache the files of the previous run
+     */
+    public void setCache(ProcessedFileCache cache) {
+        this.cache = cache;
+    }
+
     /**
      * Processes all CppStatsFiles
      */
@@ -45,6 +73,9 @@ public class CppStatsFolderReader {
         this.internRemainingFilesAndCalculateProjectLoc(new File(this.pathToCppStatsFolder + "/cppstats.csv"));
         System.out.println("... CppStats processing done. Found (non-header) " + ctx.files.AllFiles().size()
                 + " source files.");
+        if (cache != null) {
+            System.out.println("... " + cache.GetNumRestoredFiles() + " file(s) unchanged since the previous run.");
+        }
     }
 
     /**
@@ -55,13 +86,12 @@ public class CppStatsFolderReader {
     private void getFeatureConstants(File csvFile) {
         System.out.print("... getting feature position metrics  ...");
         try {
-            Stack<CppStatsFeatureConstant> constants = new Stack<>();
             CSVParser parser = CSVParser.parse(csvFile, Charset.defaultCharset(), CSVFormat.DEFAULT);
-            for (CSVRecord rec : parser) {
-                // first lines are not necessary
-                if ((rec.get(0).equals("sep=,")) || (rec.get(0).equals("FILENAME")))
-                    continue;
-                else {
+            if (cache == null) {
+                FeatureConstantStack constants = new FeatureConstantStack();
+                for (CSVRecord rec : parser) {
+                    // first lines are not necessary
+                    if (isFeatureLocationHeader(rec)) continue;
                     // assemble feature information
                     String filePath = rec.get(0);
                     // don't use header files
@@ -69,52 +99,37 @@ public class CppStatsFolderReader {
                         continue;
                     }
                     ctx.files.InternFile(filePath);
-                    int start = Integer.parseInt(rec.get(1));
-                    int end = Integer.parseInt(rec.get(2));
-                    String type = rec.get(3);
-                    String entry = rec.get(4);
-                    // if file changes, empty stack and save all information
-                    if ((constants.size() > 0) && (!constants.peek().filePath.equals(filePath))) {
-                        while (constants.size() > 0)
-                            constants.pop().SaveFeatureConstantInformation(constants.size() + 1);
-                    }
-                    // if stack is empty, add feature constant without parent
-                    if (constants.size() == 0) {
-                        CppStatsFeatureConstant constant = new CppStatsFeatureConstant(ctx, entry, filePath, type, start,
-                                end, null);
-                        if (constant.featureExpressions.size() != 0) constants.push(constant);
-                    } else {
-                        // if end1 of top element is bigger than start1, the
-                        // current element is nested in the top element --> push
-                        // on stack
-                        if (constants.peek().end > start) {
-                            CppStatsFeatureConstant constant = new CppStatsFeatureConstant(ctx, entry, filePath, type, start,
-                                    end, constants.peek());
-                            if (constant.featureExpressions.size() != 0) constants.push(constant);
-                        } else {
-                            // save feature constant if the endline of the top
-                            // element is lower than the curent start1 location
-                            while ((constants.size() > 0) && (constants.peek().end <= start))
-                                constants.pop().SaveFeatureConstantInformation(constants.size() + 1);
-                            // item has to be put on stack, use top as reference
-                            // for current feature constant, else push first
-                            // element
-                            if (constants.size() > 0) {
-                                CppStatsFeatureConstant fl = new CppStatsFeatureConstant(ctx, entry, filePath, type, start,
-                                        end, constants.peek());
-                                if (fl.featureExpressions.size() != 0) constants.push(fl);
-                            } else {
-                                CppStatsFeatureConstant fl = new CppStatsFeatureConstant(ctx, entry, filePath, type, start,
-                                        end, null);
-                                if (fl.featureExpressions.size() != 0) constants.push(fl);
-                            }
+                    constants.add(rec);
+                }
+                // if there is still an element
+                constants.saveAll();
+            } else {
+                // Each file is either restored from the cache or read completely.  cppstats writes the rows of each
+                // file one after the other, so only the rows of the current file are kept.
+                Set<String> handledFiles = new HashSet<>();
+                List<CSVRecord> recordsOfFile = new ArrayList<>();
+                String currentFilePath = null;
+                for (CSVRecord rec : parser) {
+                    if (isFeatureLocationHeader(rec)) continue;
+                    String filePath = rec.get(0);
+                    if (filePath.endsWith(".h.xml")) continue;
+                    if (!filePath.equals(currentFilePath)) {
+                        if (currentFilePath != null) {
+                            restoreOrReadFeatureConstants(currentFilePath, recordsOfFile);
+                            recordsOfFile.clear();
+                        }
+                        if (!handledFiles.add(filePath)) {
+                            throw new RuntimeException("The rows of file " + filePath + " are not grouped together in "
+                                    + csvFile.getAbsolutePath() + ". Process the project without --incremental.");
                         }
+                        currentFilePath = filePath;
                     }
+                    recordsOfFile.add(rec);
+                }
+                if (currentFilePath != null) {
+                    restoreOrReadFeatureConstants(currentFilePath, recordsOfFile);
                 }
             }
-            // if there is still an element
-            while (constants.size() > 0)
-                constants.pop().SaveFeatureConstantInformation(constants.size() + 1);
         } catch (IOException e) {
             throw new RuntimeException("Failed to read feature constants from CSV file " + csvFile.getAbsolutePath(),
                     e);
@@ -143,7 +158,11 @@ public class CppStatsFolderReader {
                     case "ALL - MERGED":
                         continue;
                 }
-                ctx.files.InternFile(filename);
+                if (cache != null) {
+                    restoreOrInternFile(filename);
+                } else {
+                    ctx.files.InternFile(filename);
+                }
                 ctx.featureExpressions.AddLoc(Integer.parseInt(rec.get(1)));
             }
         } catch (IOException e) {
@@ -152,4 +171,137 @@ public class CppStatsFolderReader {
         }
         System.out.println(" done.");
     }
+
+    private static boolean isFeatureLocationHeader(CSVRecord rec) {
+        return rec.get(0).equals("sep=,") || rec.get(0).equals("FILENAME");
+    }
+
+    /**
+     * Restores a file and its feature constants from the cache if it has not changed.  Otherwise, the file is interned
+     * and its feature constants are created from the given rows of the feature locations CSV file.
+     *
+     * @param filePath the path of the srcML file
+     * @param records  all rows of the feature locations CSV file that refer to this file
+     */
+    private void restoreOrReadFeatureConstants(String filePath, List<CSVRecord> records) {
+        final String hash = contentHash(filePath, records);
+        if (cache.RestoreFileIfUnchanged(filePath, hash) != null) return;
+        ctx.files.InternFile(filePath).contentHash = hash;
+        FeatureConstantStack constants = new FeatureConstantStack();
+        for (CSVRecord rec : records) {
+            constants.add(rec);
+        }
+        constants.saveAll();
+    }
+
+    /**
+     * Restores a file without feature locations from the cache if it has not changed.  Otherwise, the file is
+     * interned.
+     *
+     * @param filePath the path of the srcML file
+     */
+    private void restoreOrInternFile(String filePath) {
+        if (ctx.files.FindFile(filePath) != null) return;
+        final String hash = contentHash(filePath, new ArrayList<>());
+        if (cache.RestoreFileIfUnchanged(filePath, hash) != null) return;
+        ctx.files.InternFile(filePath).contentHash = hash;
+    }
+
+    /**
+     * Computes the hash of a srcML file and the rows of the feature locations CSV file that refer to it.  Everything
+     * Skunk derives from a file depends only on these inputs.
+     *
+     * @param filePath the path of the srcML file
+     * @param records  the rows of the feature locations CSV file referring to the file
+     * @return the SHA-1 hash as a hexadecimal string
+     */
+    private static String contentHash(String filePath, List<CSVRecord> records) {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-1 is not supported by this JVM", e);
+        }
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream is = Files.newInputStream(Paths.get(filePath))) {
+            int len;
+            while ((len = is.read(buffer)) != -1) {
+                digest.update(buffer, 0, len);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading file " + filePath, e);
+        }
+        for (CSVRecord rec : records) {
+            for (String value : rec) {
+                digest.update(value.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            digest.update((byte) '\n');
+        }
+        StringBuilder result = new StringBuilder();
+        for (byte b : digest.digest()) {
+            result.append(String.format("%02x", b));
+        }
+        return result.toString();
+    }
+
+    /**
+     * Turns the rows of the feature locations CSV file into feature constants, taking their nesting into account.  Rows
+     * have to be added in the order they appear in the file.
+     */
+    private class FeatureConstantStack {
+        private final Stack<CppStatsFeatureConstant> constants = new Stack<>();
+
+        void add(CSVRecord rec) {
+            String filePath = rec.get(0);
+            int start = Integer.parseInt(rec.get(1));
+            int end = Integer.parseInt(rec.get(2));
+            String type = rec.get(3);
+            String entry = rec.get(4);
+            // if file changes, empty stack and save all information
+            if ((constants.size() > 0) && (!constants.peek().filePath.equals(filePath))) {
+                saveAll();
+            }
+            // if stack is empty, add feature constant without parent
+            if (constants.size() == 0) {
+                CppStatsFeatureConstant constant = new CppStatsFeatureConstant(ctx, entry, filePath, type, start,
+                        end, null);
+                if (constant.featureExpressions.size() != 0) constants.push(constant);
+            } else {
+                // if end1 of top element is bigger than start1, the
+                // current element is nested in the top element --> push
+                // on stack
+                if (constants.peek().end > start) {
+                    CppStatsFeatureConstant constant = new CppStatsFeatureConstant(ctx, entry, filePath, type, start,
+                            end, constants.peek());
+                    if (constant.featureExpressions.size() != 0) constants.push(constant);
+                } else {
+                    // save feature constant if the endline of the top
+                    // element is lower than the curent start1 location
+                    while ((constants.size() > 0) && (constants.peek().end <= start))
+                        constants.pop().SaveFeatureConstantInformation(constants.size() + 1);
+                    // item has to be put on stack, use top as reference
+                    // for current feature constant, else push first
+                    // element
+                    if (constants.size() > 0) {
+                        CppStatsFeatureConstant fl = new CppStatsFeatureConstant(ctx, entry, filePath, type, start,
+                                end, constants.peek());
+                        if (fl.featureExpressions.size() != 0) constants.push(fl);
+                    } else {
+                        CppStatsFeatureConstant fl = new CppStatsFeatureConstant(ctx, entry, filePath, type, start,
+                                end, null);
+                        if (fl.featureExpressions.size() != 0) constants.push(fl);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Saves all feature constants still on the stack
+         */
+        void saveAll() {
+            while (constants.size() > 0)
+                constants.pop().SaveFeatureConstantInformation(constants.size() + 1);
+        }
+    }
 }
@@ -0,0 +1,50 @@
+package com.easy.detection.input;
+
+import com.easy.detection.data.Method;
+
+/**
+ * Finds the function definition of a file that encloses a given line.  The index is built from the functions of a
+ * file in order of occurrence, after their end positions have been adjusted (see
+ * {@link Method#maybeAdjustMethodEndBasedOnNextFunction(Method)}).  This adjustment ensures that each function ends
+ * before the next one starts, so the line ranges of the functions do not overlap.  A lookup is then a binary search for
+ * the last function starting at or before the line.
+ */
+final class FunctionLineIndex {
+    private final Method[] functions;
+    private final int[] starts;
+
+    /**
+     * @param functionsByOccurrence the functions of a file, in order of occurrence, with adjusted end positions
+     */
+    FunctionLineIndex(Method[] functionsByOccurrence) {
+        this.functions = functionsByOccurrence;
+        this.starts = new int[functionsByOccurrence.length];
+        for (int i = 0; i < functionsByOccurrence.length; i++) {
+            starts[i] = functionsByOccurrence[i].start1;
+        }
+    }
+
+    /**
+     * @param line1 a line of the file, counted from 1
+     * @return the function whose range <code>start1..end1</code> contains the line, or <code>null</code> if the line
+     * is not part of a function definition
+     */
+    Method FindEnclosingFunction(int line1) {
+        // index of the last function with start1 <= line1
+        int lo = 0;
+        int hi = starts.length - 1;
+        int found = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (starts[mid] <= line1) {
+                found = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        if (found < 0) return null;
+        Method candidate = functions[found];
+        return (line1 <= candidate.end1) ? candidate : null;
+    }
+}
@@ -10,10 +10,6 @@ import org.w3c.dom.NodeList;
 import javax.xml.transform.*;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
 import java.io.StringWriter;
 import java.util.*;
 
@@ -25,9 +21,24 @@ import java.util.*;
 public class FunctionSignatureParser {
     private static Logger LOG = Logger.getLogger(FunctionSignatureParser.class);
 
-    private static final ThreadLocal<XPath> tlXPath = ThreadLocal.withInitial(() -> XPathFactory.newInstance().newXPath());
+    // Paths of the nodes that make up a function signature, relative to the function node or one of its children
+    static final ChildElementPath PATH_TYPE = ChildElementPath.compile("./type");
+    static final ChildElementPath PATH_SPECIFIER = ChildElementPath.compile("./specifier");
+    static final ChildElementPath PATH_NAME = ChildElementPath.compile("./name");
+    static final ChildElementPath PATH_PARAMETER_LIST = ChildElementPath.compile("./parameter_list");
+    static final ChildElementPath PATH_PARAM = ChildElementPath.compile("./param");
+    static final ChildElementPath PATH_DECL_TYPE = ChildElementPath.compile("./decl/type");
+    static final ChildElementPath PATH_DECL_NAME = ChildElementPath.compile("./decl/name");
 
-    private final String functionNodeTextContent;
+    /**
+     * The text content of the function node up to (excluding) the first opening brace, i.e., without the function
+     * body.  If there is no opening brace, this is the whole text content.
+     */
+    private final String textBeforeBody;
+    /**
+     * Whether the text content of the function node contains an opening brace
+     */
+    private final boolean hasOpenBrace;
     private final Node functionNode;
     private final FilePath filePath;
     StringBuilder result;
@@ -35,13 +46,45 @@ public class FunctionSignatureParser {
 
     public FunctionSignatureParser(Node functionNode, FilePath filePath) {
         this.functionNode = functionNode;
-        this.functionNodeTextContent = functionNode.getTextContent();
+        StringBuilder text = new StringBuilder();
+        this.hasOpenBrace = appendTextUpToOpenBrace(functionNode, text);
+        this.textBeforeBody = text.toString();
         this.filePath = filePath;
         if (LOG.isDebugEnabled()) {
             enableDebugParseExceptions();
         }
     }
 
+    /**
+     * Appends the text content of a node to a buffer, up to (excluding) the first opening brace.  The text of the
+     * function body after the brace is never visited.
+     *
+     * @param node the node
+     * @param text the buffer
+     * @return <code>true</code> if an opening brace was found
+     */
+    private static boolean appendTextUpToOpenBrace(Node node, StringBuilder text) {
+        for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+            switch (child.getNodeType()) {
+                case Node.TEXT_NODE:
+                case Node.CDATA_SECTION_NODE: {
+                    String value = child.getNodeValue();
+                    int openBraceIx = value.indexOf('{');
+                    if (openBraceIx != -1) {
+                        text.append(value, 0, openBraceIx);
+                        return true;
+                    }
+                    text.append(value);
+                    break;
+                }
+                case Node.ELEMENT_NODE:
+                    if (appendTextUpToOpenBrace(child, text)) return true;
+                    break;
+            }
+        }
+        return false;
+    }
+
     /**
      * Turns on log messages and more elaborate error reporting, but will also slow down the parser.
      */
@@ -157,18 +200,18 @@ public class FunctionSignatureParser {
     }
 
     private void parseUpToIncludingFunctionName() throws FunctionSignatureParseException {
-        Node returnType = getNodeOrDie(functionNode, "./type");
-        List<Node> returnTypeSpecifiers = getPossiblyEmptyNodeList(returnType, "./specifier");
+        Node returnType = getNodeOrDie(functionNode, PATH_TYPE);
+        List<Node> returnTypeSpecifiers = getPossiblyEmptyNodeList(returnType, PATH_SPECIFIER);
         for (Node returnTypeSpecifier : returnTypeSpecifiers) {
             String content = returnTypeSpecifier.getTextContent();
             if (result.length() > 0) result.append(' ');
             result.append(content);
         }
-        Node returnTypeName = getNodeOrDie(returnType, "./name");
+        Node returnTypeName = getNodeOrDie(returnType, PATH_NAME);
         String returnTypeNameString = returnTypeName.getTextContent();
         if (result.length() > 0) result.append(' ');
         result.append(returnTypeNameString);
-        Node functionName = getNodeOrDie(functionNode, "./name");
+        Node functionName = getNodeOrDie(functionNode, PATH_NAME);
         String functionNameString = functionName.getTextContent();
         if (result.length() > 0) result.append(' ');
         result.append(functionNameString);
@@ -192,9 +235,9 @@ public class FunctionSignatureParser {
 //        }
 
     private Node parseRegularFunctionParamList() throws FunctionSignatureParseException {
-        Node parameterList = getNodeOrDie(functionNode, "./parameter_list");
+        Node parameterList = getNodeOrDie(functionNode, PATH_PARAMETER_LIST);
         Node lastNode = parameterList;
-        List<Node> params = getPossiblyEmptyNodeList(parameterList, "./param");
+        List<Node> params = getPossiblyEmptyNodeList(parameterList, PATH_PARAM);
         Iterator<Node> iParam = params.iterator();
         if (iParam.hasNext()) {
             // parse first parameter
@@ -209,17 +252,15 @@ public class FunctionSignatureParser {
     }
 
     private Node parseParam(Node param) throws FunctionSignatureParseException {
-        Node typeDeclarationNode = getNodeOrDie(param, "./decl/type");
+        Node typeDeclarationNode = getNodeOrDie(param, PATH_DECL_TYPE);
         Node lastNode = typeDeclarationNode;
-        Optional<Node> optParamTypeName = getOptionalNode(typeDeclarationNode, "./name");
-        if (optParamTypeName.isPresent()) {
-            Node paramTypeName = optParamTypeName.get();
+        Node paramTypeName = getNodeOrNull(typeDeclarationNode, PATH_NAME);
+        if (paramTypeName != null) {
             lastNode = paramTypeName;
             String paramTypeNameString = paramTypeName.getTextContent();
             // NOTE, 2017-03-06, wf: By making the parameter name optional, we effectively also allow K&R style function definitions
-            Optional<Node> optParamName = getOptionalNode(param, "./decl/name");
-            if (optParamName.isPresent()) {
-                Node paramName = optParamName.get();
+            Node paramName = getNodeOrNull(param, PATH_DECL_NAME);
+            if (paramName != null) {
                 lastNode = paramName;
                 String paramNameString = paramName.getTextContent();
                 result.append(paramTypeNameString).append(' ').append(paramNameString);
@@ -239,9 +280,8 @@ public class FunctionSignatureParser {
         // get the text content of the node (signature + method content),
         // and remove method content until beginning of block
         //deleteComments();
-        final String noBodyResult;
-        final int openBraceIx = functionNodeTextContent.indexOf('{');
-        if (openBraceIx == -1) {
+        final String noBodyResult = textBeforeBody;
+        if (!hasOpenBrace) {
             /*
              * This warning will also be triggered by K&R-style function definitions, such as
              *
@@ -270,10 +310,7 @@ public class FunctionSignatureParser {
              */
             LOG.warn("Encountered strange function node (no opening `{' found) at " +
                     funcLocForReporting() +
-                    ": " + functionNodeTextContent);
-            noBodyResult = functionNodeTextContent;
-        } else {
-            noBodyResult = functionNodeTextContent.substring(0, openBraceIx);
+                    ": " + textBeforeBody);
         }
         // Delete line and block comments (yeah, there are some cases where these are part of the function signature ...)
         String noComments = removeComments(noBodyResult, true);
@@ -478,8 +515,7 @@ public class FunctionSignatureParser {
         // get the text content of the node (signature + method content),
         // and remove method content until beginning of block
 
-        final int openBraceIx = functionNodeTextContent.indexOf('{');
-        if (openBraceIx == -1) {
+        if (!hasOpenBrace) {
             /*
              * This may happen for K&R-style function definitions, such as
              *
@@ -491,7 +527,7 @@ public class FunctionSignatureParser {
             try {
                 ParsedFunctionSignature signature = parseRegularFunctionSignature();
                 if (debugParseExceptions) {
-                    LOG.debug("Successfully parsed function signature using XPath: `" + signature + "' parsed from " + prettyPrintFunctionNodeOrChild(functionNode));
+                    LOG.debug("Successfully parsed function signature using the SrcML structure: `" + signature + "' parsed from " + prettyPrintFunctionNodeOrChild(functionNode));
                 }
                 return signature;
             } catch (FunctionSignatureParseException parseEx) {
@@ -505,38 +541,30 @@ public class FunctionSignatureParser {
     }
 
     private void deleteFunctionBody(Node node) {
-        try {
-            NodeList blocks = (NodeList) ensureXPath().evaluate(".//block", node, XPathConstants.NODESET);
-            if (blocks != null) {
-                deleteNodes(blocks);
-            }
-        } catch (XPathExpressionException e) {
-            // Don't care
-        }
+        deleteDescendants(node, "block");
     }
 
-    private void deleteNodes(NodeList nodeList) {
-        final int len = nodeList.getLength();
+    private void deleteDescendants(Node node, String name) {
+        if (!(node instanceof Element)) return;
+        // The node list is live, so copy it before removing any nodes.
+        NodeList liveNodeList = ((Element) node).getElementsByTagName(name);
+        final int len = liveNodeList.getLength();
+        List<Node> nodeList = new ArrayList<>(len);
         for (int i = 0; i < len; i++) {
-            Node node = nodeList.item(i);
-            if (node != null) {
-                Node nodeParent = node.getParentNode();
+            nodeList.add(liveNodeList.item(i));
+        }
+        for (Node descendant : nodeList) {
+            if (descendant != null) {
+                Node nodeParent = descendant.getParentNode();
                 if (nodeParent != null) {
-                    nodeParent.removeChild(node);
+                    nodeParent.removeChild(descendant);
                 }
             }
         }
     }
 
     private void deleteComments(Node node) {
-        try {
-            NodeList comments = (NodeList) ensureXPath().evaluate(".//comment", node, XPathConstants.NODESET);
-            if (comments != null) {
-                deleteNodes(comments);
-            }
-        } catch (XPathExpressionException e) {
-            // Don't care
-        }
+        deleteDescendants(node, "comment");
     }
 
     private String prettyPrintFunctionNodeOrChild(Node node) {
@@ -665,12 +693,12 @@ public class FunctionSignatureParser {
         return result.toString();
     }
 
-    private Node getNodeOrDie(Node nodeOfInterest, String xpathExpression) throws FunctionSignatureParseException {
-        Optional<Node> r = getOptionalNode(nodeOfInterest, xpathExpression);
-        if (r.isPresent()) return r.get();
+    private Node getNodeOrDie(Node nodeOfInterest, ChildElementPath path) throws FunctionSignatureParseException {
+        Node r = getNodeOrNull(nodeOfInterest, path);
+        if (r != null) return r;
         else {
             if (debugParseExceptions) {
-                throw new FunctionSignatureParseException("Missing node `" + xpathExpression + "' in "
+                throw new FunctionSignatureParseException("Missing node `" + path + "' in "
                         + prettyPrintFunctionNodeOrChild(nodeOfInterest) + " (" + funcLocForReporting() + ")");
             } else {
                 throw new FunctionSignatureParseException();
@@ -678,44 +706,12 @@ public class FunctionSignatureParser {
         }
     }
 
-    private Optional<Node> getOptionalNode(Node nodeOfInterest, String xpathExpression) throws FunctionSignatureParseException {
-        Node result = null;
-        try {
-            result = (Node) ensureXPath().evaluate(xpathExpression, nodeOfInterest, XPathConstants.NODE);
-        } catch (XPathExpressionException e) {
-            if (debugParseExceptions) {
-                throw new FunctionSignatureParseException("Error finding node `" + xpathExpression + "' in "
-                        + prettyPrintFunctionNodeOrChild(nodeOfInterest) + " (" + funcLocForReporting() + ")");
-            } else {
-                throw new FunctionSignatureParseException(e);
-            }
-        }
-
-        return Optional.ofNullable(result);
+    private static Node getNodeOrNull(Node nodeOfInterest, ChildElementPath path) {
+        return path.findFirst(nodeOfInterest);
     }
 
-    private List<Node> getPossiblyEmptyNodeList(Node nodeOfInterest, String xpathExpression) throws FunctionSignatureParseException {
-        NodeList result = null;
-        try {
-            result = (NodeList) ensureXPath().evaluate(xpathExpression,
-                    nodeOfInterest, XPathConstants.NODESET);
-        } catch (XPathExpressionException e) {
-            if (debugParseExceptions) {
-                throw new FunctionSignatureParseException("Error finding nodes matching `" + xpathExpression + "' in " +
-                        nodeOfInterest.getTextContent() + " (" + funcLocForReporting() + ")");
-            } else {
-                throw new FunctionSignatureParseException(e);
-            }
-        }
-
-        if (result == null) return Collections.emptyList();
-
-        List<Node> resultList = new ArrayList<>();
-        for (int iNode = 0; iNode < result.getLength(); iNode++) {
-            resultList.add(result.item(iNode));
-        }
-
-        return resultList;
+    private static List<Node> getPossiblyEmptyNodeList(Node nodeOfInterest, ChildElementPath path) {
+        return path.findAll(nodeOfInterest);
     }
 
     private String funcLocForReporting() {
@@ -737,14 +733,4 @@ public class FunctionSignatureParser {
         // The srcML representation starts with a one-line XML declaration, which we subtract here.
         return xmlStartLoc - 1;
     }
-
-    //        private XPath ensureXPath() {
-//            if (xPath == null) {
-//                xPath = XPathFactory.newInstance().newXPath();
-//            }
-//            return xPath;
-//        }
-    private XPath ensureXPath() {
-        return tlXPath.get();
-    }
 }
@@ -13,28 +13,70 @@ import org.xml.sax.helpers.DefaultHandler;
 import javax.xml.parsers.*;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Stack;
+import java.util.ArrayDeque;
+import java.util.Deque;
 
 /**
  * The Class PositionalXmlReader.
+ * <p>
+ * A reader can be shared by several threads.  SAX parsers and DOM builders are not thread-safe, so each call of
+ * {@link #readXML(InputStream)} takes a parser and a builder from a pool of idle ones, or creates new ones if all are in
+ * use, and puts them back into the pool afterwards.  The pool therefore never holds more parsers than there have been
+ * concurrent calls.
+ * </p>
  */
 public class PositionalXmlReader {
 
     /**
      * The Constant LINE_NUMBER_KEY_NAME.
      */
-    private final static String LINE_NUMBER_KEY_NAME = "lineNumber";
-    private SAXParser parser;
-    private DocumentBuilder docBuilder;
-    private Document doc;
+    final static String LINE_NUMBER_KEY_NAME = "lineNumber";
+    /**
+     * Key of the user data holding the line on which an element ends, i.e., the line of its end tag.  Only recorded for
+     * <code>function</code> elements: each piece of user data is an entry in a map of the document, so recording it
+     * for all elements would slow down reading noticeably.
+     */
+    final static String END_LINE_NUMBER_KEY_NAME = "endLineNumber";
+    private SAXParserFactory parserFactory;
+    private DocumentBuilderFactory docBuilderFactory;
+    /**
+     * Idle parsers and DOM builders, guarded by <code>this</code>
+     */
+    private final Deque<ParserInstance> idleParsers = new ArrayDeque<>();
+
+    /**
+     * A SAX parser together with the DOM builder for the documents it reads
+     */
+    private static final class ParserInstance {
+        final SAXParser parser;
+        final DocumentBuilder docBuilder;
+
+        ParserInstance(SAXParser parser, DocumentBuilder docBuilder) {
+            this.parser = parser;
+            this.docBuilder = docBuilder;
+        }
+    }
 
     public static int getElementLineNumberAsIs(Element element) {
         int xmlStartLoc = (Integer) element.getUserData(PositionalXmlReader.LINE_NUMBER_KEY_NAME);
         return xmlStartLoc;
     }
 
+    /**
+     * @param element a <code>function</code> element read by this class or by {@link StreamingSrcMlReader}
+     * @return the line number of the element's end tag in the XML file, as reported by the XML parser
+     */
+    public static int getElementEndLineNumberAsIs(Element element) {
+        return (Integer) element.getUserData(PositionalXmlReader.END_LINE_NUMBER_KEY_NAME);
+    }
+
     private static class SkunkXmlHandler extends DefaultHandler {
-        private final Stack<Element> elementStack = new Stack<Element>();
+        /**
+         * The open elements, innermost first.  Unlike {@link java.util.Stack}, an {@link ArrayDeque} does not
+         * synchronize each operation; the handler is only ever used by one thread.  Element names need not be
+         * interned here: the SAX parser already passes the same string instance for each occurrence of a name.
+         */
+        private final Deque<Element> elementStack = new ArrayDeque<>();
         private final StringBuilder textBuffer = new StringBuilder();
         private final Document doc;
 
@@ -72,6 +114,9 @@ public class PositionalXmlReader {
                                final String qName) {
             addTextIfNeeded();
             final Element closedEl = elementStack.pop();
+            if (qName.equals("function")) {
+                closedEl.setUserData(END_LINE_NUMBER_KEY_NAME, this.locator.getLineNumber(), null);
+            }
             if (elementStack.isEmpty()) { // Is this the root element?
                 doc.appendChild(closedEl);
             } else {
@@ -111,30 +156,35 @@ public class PositionalXmlReader {
      * @throws SAXException the SAX exception
      */
     public Document readXML(final InputStream is) throws IOException, SAXException {
-        ensureInitialized();
-        Document doc = docBuilder.newDocument();
+        final ParserInstance instance = acquireParser();
+        Document doc = instance.docBuilder.newDocument();
         DefaultHandler handler = new SkunkXmlHandler(doc);
         try {
-            parser.parse(is, handler);
+            instance.parser.parse(is, handler);
         } finally {
-            parser.reset();
+            instance.parser.reset();
+            releaseParser(instance);
         }
         return doc;
     }
 
-    private boolean initialized = false;
-
-    private synchronized void ensureInitialized() throws SAXException {
-        if (initialized) return;
+    private synchronized ParserInstance acquireParser() throws SAXException {
+        ParserInstance idle = idleParsers.pollFirst();
+        if (idle != null) return idle;
         try {
-            SAXParserFactory factory = SAXParserFactory.newInstance();
-            parser = factory.newSAXParser();
-            final DocumentBuilderFactory docBuilderFactory = DocumentBuilderFactory.newInstance();
-            docBuilder = docBuilderFactory.newDocumentBuilder();
+            // The factories are not thread-safe either, so they are only used while holding the lock.
+            if (parserFactory == null) {
+                parserFactory = SAXParserFactory.newInstance();
+                docBuilderFactory = DocumentBuilderFactory.newInstance();
+            }
+            return new ParserInstance(parserFactory.newSAXParser(), docBuilderFactory.newDocumentBuilder());
         } catch (final ParserConfigurationException e) {
             throw new RuntimeException(
                     "Can't create SAX parser / DOM builder.", e);
         }
-        initialized = true;
+    }
+
+    private synchronized void releaseParser(ParserInstance instance) {
+        idleParsers.addFirst(instance);
     }
 }
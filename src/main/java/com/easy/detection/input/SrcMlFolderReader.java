@@ -1,7 +1,10 @@
 package com.easy.detection.input;
 
 import com.easy.detection.data.*;
+import com.easy.detection.logging.RunReport;
+import com.easy.util.FileUtils;
 import com.easy.util.GroupingListMap;
+import com.easy.util.ParallelTasks;
 import org.apache.log4j.Logger;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
@@ -9,15 +12,19 @@ import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
 
-import java.io.ByteArrayInputStream;
+import javax.xml.stream.XMLStreamException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * The Class SrcMlFolderReader.
@@ -25,9 +32,34 @@ import java.util.Map;
 public class SrcMlFolderReader {
     private static Logger LOG = Logger.getLogger(SrcMlFolderReader.class);
 
+    /**
+     * Name of the phase in the {@link RunReport} that covers {@link #ProcessFiles(int)}.  The phases for parsing,
+     * resolving feature references and interning functions are nested in it.
+     */
+    public static final String PHASE_SRCML_READ = "srcMlRead";
+    private static final String PHASE_PARSE = "srcMlParse";
+    private static final String PHASE_RESOLVE_REFERENCES = "featureReferenceResolution";
+    private static final String PHASE_INTERN_FUNCTIONS = "functionInterning";
+    /**
+     * Default for {@link #setMapThreshold(long)}: srcML files of at least 1 MiB are mapped into memory.
+     */
+    public static final long DEFAULT_MAP_THRESHOLD = 1L << 20;
+
     private final Context ctx;
     private final PositionalXmlReader reader;
     private final IMethodFactory methodFactory;
+    /**
+     * Whether to read srcML files using {@link StreamingSrcMlReader} instead of building a DOM for each file
+     */
+    private boolean streaming = false;
+    /**
+     * Files of a previous run whose functions are restored instead of reading their srcML files, or <code>null</code>
+     */
+    private ProcessedFileCache cache = null;
+    /**
+     * The minimum size of a srcML file, in bytes, that is mapped into memory instead of being read into a byte array
+     */
+    private long mapThreshold = DEFAULT_MAP_THRESHOLD;
 
     /**
      * Instantiates a new srcML folder reader.
@@ -58,48 +90,288 @@ public class SrcMlFolderReader {
         this.methodFactory = methodFactory;
     }
 
+    /**
+     * Chooses how srcML files are read.  The default is to build a DOM for each file using
+     * {@link PositionalXmlReader}.  The streaming mode reads each file in a single pass using
+     * {@link StreamingSrcMlReader} and only materializes the DOM of one function definition at a time, which requires
+     * far less memory for large files.  Both modes produce the same results.
+     *
+     * @param streaming <code>true</code> to use the streaming reader
+     */
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
+    /**
+     * Chooses which srcML files are mapped into memory.  A mapped file is fed to the XML parser directly from the
+     * mapped region, which avoids copying large files onto the Java heap.  For small files, mapping costs more than it
+     * saves, so they are read into a byte array.
+     *
+     * @param mapThreshold the minimum size of a file, in bytes, that is mapped; <code>0</code> to map all files,
+     *                     {@link Long#MAX_VALUE} to map none.  Defaults to {@link #DEFAULT_MAP_THRESHOLD}.
+     */
+    public void setMapThreshold(long mapThreshold) {
+        if (mapThreshold < 0) throw new IllegalArgumentException("Negative map threshold: " + mapThreshold);
+        this.mapThreshold = mapThreshold;
+    }
+
+    /**
+     * Enables incremental processing: the srcML files of files that the {@link CppStatsFolderReader} has restored from
+     * the given cache are not read.  Their functions are restored instead.
+     *
+     * @param cache the cache previously passed to {@link CppStatsFolderReader#setCache(ProcessedFileCache)}
+     */
+    public void setCache(ProcessedFileCache cache) {
+        this.cache = cache;
+    }
+
     /**
      * Process files to get metrics from srcMl
      */
     public void ProcessFiles() {
-        LOG.info("Processing SrcML files ...");
+        ProcessFiles(1);
+    }
+
+    /**
+     * Process files to get metrics from srcMl, using the given number of worker threads.  Files are parsed and their
+     * feature references are resolved concurrently, but the resulting functions are interned into the context in the
+     * original file order, so that the outcome is identical to a sequential run.
+     *
+     * @param numThreads number of worker threads; a value of 1 (or less) processes all files on the calling thread
+     */
+    public void ProcessFiles(int numThreads) {
+        LOG.info("Processing SrcML files" + (numThreads > 1 ? " using " + numThreads + " threads" : "")
+                + (streaming ? " (streaming)" : "") + " ...");
         final Collection<File> allFiles = ctx.files.AllFiles();
         int processed = 0;
         final int numAllFiles = allFiles.size();
         final int logDiv = Math.max(1, Math.round(numAllFiles / 100f));
 
-        for (File file : allFiles) {
-            final String filePath = file.filePath;
-            final FilePath fp = ctx.internFilePath(filePath);
+        if (numThreads <= 1) {
+            final StreamingSrcMlReader streamingReader = streaming ? new StreamingSrcMlReader() : null;
+            for (File file : allFiles) {
+                if (restoreFunctionsOfFile(file)) {
+                    processed = logProgress(processed, numAllFiles, logDiv);
+                    continue;
+                }
+                ProcessedSrcMlFile processedFile = streaming
+                        ? processFileStreaming(file, streamingReader)
+                        : processFile(file);
+                internProcessedFile(processedFile);
+                processed = logProgress(processed, numAllFiles, logDiv);
+            }
+        } else {
+            final ThreadLocal<StreamingSrcMlReader> workerStreamingReaders =
+                    ThreadLocal.withInitial(StreamingSrcMlReader::new);
+            final ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+            try {
+                List<Future<ProcessedSrcMlFile>> results = new ArrayList<>(numAllFiles);
+                for (File file : allFiles) {
+                    if ((cache != null) && cache.IsRestored(file)) {
+                        results.add(null);
+                        continue;
+                    }
+                    results.add(executor.submit(() -> streaming
+                            ? processFileStreaming(file, workerStreamingReaders.get())
+                            : processFile(file)));
+                }
+                Iterator<File> fileIt = allFiles.iterator();
+                for (Future<ProcessedSrcMlFile> result : results) {
+                    File file = fileIt.next();
+                    if (result == null) {
+                        restoreFunctionsOfFile(file);
+                    } else {
+                        internProcessedFile(ParallelTasks.await(result));
+                    }
+                    processed = logProgress(processed, numAllFiles, logDiv);
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        LOG.info("Parsed all " + processed + " SrcML file(s).");
+    }
+
+    private boolean restoreFunctionsOfFile(File file) {
+        if (cache == null) return false;
+        return ctx.getReport().time(PHASE_INTERN_FUNCTIONS, PHASE_SRCML_READ, () -> cache.RestoreFunctionsOfFile(file));
+    }
+
+    private static int logProgress(int processed, int numAllFiles, int logDiv) {
+        if ((++processed) % logDiv == 0) {
+            int percent = Math.round((100f * processed) / numAllFiles);
+            LOG.info("Parsed SrcML file " + processed + "/" + numAllFiles
+                    + " (" + percent + "%) (" + (numAllFiles - processed) + " to go)");
+        }
+        return processed;
+    }
 
-            Document document = readSrcmlFile(filePath);
-            DocWithFileAndCppDirectives extDoc = new DocWithFileAndCppDirectives(file, fp, document, ctx);
+    /**
+     * Parses a single srcML file and resolves the feature references located in it.  Only the given file and its
+     * functions are modified, which makes it safe to process several files concurrently.  The functions are not yet
+     * interned into the context, see {@link #internProcessedFile(ProcessedSrcMlFile)}.
+     *
+     * @param file the file to process
+     * @return the functions parsed from the file
+     */
+    private ProcessedSrcMlFile processFile(File file) {
+        final FilePath fp = ctx.internFilePath(file.filePath);
 
-            internAllFunctionsInFile(file, document);
+        final Document document;
+        final Method[] functions;
+        final FunctionLineIndex functionsInFile;
+        final RunReport.Timer parseTimer = ctx.getReport().time(PHASE_PARSE, PHASE_SRCML_READ);
+        try {
+            document = readSrcmlFile(reader, fp.actualPath, mapThreshold);
+            functions = parseAllFunctionsInFile(document, fp);
+            functionsInFile = new FunctionLineIndex(functions);
+        } finally {
+            parseTimer.close();
+        }
+
+        ctx.getReport().time(PHASE_RESOLVE_REFERENCES, PHASE_SRCML_READ, () -> {
+            DocWithFileAndCppDirectives extDoc = new DocWithFileAndCppDirectives(file, fp, document, functionsInFile);
             processFeatureLocationsInFile(extDoc);
+        });
+
+        return new ProcessedSrcMlFile(fp, functions);
+    }
 
-            if ((++processed) % logDiv == 0) {
-                int percent = Math.round((100f * processed) / numAllFiles);
-                LOG.info("Parsed SrcML file " + processed + "/" + numAllFiles
-                        + " (" + percent + "%) (" + (numAllFiles - processed) + " to go)");
+    /**
+     * Same as {@link #processFile(File)}, but reads the file with a {@link StreamingSrcMlReader}.
+     *
+     * @param file            the file to process
+     * @param streamingReader the reader to use; must not be shared with other threads
+     * @return the functions parsed from the file
+     */
+    private ProcessedSrcMlFile processFileStreaming(File file, StreamingSrcMlReader streamingReader) {
+        final FilePath fp = ctx.internFilePath(file.filePath);
+        final List<FeatureReference> references = ctx.featureExpressions.GetReferencesInFile(fp.actualPath);
+
+        // The directive of a reference is on line start + 1 and we look at nodes up to line end + 1 (see
+        // DocWithFileAndCppDirectives).
+        Map<Integer, Integer> maxEndLinesByDirectiveLine = new HashMap<>();
+        for (FeatureReference ref : references) {
+            maxEndLinesByDirectiveLine.merge(ref.GetStart() + 1, ref.GetEnd() + 1, Math::max);
+        }
+
+        final List<Method> functions = new ArrayList<>();
+        final Map<Integer, StreamingSrcMlReader.CppDirectiveSite> sitesByLine;
+        final Method[] result;
+        final FunctionLineIndex functionsInFile;
+        final RunReport.Timer parseTimer = ctx.getReport().time(PHASE_PARSE, PHASE_SRCML_READ);
+        try {
+            try (InputStream is = FileUtils.openForReading(Paths.get(fp.actualPath), mapThreshold)) {
+                sitesByLine = streamingReader.read(is, maxEndLinesByDirectiveLine, (functionIndex, funcNode) -> {
+                    ParsedFunctionSignature signature = parseFunctionSignature(funcNode, fp);
+                    Method function = parseFunctionUsingSignature(funcNode, fp, signature);
+                    while (functions.size() <= functionIndex) {
+                        functions.add(null);
+                    }
+                    functions.set(functionIndex, function);
+                });
+            } catch (IOException e) {
+                throw new RuntimeException("I/O exception reading stream of file " + fp.actualPath, e);
+            } catch (XMLStreamException e) {
+                throw new RuntimeException("Cannot parse file " + fp.actualPath, e);
             }
+
+            result = functions.toArray(new Method[functions.size()]);
+            postProcessParsedFunctions(result, fp);
+
+            functionsInFile = new FunctionLineIndex(result);
+        } finally {
+            parseTimer.close();
         }
 
-        LOG.info("Parsed all " + processed + " SrcML file(s).");
+        if (references.isEmpty()) {
+            LOG.debug("No feature locations in " + fp.pathKey);
+        } else {
+            ctx.getReport().time(PHASE_RESOLVE_REFERENCES, PHASE_SRCML_READ, () -> {
+                for (FeatureReference ref : references) {
+                    processFeatureReferenceStreaming(ref, file, sitesByLine, functionsInFile);
+                }
+            });
+            LOG.debug("Done processing feature locations in " + fp.pathKey);
+        }
+
+        return new ProcessedSrcMlFile(fp, result);
+    }
+
+    /**
+     * Counterpart of {@link DocWithFileAndCppDirectives#processFeatureReference(FeatureReference)} for files read by
+     * the {@link StreamingSrcMlReader}
+     */
+    private static void processFeatureReferenceStreaming(FeatureReference featureRef, File file,
+                                                         Map<Integer, StreamingSrcMlReader.CppDirectiveSite> sitesByLine,
+                                                         FunctionLineIndex functionsInFile) {
+        file.AddFeatureConstant(featureRef);
+        StreamingSrcMlReader.CppDirectiveSite site = sitesByLine.get(featureRef.GetStart() + 1);
+        if (site == null) {
+            LOG.warn("Failed to find the CPP directive for feature constant reference " + featureRef);
+            return;
+        }
+
+        // calculate the granularity from the nodes up to end1 of the annotation
+        final int featureRefEnd1 = featureRef.GetEnd() + 1;
+        for (StreamingSrcMlReader.AnnotatedNode node : site.annotatedNodes) {
+            if (node.lineNumberAsIs > featureRefEnd1) break;
+            featureRef.SetGranularity(node.nodeName, node.parentNodeName);
+            featureRef.SetDiscipline(node.nodeName, node.hasElseChild);
+        }
+
+        // assign this location to its corresponding method
+        assignFeatureConstantReferenceToMethod(featureRef, functionsInFile);
+    }
+
+    /**
+     * Assign feature constant reference to the method whose lines contain the reference's directive.
+     *
+     * @param featureRef      the feature constant reference
+     * @param functionsInFile the functions of the file of the reference
+     */
+    private static void assignFeatureConstantReferenceToMethod(FeatureReference featureRef,
+                                                               FunctionLineIndex functionsInFile) {
+        // The directive is on line start + 1 of the srcML file, i.e., on line start of the source file.
+        final Method function = functionsInFile.FindEnclosingFunction(featureRef.GetStart());
+        if (function == null) {
+            LOG.debug("Feature reference is not part of a function definition. Treated as a top-level reference: "
+                    + featureRef);
+            return;
+        }
+
+        // add location to the function
+        function.AddFeatureConstant(featureRef);
+    }
+
+    private void internProcessedFile(ProcessedSrcMlFile processedFile) {
+        ctx.getReport().time(PHASE_INTERN_FUNCTIONS, PHASE_SRCML_READ,
+                () -> internNewlyReadFunctions(processedFile.functions, processedFile.fp));
+    }
+
+    private static class ProcessedSrcMlFile {
+        private final FilePath fp;
+        private final Method[] functions;
+
+        public ProcessedSrcMlFile(FilePath fp, Method[] functions) {
+            this.fp = fp;
+            this.functions = functions;
+        }
     }
 
     private static class DocWithFileAndCppDirectives {
         private final Document doc;
         private final File file;
         private final FilePath fp;
-        private final Context ctx;
+        private final FunctionLineIndex functions;
         private Map<Integer, Node> cppDirectivesByLineNumberAsIs = null;
 
-        public DocWithFileAndCppDirectives(File file, FilePath fp, Document doc, Context ctx) {
+        public DocWithFileAndCppDirectives(File file, FilePath fp, Document doc, FunctionLineIndex functions) {
             this.file = file;
             this.fp = fp;
             this.doc = doc;
-            this.ctx = ctx;
+            this.functions = functions;
         }
 
         private static Map<Integer, Node> getCppDirectivesByLineNumberAsIs(Document doc) {
@@ -130,7 +402,7 @@ public class SrcMlFolderReader {
                 // from start1 to end1 of the annotation
                 calculateGranularityOfFeatureConstantReference(featureRef, correspondingCppDirective);
                 // assign this location to its corresponding method
-                assignFeatureConstantReferenceToMethod(featureRef, correspondingCppDirective);
+                assignFeatureConstantReferenceToMethod(featureRef, functions);
             } else {
                 LOG.warn("Failed to find the CPP directive for feature constant reference " + featureRef);
             }
@@ -139,7 +411,7 @@ public class SrcMlFolderReader {
         private Node findCppDirectiveForFeatureLocation(FeatureReference featureRef) {
             // go through each directive and find the directive of the specific
             // location by using the start1 position
-            final int featureReferenceStart1 = featureRef.start + 1;
+            final int featureReferenceStart1 = featureRef.GetStart() + 1;
             Node directive = cppDirectivesByLineNumberAsIs.get(featureReferenceStart1);
             if (directive != null) {
                 // parent contains the if/endif values
@@ -153,7 +425,7 @@ public class SrcMlFolderReader {
             // check sibling nodes until a granularity defining tag is found or
             // until the end1 of the annotation
             Node sibling = current;
-            final int featureRefEnd1 = featureRef.end + 1;
+            final int featureRefEnd1 = featureRef.GetEnd() + 1;
             while (sibling != null && (PositionalXmlReader.getElementLineNumberAsIs((Element) sibling) <= featureRefEnd1)) {
                 // set granularity and try to assign a discipline
                 featureRef.SetGranularity(sibling);
@@ -165,50 +437,13 @@ public class SrcMlFolderReader {
             }
         }
 
-        /**
-         * Assign feature constant reference to method.
-         *
-         * @param featureRef     the feature constant reference
-         * @param annotationNode the annotation node where the reference occurred
-         */
-        private void assignFeatureConstantReferenceToMethod(FeatureReference featureRef, Node annotationNode) {
-            // check parent nodes of the annotation until it is of type
-            // function/unit
-            Node funcNode = findParentFunctionNode(annotationNode);
-            if (funcNode == null) {
-                LOG.debug("Feature reference is not part of a function definition. Treated as a top-level reference: "
-                        + featureRef);
-                return;
-            }
-
-            // get or create function
-            final Method function = findFunctionUsingNode(funcNode);
-            final int existingFunctionStartLoc = function.start1;
-            final int actualFunctionStartLoc = FunctionSignatureParser.parseFunctionStartLoc(funcNode);
-
-            if (existingFunctionStartLoc != actualFunctionStartLoc) {
-                LOG.info("Ignoring feature reference " + featureRef + ". It refers to an alternative definition of the same function within the same file. We cannot currently handle this case. Existing function is " + function);
-                return;
-            }
-
-            // add location to the function
-            function.AddFeatureConstant(featureRef);
-        }
-
-        private Method findFunctionUsingNode(Node funcNode) {
-            ParsedFunctionSignature functionSignature = parseFunctionSignature(funcNode, fp);
-            Method function = ctx.functions.FindFunction(fp, functionSignature);
-            return function;
-        }
     }
 
     private void processFeatureLocationsInFile(DocWithFileAndCppDirectives extDoc) {
         // go through each feature location and calculate granularity
-        GroupingListMap<String, FeatureReference> featureReferencesByFilePath = groupFeatureReferencesByFilePath();
-
         final String filePath = extDoc.fp.actualPath;
-        final List<FeatureReference> references = featureReferencesByFilePath.get(filePath);
-        if (references == null) {
+        final List<FeatureReference> references = ctx.featureExpressions.GetReferencesInFile(filePath);
+        if (references.isEmpty()) {
             LOG.debug("No feature locations in " + extDoc.fp.pathKey);
             return;
         }
@@ -220,25 +455,29 @@ public class SrcMlFolderReader {
         LOG.debug("Done processing feature locations in " + extDoc.fp.pathKey);
     }
 
-    private GroupingListMap<String, FeatureReference> groupFeatureReferencesByFilePath() {
-        GroupingListMap<String, FeatureReference> featureReferencesByFilePath = new GroupingListMap<>();
-        for (Feature feat : ctx.featureExpressions.GetFeatures()) {
-            for (FeatureReference ref : feat.getReferences()) {
-                featureReferencesByFilePath.put(ref.filePath, ref);
-            }
-        }
-        return featureReferencesByFilePath;
+    public Document readSrcmlFile(String filePath) {
+        return readSrcmlFile(reader, filePath, mapThreshold);
     }
 
-    public Document readSrcmlFile(String filePath) {
-        try (InputStream inputStream = new ByteArrayInputStream(getFileBytes(filePath))) {
-            return readSrcmlFile(inputStream, filePath);
+    private static Document readSrcmlFile(PositionalXmlReader reader, String filePath, long mapThreshold) {
+        final InputStream inputStream;
+        try {
+            inputStream = FileUtils.openForReading(Paths.get(filePath), mapThreshold);
+        } catch (IOException e) {
+            throw new RuntimeException("I/O exception reading contents of file " + filePath, e);
+        }
+        try (InputStream is = inputStream) {
+            return readSrcmlFile(reader, is, filePath);
         } catch (IOException e) {
             throw new RuntimeException("I/O exception closing srcml file " + filePath, e);
         }
     }
 
     public Document readSrcmlFile(InputStream fileInput, String filePath) {
+        return readSrcmlFile(reader, fileInput, filePath);
+    }
+
+    private static Document readSrcmlFile(PositionalXmlReader reader, InputStream fileInput, String filePath) {
         try {
             return reader.readXML(fileInput);
         } catch (IOException e) {
@@ -248,32 +487,6 @@ public class SrcMlFolderReader {
         }
     }
 
-    /**
-     * Gets the file contents as a byte stream.
-     *
-     * @param filePath the file path
-     * @return the bytes in the file
-     */
-    private static byte[] getFileBytes(String filePath) {
-        try {
-            return Files.readAllBytes(Paths.get(filePath));
-        } catch (IOException e) {
-            throw new RuntimeException("I/O exception reading contents of file " + filePath, e);
-        }
-    }
-
-    private static Node findParentFunctionNode(Node annotationNode) {
-        Node parent = annotationNode.getParentNode();
-        while (!parent.getNodeName().equals("function")) {
-            // if parent node is unit, it does not belong to a function
-            if (parent.getNodeName().equals("unit")) {
-                return null;
-            }
-            parent = parent.getParentNode();
-        }
-        return parent;
-    }
-
     private Method parseFunction(Node funcNode, FilePath fp) {
         ParsedFunctionSignature functionSignature = parseFunctionSignature(funcNode, fp);
         return parseFunctionUsingSignature(funcNode, fp, functionSignature);
@@ -306,10 +519,49 @@ public class SrcMlFolderReader {
      * @return the method parsed from this Node, never <code>null</code>
      */
     private Method parseFunctionUsingSignature(Node funcNode, FilePath filePath, ParsedFunctionSignature functionSignature) {
-        String textContent = funcNode.getTextContent();
-        int len = countLines(textContent);
+        int len = countLines((Element) funcNode);
         return methodFactory.create(ctx, functionSignature.signature, filePath.actualPath, functionSignature.cStartLoc, len,
-                functionSignature.originalLinesOfCode, textContent);
+                functionSignature.originalLinesOfCode);
+    }
+
+    /**
+     * Counts the lines of the text content of an element, with the same result as
+     * <code>countLines(element.getTextContent())</code>, but without building the text.  The line breaks of the text
+     * content are the line breaks between the element's start tag and end tag, because srcML never breaks lines inside
+     * a tag.  Their number is the difference of the line numbers of the tags recorded by the XML reader.
+     *
+     * @param element a <code>function</code> element read by {@link PositionalXmlReader} or
+     *                {@link StreamingSrcMlReader}
+     * @return number of lines of the element's text content
+     */
+    static int countLines(Element element) {
+        final int lastChar = lastTextChar(element);
+        if (lastChar == -1) return 0;
+        final int lineBreaks = PositionalXmlReader.getElementEndLineNumberAsIs(element)
+                - PositionalXmlReader.getElementLineNumberAsIs(element);
+        return (lastChar == '\n') ? lineBreaks : lineBreaks + 1;
+    }
+
+    /**
+     * @return the last character of the text content of the node, or -1 if the text content is empty
+     */
+    private static int lastTextChar(Node node) {
+        for (Node child = node.getLastChild(); child != null; child = child.getPreviousSibling()) {
+            switch (child.getNodeType()) {
+                case Node.TEXT_NODE:
+                case Node.CDATA_SECTION_NODE: {
+                    String text = child.getNodeValue();
+                    if (!text.isEmpty()) return text.charAt(text.length() - 1);
+                    break;
+                }
+                case Node.ELEMENT_NODE: {
+                    int c = lastTextChar(child);
+                    if (c != -1) return c;
+                    break;
+                }
+            }
+        }
+        return -1;
     }
 
     public void internAllFunctionsInFile(File file, Document doc) {
@@ -333,12 +585,16 @@ public class SrcMlFolderReader {
             Method func = parseFunction(funcNode, fp);
             result[i] = func;
         }
-        LOG.debug("Found " + numFunctions + " functions in `" + fp.pathKey + "'.");
-        adjustImprobableFunctionEndPositions(result);
-        adjustDuplicateFunctionSignatures(result);
+        postProcessParsedFunctions(result, fp);
         return result;
     }
 
+    private void postProcessParsedFunctions(Method[] functionsInFile, FilePath fp) {
+        LOG.debug("Found " + functionsInFile.length + " functions in `" + fp.pathKey + "'.");
+        adjustImprobableFunctionEndPositions(functionsInFile);
+        adjustDuplicateFunctionSignatures(functionsInFile);
+    }
+
     private void internNewlyReadFunctions(Method[] functions, FilePath fp) {
         for (Method function : functions) {
 //            Method existingFunction = ctx.functions.FindFunction(fileDesignator, function.functionSignatureXml);
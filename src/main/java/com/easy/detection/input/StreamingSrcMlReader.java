@@ -0,0 +1,285 @@
+package com.easy.detection.input;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>Reads a srcML file in a single pass using StAX, without building a DOM for the whole file.  This is an
+ * alternative to {@link PositionalXmlReader} for large srcML files.</p>
+ * <p>
+ * <p>Only the subtrees of <code>function</code> elements are materialized as DOM nodes (with the same line number
+ * information as produced by {@link PositionalXmlReader}), one function at a time, and passed to a
+ * {@link FunctionNodeHandler}.  For the <code>cpp:directive</code> elements on requested lines, the reader records the
+ * nodes that {@link SrcMlFolderReader} would otherwise visit in the DOM to determine granularity and discipline of a
+ * feature reference, see {@link CppDirectiveSite}.</p>
+ * <p>
+ * <p>Instances are not thread-safe.</p>
+ */
+public class StreamingSrcMlReader {
+    /**
+     * Receives the DOM subtree of each <code>function</code> element, once the end of the element has been read.
+     */
+    public interface FunctionNodeHandler {
+        /**
+         * @param functionIndex index of the function among all <code>function</code> elements of the file, in
+         *                      document order (i.e., the order of their start tags)
+         * @param functionNode  the function node, which is not part of any document tree
+         */
+        void handleFunctionNode(int functionIndex, Element functionNode);
+    }
+
+    /**
+     * An element that follows a <code>cpp:directive</code> on the same nesting level as the directive's parent node
+     * (including the directive's parent node itself).
+     */
+    public static class AnnotatedNode {
+        public final String nodeName;
+        public final String parentNodeName;
+        /**
+         * Line number in the XML file, as reported by the XML parser
+         */
+        public final int lineNumberAsIs;
+        public final boolean hasElseChild;
+
+        AnnotatedNode(String nodeName, String parentNodeName, int lineNumberAsIs, boolean hasElseChild) {
+            this.nodeName = nodeName;
+            this.parentNodeName = parentNodeName;
+            this.lineNumberAsIs = lineNumberAsIs;
+            this.hasElseChild = hasElseChild;
+        }
+    }
+
+    /**
+     * Everything we need to know about a <code>cpp:directive</code> element in order to process the feature references
+     * that start on its line.
+     */
+    public static class CppDirectiveSite {
+        /**
+         * Line number of the <code>cpp:directive</code> element in the XML file, as reported by the XML parser
+         */
+        public final int lineNumberAsIs;
+        /**
+         * The parent node of the directive and its following siblings, in document order, up to the last one that
+         * starts at or before the requested end line
+         */
+        public final List<AnnotatedNode> annotatedNodes = new ArrayList<>();
+        private final int maxEndLineNumberAsIs;
+
+        CppDirectiveSite(int lineNumberAsIs, int maxEndLineNumberAsIs) {
+            this.lineNumberAsIs = lineNumberAsIs;
+            this.maxEndLineNumberAsIs = maxEndLineNumberAsIs;
+        }
+    }
+
+    private static class Frame {
+        final String name;
+        final int lineNumberAsIs;
+        final Element element;
+        final int functionIndex;
+        boolean hasElseChild = false;
+        /**
+         * Directive sites for which this element is an annotated node
+         */
+        List<CppDirectiveSite> observingSites = null;
+        /**
+         * Directive sites for which the following child elements of this element are annotated nodes
+         */
+        List<CppDirectiveSite> trackingSites = null;
+
+        Frame(String name, int lineNumberAsIs, Element element, int functionIndex) {
+            this.name = name;
+            this.lineNumberAsIs = lineNumberAsIs;
+            this.element = element;
+            this.functionIndex = functionIndex;
+        }
+
+        void addObservingSite(CppDirectiveSite site) {
+            if (observingSites == null) observingSites = new ArrayList<>(1);
+            observingSites.add(site);
+        }
+
+        void addTrackingSite(CppDirectiveSite site) {
+            if (trackingSites == null) trackingSites = new ArrayList<>(1);
+            trackingSites.add(site);
+        }
+    }
+
+    private final XMLInputFactory inputFactory;
+    private final DocumentBuilder docBuilder;
+
+    private final List<Frame> stack = new ArrayList<>();
+    private final StringBuilder textBuffer = new StringBuilder();
+
+    public StreamingSrcMlReader() {
+        inputFactory = XMLInputFactory.newInstance();
+        inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        try {
+            docBuilder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+        } catch (ParserConfigurationException e) {
+            throw new RuntimeException("Can't create DOM builder.", e);
+        }
+    }
+
+    /**
+     * Reads a srcML file.
+     *
+     * @param is                        the contents of the srcML file
+     * @param maxEndLinesByDirectiveLine For each line (as reported by the XML parser) whose <code>cpp:directive</code>
+     *                                  is of interest, the last line (again, as reported by the XML parser) up to which
+     *                                  annotated nodes should be recorded
+     * @param functionNodeHandler       receives the <code>function</code> nodes of the file
+     * @return the directive sites of the requested lines, by line number; lines without a directive are missing
+     * @throws XMLStreamException if the file is not well-formed
+     */
+    public Map<Integer, CppDirectiveSite> read(InputStream is, Map<Integer, Integer> maxEndLinesByDirectiveLine,
+                                               FunctionNodeHandler functionNodeHandler) throws XMLStreamException {
+        final Map<Integer, CppDirectiveSite> sitesByLine = new HashMap<>();
+        int numFunctions = 0;
+
+        XMLStreamReader xml = inputFactory.createXMLStreamReader(is);
+        try {
+            while (xml.hasNext()) {
+                switch (xml.next()) {
+                    case XMLStreamConstants.START_ELEMENT: {
+                        flushText();
+                        final String name = qualifiedName(xml.getPrefix(), xml.getLocalName());
+                        final int line = xml.getLocation().getLineNumber();
+                        final Frame parent = peek(0);
+                        if ((parent != null) && name.equals("else")) parent.hasElseChild = true;
+                        final boolean isFunction = name.equals("function");
+                        Element element = null;
+                        if ((parent != null) && (parent.element != null)) {
+                            element = createElement(parent.element.getOwnerDocument(), xml, name, line);
+                        } else if (isFunction) {
+                            // The document keeps all nodes that carry user data (i.e., line numbers) reachable, so
+                            // each function gets its own document, which can be discarded along with the function.
+                            element = createElement(docBuilder.newDocument(), xml, name, line);
+                        }
+                        Frame frame = new Frame(name, line, element, isFunction ? numFunctions++ : -1);
+                        if ((parent != null) && (parent.trackingSites != null)) {
+                            trackNextSibling(parent, frame);
+                        }
+                        if (name.equals("cpp:directive")) {
+                            Integer maxEnd = maxEndLinesByDirectiveLine.get(line);
+                            if (maxEnd != null) {
+                                // Like the DOM-based lookup, a later directive on the same line wins.
+                                sitesByLine.put(line, newDirectiveSite(line, maxEnd));
+                            }
+                        }
+                        stack.add(frame);
+                        break;
+                    }
+                    case XMLStreamConstants.END_ELEMENT: {
+                        flushText();
+                        final Frame frame = stack.remove(stack.size() - 1);
+                        final Frame parent = peek(0);
+                        if (frame.observingSites != null) {
+                            final String parentName = (parent == null) ? "#document" : parent.name;
+                            AnnotatedNode node = new AnnotatedNode(frame.name, parentName, frame.lineNumberAsIs,
+                                    frame.hasElseChild);
+                            for (CppDirectiveSite site : frame.observingSites) {
+                                site.annotatedNodes.add(node);
+                            }
+                        }
+                        if (frame.element != null) {
+                            if ((parent != null) && (parent.element != null)) {
+                                parent.element.appendChild(frame.element);
+                            }
+                            if (frame.functionIndex >= 0) {
+                                frame.element.setUserData(PositionalXmlReader.END_LINE_NUMBER_KEY_NAME,
+                                        xml.getLocation().getLineNumber(), null);
+                                functionNodeHandler.handleFunctionNode(frame.functionIndex, frame.element);
+                            }
+                        }
+                        break;
+                    }
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.CDATA:
+                    case XMLStreamConstants.SPACE: {
+                        final Frame current = peek(0);
+                        if ((current != null) && (current.element != null)) {
+                            textBuffer.append(xml.getTextCharacters(), xml.getTextStart(), xml.getTextLength());
+                        }
+                        break;
+                    }
+                }
+            }
+        } finally {
+            stack.clear();
+            textBuffer.setLength(0);
+            xml.close();
+        }
+
+        return sitesByLine;
+    }
+
+    /**
+     * Registers a new directive site for the <code>cpp:directive</code> element that is about to be pushed onto the
+     * stack.  The directive's parent (e.g., <code>cpp:if</code>) is the first annotated node, followed by its
+     * siblings.
+     */
+    private CppDirectiveSite newDirectiveSite(int line, int maxEnd) {
+        final Frame directiveParent = peek(0);
+        final Frame grandParent = peek(1);
+        CppDirectiveSite site = new CppDirectiveSite(line, maxEnd);
+        if ((directiveParent != null) && (directiveParent.lineNumberAsIs <= maxEnd)) {
+            directiveParent.addObservingSite(site);
+            if (grandParent != null) grandParent.addTrackingSite(site);
+        }
+        return site;
+    }
+
+    private void trackNextSibling(Frame parent, Frame sibling) {
+        for (Iterator<CppDirectiveSite> it = parent.trackingSites.iterator(); it.hasNext(); ) {
+            CppDirectiveSite site = it.next();
+            if (sibling.lineNumberAsIs <= site.maxEndLineNumberAsIs) {
+                sibling.addObservingSite(site);
+            } else {
+                // Siblings are visited in order, so once we are past the end line, we are done with this site.
+                it.remove();
+            }
+        }
+    }
+
+    private Frame peek(int depth) {
+        final int ix = stack.size() - 1 - depth;
+        return (ix >= 0) ? stack.get(ix) : null;
+    }
+
+    private void flushText() {
+        if (textBuffer.length() > 0) {
+            final Element current = peek(0).element;
+            current.appendChild(current.getOwnerDocument().createTextNode(textBuffer.toString()));
+            textBuffer.setLength(0);
+        }
+    }
+
+    private static Element createElement(Document doc, XMLStreamReader xml, String name, int line) {
+        final Element el = doc.createElement(name);
+        for (int i = 0; i < xml.getAttributeCount(); i++) {
+            el.setAttribute(qualifiedName(xml.getAttributePrefix(i), xml.getAttributeLocalName(i)),
+                    xml.getAttributeValue(i));
+        }
+        el.setUserData(PositionalXmlReader.LINE_NUMBER_KEY_NAME, line, null);
+        return el;
+    }
+
+    private static String qualifiedName(String prefix, String localName) {
+        if ((prefix == null) || prefix.isEmpty()) return localName;
+        return prefix + ":" + localName;
+    }
+}
@@ -0,0 +1,493 @@
+package com.easy.detection.logging;
+
+import com.easy.util.FileUtils;
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Records the resource usage of the phases of a Skunk run (wall time, CPU time, allocated bytes and peak heap usage)
+ * together with some counts (files, functions, feature references, ...) and writes them as a JSON report.
+ * <p>
+ * A phase is timed by passing it to {@link #time(String, Runnable)} or {@link #time(String, Supplier)}:
+ * <pre>
+ * report.time("cppStatsRead", () -&gt; {
+ *     ...
+ * });
+ * </pre>
+ * Phases that do not fit into a lambda can be wrapped in a {@link Timer} instead, which has to be closed at the end of
+ * the phase.
+ * CPU time and allocated bytes are those of the thread that runs the timer.  Phases that are timed repeatedly, e.g.,
+ * once per file, or on several threads at once accumulate their measurements.  Peak heap usage is the maximum heap
+ * usage since the outermost running timer was started.  Timers may be used concurrently.
+ * </p>
+ */
+public class RunReport {
+    private static final Logger LOG = Logger.getLogger(RunReport.class);
+
+    private static final ThreadMXBean THREAD_BEAN = ManagementFactory.getThreadMXBean();
+    private static final com.sun.management.ThreadMXBean ALLOCATION_BEAN = allocationBean();
+    private static final boolean CPU_TIME_SUPPORTED = cpuTimeSupported();
+
+    private final String name;
+    private final String startTime;
+    private final long startNanos;
+    /**
+     * Number of currently running timers of this report and all its sub-reports.  Shared with the sub-reports.
+     */
+    private final AtomicInteger runningTimers;
+    private final Map<String, Object> properties = new LinkedHashMap<>();
+    private final Map<String, Long> counts = new LinkedHashMap<>();
+    private final Map<String, PhaseStatistics> phases = new LinkedHashMap<>();
+    private final Map<String, RunReport> configReports = new LinkedHashMap<>();
+
+    public RunReport() {
+        this(null, new AtomicInteger());
+    }
+
+    private RunReport(String name, AtomicInteger runningTimers) {
+        this.name = name;
+        this.startTime = LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+        this.startNanos = System.nanoTime();
+        this.runningTimers = runningTimers;
+    }
+
+    /**
+     * Measurements of a single phase
+     */
+    public static class PhaseStatistics {
+        public final String name;
+        /**
+         * Name of the phase during which this phase runs, or <code>null</code> for top-level phases
+         */
+        public final String nestedIn;
+        private int invocations;
+        private long wallTimeNanos;
+        private long cpuTimeNanos;
+        private long allocatedBytes;
+        private long peakHeapBytes;
+
+        private PhaseStatistics(String name, String nestedIn) {
+            this.name = name;
+            this.nestedIn = nestedIn;
+        }
+
+        private synchronized void add(long wallTimeNanos, long cpuTimeNanos, long allocatedBytes, long peakHeapBytes) {
+            this.invocations++;
+            this.wallTimeNanos += wallTimeNanos;
+            this.cpuTimeNanos += cpuTimeNanos;
+            this.allocatedBytes += allocatedBytes;
+            this.peakHeapBytes = Math.max(this.peakHeapBytes, peakHeapBytes);
+        }
+
+        public synchronized int getInvocations() {
+            return invocations;
+        }
+
+        public synchronized long getWallTimeNanos() {
+            return wallTimeNanos;
+        }
+
+        /**
+         * @return the CPU time, or -1 if the JVM cannot measure it
+         */
+        public synchronized long getCpuTimeNanos() {
+            return CPU_TIME_SUPPORTED ? cpuTimeNanos : -1;
+        }
+
+        /**
+         * @return the number of bytes allocated, or -1 if the JVM cannot measure it
+         */
+        public synchronized long getAllocatedBytes() {
+            return (ALLOCATION_BEAN != null) ? allocatedBytes : -1;
+        }
+
+        public synchronized long getPeakHeapBytes() {
+            return peakHeapBytes;
+        }
+
+        @Override
+        public synchronized String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(name).append(": ").append(millis(wallTimeNanos)).append(" ms");
+            if (CPU_TIME_SUPPORTED) sb.append(", ").append(millis(cpuTimeNanos)).append(" ms CPU");
+            if (ALLOCATION_BEAN != null) sb.append(", ").append(megabytes(allocatedBytes)).append(" MB allocated");
+            sb.append(", ").append(megabytes(peakHeapBytes)).append(" MB peak heap");
+            if (invocations > 1) sb.append(" (").append(invocations).append(" invocations)");
+            return sb.toString();
+        }
+    }
+
+    /**
+     * Measures one execution of a phase.  The measurement is added to the report when the timer is closed.
+     */
+    public class Timer implements AutoCloseable {
+        private final PhaseStatistics phase;
+        private final long threadId = Thread.currentThread().getId();
+        private final long startWallTime;
+        private final long startCpuTime;
+        private final long startAllocatedBytes;
+        private boolean closed = false;
+
+        private Timer(PhaseStatistics phase) {
+            this.phase = phase;
+            if (runningTimers.getAndIncrement() == 0) {
+                resetPeakHeapUsage();
+            }
+            this.startAllocatedBytes = currentThreadAllocatedBytes();
+            this.startCpuTime = currentThreadCpuTime();
+            this.startWallTime = System.nanoTime();
+        }
+
+        @Override
+        public void close() {
+            if (closed) return;
+            // Checked first, so that the timer can still be closed by the right thread.  Otherwise, the running timers
+            // would never drop to zero again and the peak heap usage of all later phases would be wrong.
+            if (Thread.currentThread().getId() != threadId) {
+                throw new IllegalStateException("Timer for phase " + phase.name
+                        + " must be closed by the thread that started it.");
+            }
+            closed = true;
+            long wallTime = System.nanoTime() - startWallTime;
+            long cpuTime = currentThreadCpuTime() - startCpuTime;
+            long allocatedBytes = currentThreadAllocatedBytes() - startAllocatedBytes;
+            long peakHeap = peakHeapUsage();
+            runningTimers.decrementAndGet();
+            phase.add(wallTime, cpuTime, allocatedBytes, peakHeap);
+            if (phase.nestedIn == null) {
+                LOG.debug("Phase " + phaseLabel() + " done");
+            }
+        }
+
+        private String phaseLabel() {
+            return (name == null) ? phase.name : phase.name + " (" + name + ")";
+        }
+    }
+
+    /**
+     * Starts timing a top-level phase
+     *
+     * @param phase the name of the phase
+     * @return the running timer, which must be closed at the end of the phase by the same thread
+     */
+    public Timer time(String phase) {
+        return time(phase, (String) null);
+    }
+
+    /**
+     * Starts timing a phase that runs as part of another phase, e.g., on worker threads.
+     *
+     * @param phase    the name of the phase
+     * @param nestedIn the name of the enclosing phase
+     * @return the running timer, which must be closed at the end of the phase by the same thread
+     */
+    public Timer time(String phase, String nestedIn) {
+        final PhaseStatistics stats;
+        synchronized (phases) {
+            stats = phases.computeIfAbsent(phase, p -> new PhaseStatistics(p, nestedIn));
+        }
+        return new Timer(stats);
+    }
+
+    /**
+     * Runs a top-level phase and times it
+     *
+     * @param phase  the name of the phase
+     * @param action the phase
+     */
+    public void time(String phase, Runnable action) {
+        time(phase, null, action);
+    }
+
+    /**
+     * Runs a top-level phase and times it
+     *
+     * @param phase  the name of the phase
+     * @param action the phase
+     * @return the result of the phase
+     */
+    public <T> T time(String phase, Supplier<T> action) {
+        return time(phase, null, action);
+    }
+
+    /**
+     * Runs a phase that is part of another phase and times it
+     *
+     * @param phase    the name of the phase
+     * @param nestedIn the name of the enclosing phase
+     * @param action   the phase
+     */
+    public void time(String phase, String nestedIn, Runnable action) {
+        time(phase, nestedIn, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * Runs a phase that is part of another phase and times it
+     *
+     * @param phase    the name of the phase
+     * @param nestedIn the name of the enclosing phase
+     * @param action   the phase
+     * @return the result of the phase
+     */
+    public <T> T time(String phase, String nestedIn, Supplier<T> action) {
+        Timer timer = time(phase, nestedIn);
+        try {
+            return action.get();
+        } finally {
+            timer.close();
+        }
+    }
+
+    /**
+     * Returns the sub-report for the detection with the given configuration.  It is created on first access.
+     *
+     * @param configName the name of the code smell configuration
+     * @return the report for the configuration
+     */
+    public synchronized RunReport forConfig(String configName) {
+        return configReports.computeIfAbsent(configName, n -> new RunReport(n, runningTimers));
+    }
+
+    /**
+     * Records a count, such as the number of files.  An existing count with the same name is replaced.
+     */
+    public synchronized void setCount(String name, long value) {
+        counts.put(name, value);
+    }
+
+    /**
+     * Records a general property of the run, such as the input folder.  Values are written as JSON strings, except
+     * for numbers and booleans.
+     */
+    public synchronized void setProperty(String name, Object value) {
+        properties.put(name, value);
+    }
+
+    public List<PhaseStatistics> getPhases() {
+        synchronized (phases) {
+            return new ArrayList<>(phases.values());
+        }
+    }
+
+    /**
+     * Logs the measurements of all phases, including the phases of the configuration sub-reports.
+     */
+    public void logSummary() {
+        for (PhaseStatistics p : getPhases()) {
+            LOG.info((name == null ? "" : name + ": ") + p);
+        }
+        for (RunReport r : configReports()) {
+            r.logSummary();
+        }
+    }
+
+    /**
+     * Writes the report as JSON to the given file
+     *
+     * @param file the output file
+     */
+    public void write(File file) {
+        try {
+            FileUtils.write(file, toJson());
+        } catch (IOException e) {
+            throw new RuntimeException("I/O exception while writing run report " + file, e);
+        }
+        LOG.info("Run report saved in `" + FileUtils.relPathForDisplay(file.getPath()) + "'.");
+    }
+
+    /**
+     * @return the report as a JSON object
+     */
+    public String toJson() {
+        StringBuilder sb = new StringBuilder();
+        appendJson(sb, "");
+        sb.append("\n");
+        return sb.toString();
+    }
+
+    private synchronized void appendJson(StringBuilder sb, String indent) {
+        final String in1 = indent + "  ";
+        final String in2 = in1 + "  ";
+        sb.append("{\n");
+        if (name != null) {
+            sb.append(in1).append("\"config\": ");
+            appendJsonValue(sb, name);
+        } else {
+            sb.append(in1).append("\"startTime\": ");
+            appendJsonValue(sb, startTime);
+            sb.append(",\n");
+            sb.append(in1).append("\"wallTimeMillis\": ").append(millis(System.nanoTime() - startNanos));
+        }
+        for (Map.Entry<String, Object> e : properties.entrySet()) {
+            sb.append(",\n").append(in1);
+            appendJsonValue(sb, e.getKey());
+            sb.append(": ");
+            appendJsonValue(sb, e.getValue());
+        }
+        sb.append(",\n").append(in1).append("\"counts\": {");
+        String sep = "\n";
+        for (Map.Entry<String, Long> e : counts.entrySet()) {
+            sb.append(sep).append(in2);
+            appendJsonValue(sb, e.getKey());
+            sb.append(": ").append(e.getValue());
+            sep = ",\n";
+        }
+        sb.append(counts.isEmpty() ? "}" : "\n" + in1 + "}");
+        sb.append(",\n").append(in1).append("\"phases\": [");
+        sep = "\n";
+        List<PhaseStatistics> phaseList = getPhases();
+        for (PhaseStatistics p : phaseList) {
+            sb.append(sep).append(in2);
+            appendPhaseJson(sb, p);
+            sep = ",\n";
+        }
+        sb.append(phaseList.isEmpty() ? "]" : "\n" + in1 + "]");
+        if (!configReports.isEmpty()) {
+            sb.append(",\n").append(in1).append("\"detections\": [");
+            sep = "\n";
+            for (RunReport r : configReports.values()) {
+                sb.append(sep).append(in2);
+                r.appendJson(sb, in2);
+                sep = ",\n";
+            }
+            sb.append("\n").append(in1).append("]");
+        }
+        sb.append("\n").append(indent).append("}");
+    }
+
+    private static void appendPhaseJson(StringBuilder sb, PhaseStatistics p) {
+        sb.append("{\"name\": ");
+        appendJsonValue(sb, p.name);
+        if (p.nestedIn != null) {
+            sb.append(", \"nestedIn\": ");
+            appendJsonValue(sb, p.nestedIn);
+        }
+        sb.append(", \"invocations\": ").append(p.getInvocations());
+        sb.append(", \"wallTimeMillis\": ").append(millis(p.getWallTimeNanos()));
+        long cpuTime = p.getCpuTimeNanos();
+        sb.append(", \"cpuTimeMillis\": ").append(cpuTime < 0 ? "null" : Long.toString(millis(cpuTime)));
+        long allocated = p.getAllocatedBytes();
+        sb.append(", \"allocatedBytes\": ").append(allocated < 0 ? "null" : Long.toString(allocated));
+        sb.append(", \"peakHeapBytes\": ").append(p.getPeakHeapBytes());
+        sb.append("}");
+    }
+
+    private static void appendJsonValue(StringBuilder sb, Object value) {
+        if (value == null) {
+            sb.append("null");
+        } else if ((value instanceof Number) || (value instanceof Boolean)) {
+            sb.append(value);
+        } else {
+            String s = value.toString();
+            sb.append('"');
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                switch (c) {
+                    case '"':
+                        sb.append("\\\"");
+                        break;
+                    case '\\':
+                        sb.append("\\\\");
+                        break;
+                    case '\n':
+                        sb.append("\\n");
+                        break;
+                    case '\r':
+                        sb.append("\\r");
+                        break;
+                    case '\t':
+                        sb.append("\\t");
+                        break;
+                    default:
+                        if (c < 0x20) {
+                            sb.append(String.format("\\u%04x", (int) c));
+                        } else {
+                            sb.append(c);
+                        }
+                }
+            }
+            sb.append('"');
+        }
+    }
+
+    private synchronized List<RunReport> configReports() {
+        return new ArrayList<>(configReports.values());
+    }
+
+    private static long millis(long nanos) {
+        return nanos / 1000000L;
+    }
+
+    private static long megabytes(long bytes) {
+        return bytes / (1024L * 1024L);
+    }
+
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        try {
+            if (THREAD_BEAN instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) THREAD_BEAN;
+                if (bean.isThreadAllocatedMemorySupported()) {
+                    bean.setThreadAllocatedMemoryEnabled(true);
+                    return bean;
+                }
+            }
+        } catch (LinkageError | UnsupportedOperationException | SecurityException e) {
+            // Not a HotSpot VM or not permitted.  Allocations are not measured.
+        }
+        return null;
+    }
+
+    private static boolean cpuTimeSupported() {
+        try {
+            if (THREAD_BEAN.isCurrentThreadCpuTimeSupported()) {
+                THREAD_BEAN.setThreadCpuTimeEnabled(true);
+                return true;
+            }
+        } catch (UnsupportedOperationException | SecurityException e) {
+            // CPU time is not measured.
+        }
+        return false;
+    }
+
+    private static long currentThreadCpuTime() {
+        return CPU_TIME_SUPPORTED ? THREAD_BEAN.getCurrentThreadCpuTime() : 0;
+    }
+
+    private static long currentThreadAllocatedBytes() {
+        return (ALLOCATION_BEAN != null) ? ALLOCATION_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId()) : 0;
+    }
+
+    private static void resetPeakHeapUsage() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid()) pool.resetPeakUsage();
+        }
+    }
+
+    /**
+     * @return the sum of the peak usage of all heap memory pools since their peak usage was last reset
+     */
+    private static long peakHeapUsage() {
+        long result = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid()) result += pool.getPeakUsage().getUsed();
+        }
+        return result;
+    }
+}
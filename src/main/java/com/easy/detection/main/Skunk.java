@@ -1,13 +1,15 @@
 package com.easy.detection.main;
 
 import com.easy.detection.data.Context;
-import com.easy.detection.data.FeatureReference;
+import com.easy.detection.data.ProcessedFileCache;
 import com.easy.detection.detector.DetectionConfig;
+import com.easy.detection.detector.DetectionResult;
 import com.easy.detection.detector.Detector;
-import com.easy.detection.detector.SmellReason;
 import com.easy.detection.input.CppStatsFolderReader;
 import com.easy.detection.input.SrcMlFolderReader;
+import com.easy.detection.logging.RunReport;
 import com.easy.detection.output.AnalyzedDataHandler;
+import com.easy.detection.output.ProcessedDataHandler;
 import com.easy.util.FileUtils;
 import org.apache.commons.cli.*;
 import org.apache.commons.io.FilenameUtils;
@@ -21,10 +23,7 @@ import java.text.SimpleDateFormat;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.Date;
-import java.util.List;
-import java.util.Map;
-import java.util.Optional;
+import java.util.*;
 
 /**
  * Skunk main class
@@ -37,10 +36,23 @@ public class Skunk {
     private static final char OPT_SOURCE = 's';
     private static final char OPT_PROCESSED = 'p';
     private static final char OPT_CONFIG = 'c';
+    private static final char OPT_THREADS = 't';
+    private static final char OPT_STREAMING = 'x';
+    private static final char OPT_INTERMEDIATE_FORMAT = 'f';
+    private static final char OPT_INCREMENTAL = 'i';
+    private static final char OPT_CSV_MAX_ROWS = 'r';
+    private static final char OPT_CSV_UNSORTED = 'u';
+    private static final char OPT_GZIP_REPORTS = 'z';
+    private static final char OPT_MAP_THRESHOLD = 'b';
     /**
-     * The code smell configuration.
+     * Name of the JSON file to which the resource usage of the run is written.  It is saved next to the results of the
+     * configurations or, if there are none, next to the intermediate data.
      */
-    private DetectionConfig conf = null;
+    private static final String RUN_REPORT_FILENAME = "skunk_run_report.json";
+    /**
+     * The code smell configurations.  Detection is run once for each configuration.
+     */
+    private List<DetectionConfig> configs = new ArrayList<>();
 
     private Context ctx = null;
 
@@ -57,6 +69,40 @@ public class Skunk {
      * A flag that defines if intermediate formats will be saved.
      */
     private boolean saveIntermediate = false;
+    /**
+     * The format in which intermediate data is saved.
+     */
+    private ProcessedDataHandler.Format intermediateFormat = ProcessedDataHandler.Format.XML;
+    /**
+     * A flag that defines if files that have not changed since the previous run are restored from its intermediate data
+     * instead of being processed again.
+     */
+    private boolean incremental = false;
+    /**
+     * Number of worker threads used while processing the srcML files, computing the metrics of functions and files and during the
+     * detection.
+     */
+    private int numThreads = 1;
+    /**
+     * A flag that defines if srcML files are read with a streaming XML parser instead of building a DOM for each file.
+     */
+    private boolean streaming = false;
+    /**
+     * The maximum number of rows of each metrics CSV file, or <code>0</code> for all rows.
+     */
+    private int csvMaxRows = 0;
+    /**
+     * A flag that defines if the rows of the metrics CSV files are written without sorting them by smell value.
+     */
+    private boolean csvUnsorted = false;
+    /**
+     * A flag that defines if the text detection results are saved gzip-compressed.
+     */
+    private boolean gzipReports = false;
+    /**
+     * The minimum size of a srcML file, in bytes, that is mapped into memory instead of being read into a byte array.
+     */
+    private long mapThreshold = SrcMlFolderReader.DEFAULT_MAP_THRESHOLD;
 
     /**
      * The main method.
@@ -95,22 +141,41 @@ public class Skunk {
             System.exit(1);
         }
 
-        ctx = new Context(conf);
+        ctx = new Context(null);
+        final RunReport report = ctx.getReport();
+        report.setProperty("input", sourcePath.isPresent() ? sourcePath.get() : processedDataDir.get());
+        report.setProperty("threads", numThreads);
+        report.setProperty("streaming", streaming);
 
         if (sourcePath.isPresent()) {
+            // load the data of the previous run
+            final ProcessedFileCache cache = incremental
+                    ? report.time("loadCache", () -> ctx.processedDataHandler.LoadFileCache("."))
+                    : null;
             // process necessary csv files in project folder
-            CppStatsFolderReader cppReader = new CppStatsFolderReader(ctx, sourcePath.get());
-            cppReader.ProcessFiles();
+            report.time("cppStatsRead", () -> {
+                CppStatsFolderReader cppReader = new CppStatsFolderReader(ctx, sourcePath.get());
+                cppReader.setCache(cache);
+                cppReader.ProcessFiles();
+            });
             // process srcML files
-            SrcMlFolderReader mlReader = new SrcMlFolderReader(ctx);
-            mlReader.ProcessFiles();
+            report.time(SrcMlFolderReader.PHASE_SRCML_READ, () -> {
+                SrcMlFolderReader mlReader = new SrcMlFolderReader(ctx);
+                mlReader.setStreaming(streaming);
+                mlReader.setMapThreshold(mapThreshold);
+                mlReader.setCache(cache);
+                mlReader.ProcessFiles(numThreads);
+            });
+            if (cache != null) report.setCount("unchangedFiles", cache.GetNumRestoredFiles());
             // do post actions
-            ctx.functions.PostAction();
-            ctx.files.PostAction();
+            report.time("functionsPostAction", () -> ctx.functions.PostAction(numThreads));
+            report.time("filesPostAction", () -> ctx.files.PostAction(numThreads));
             // save processed data
-            if (saveIntermediate) ctx.processedDataHandler.SaveProcessedData();
+            if (saveIntermediate) {
+                report.time("saveIntermediate", () -> ctx.processedDataHandler.SaveProcessedData(intermediateFormat));
+            }
         } else if (processedDataDir.isPresent()) {
-            ctx.processedDataHandler.LoadProcessedData(processedDataDir.get());
+            report.time("loadIntermediate", () -> ctx.processedDataHandler.LoadProcessedData(processedDataDir.get()));
         } else {
             throw new IllegalStateException("Exactly one of --sourcePath or --processedData must be specified!");
         }
@@ -130,27 +195,59 @@ public class Skunk {
         System.out.printf("LOAC: %d (%.0f%% of all lines of code)\n", loac,
                 (loac * 100.0) / ctx.featureExpressions.GetLoc());
         System.out.println("NOFL: " + nofl);
-        // run detection with current configuration (if present)
-        if (conf != null) {
+        recordCounts(report, loac, nofl);
+        // run detection with each configuration (if present) on the same data
+        Optional<File> reportFile = Optional.empty();
+        if (!configs.isEmpty()) {
 
             String currentDate = LocalDateTime.now().format(DateTimeFormatter.ofPattern("dd-HH-mm-ss"));
-            String processedProjectDir = FileUtils.relPathForDisplay(sourcePath.get());
+            String processedProjectDir = FileUtils.relPathForDisplay(sourcePath.isPresent() ? sourcePath.get()
+                    : processedDataDir.get());
             //get the project name from path provided
             String projectName = processedProjectDir.substring(processedProjectDir.lastIndexOf("/") + 1);
-            Path resultsPath = Paths.get(projectName);
-            resultsPath = resultsPath.resolve(projectName).resolve("Skunk-results").resolve(currentDate).resolve(FilenameUtils.getBaseName(conf.type));
-            System.out.println(resultsPath.toFile().toString());
-            //String resultsPath = projectName + "_" + File.pathSeparator + currentDate + File.pathSeparator + "_" + FilenameUtils.getBaseName(conf.type);
+            for (DetectionConfig conf : configs) {
+                final Path resultsPath = Paths.get(projectName).resolve(projectName).resolve("Skunk-results").resolve(currentDate).resolve(FilenameUtils.getBaseName(conf.type));
+                System.out.println(resultsPath.toFile().toString());
+                //String resultsPath = projectName + "_" + File.pathSeparator + currentDate + File.pathSeparator + "_" + FilenameUtils.getBaseName(conf.type);
 
-            Detector detector = new Detector(ctx);
-            Map<FeatureReference, List<SmellReason>> res = detector.Perform();
-            AnalyzedDataHandler presenter = new AnalyzedDataHandler(ctx);
-            presenter.SaveTextResults(res, resultsPath.toString());
-            presenter.SaveCsvResults(resultsPath.toString());
+                Context detectionCtx = ctx.withConfig(conf);
+                RunReport configReport = report.forConfig(FilenameUtils.getBaseName(conf.type));
+                DetectionResult res = configReport.time("detection", () -> {
+                    Detector detector = new Detector(detectionCtx, numThreads);
+                    return detector.Perform();
+                });
+                configReport.setCount("smellyFeatureReferences", res.GetCount());
+                AnalyzedDataHandler presenter = new AnalyzedDataHandler(detectionCtx);
+                presenter.setSortCsvRows(!csvUnsorted);
+                presenter.setMaxCsvRows(csvMaxRows);
+                presenter.setGzipTextResults(gzipReports);
+                configReport.time("textOutput", () -> presenter.SaveTextResults(res, resultsPath.toString()));
+                configReport.time("csvOutput", () -> presenter.SaveCsvResults(resultsPath.toString()));
+                reportFile = Optional.of(resultsPath.resolveSibling(RUN_REPORT_FILENAME).toFile());
+            }
+        } else if (saveIntermediate && sourcePath.isPresent()) {
+            // Save the report together with the intermediate data
+            reportFile = Optional.of(new File(RUN_REPORT_FILENAME));
         }
+        report.logSummary();
+        reportFile.ifPresent(report::write);
         System.out.println("Exiting Skunk.");
     }
 
+    private void recordCounts(RunReport report, int loac, int nofl) {
+        int numFunctions = 0;
+        for (com.easy.detection.data.Method m : ctx.functions.AllMethods()) {
+            numFunctions++;
+        }
+        report.setCount("files", ctx.files.AllFiles().size());
+        report.setCount("functions", numFunctions);
+        report.setCount("features", ctx.featureExpressions.GetCount());
+        report.setCount("featureReferences", ctx.featureExpressions.numberOfFeatureConstantReferences);
+        report.setCount("loc", ctx.featureExpressions.GetLoc());
+        report.setCount("loac", loac);
+        report.setCount("nofl", nofl);
+    }
+
     /**
      * Analyze input to decide what to do during runtime
      *
@@ -179,19 +276,22 @@ public class Skunk {
             System.exit(1);
             return;
         }
-        // --config=... get the path to the code smell configuration
+        // --config=... get the paths to the code smell configurations
         if (line.hasOption(OPT_CONFIG)) {
-            String configPath = line.getOptionValue('c');
-            File fConfig = new File(configPath);
-            if (fConfig.exists() && !fConfig.isDirectory()) {
+            Set<String> resultDirNames = new HashSet<>();
+            for (String configPath : configFilePaths(line.getOptionValues(OPT_CONFIG))) {
+                DetectionConfig conf;
                 try {
                     conf = new DetectionConfig(configPath);
                 } catch (NoSuchFieldException | SecurityException | IllegalArgumentException | IllegalAccessException
                         | IOException e) {
                     throw new RuntimeException("Error opening smell configuration file " + configPath, e);
                 }
-            } else {
-                throw new UsageError("The configuration file, " + configPath + ", does not exist or is a directory.");
+                if (!resultDirNames.add(FilenameUtils.getBaseName(conf.type))) {
+                    throw new UsageError("Multiple configuration files are named " + conf.type
+                            + ". Their results would be saved to the same directory.");
+                }
+                configs.add(conf);
             }
         }
         // Get the input (--source= or --processed= option)
@@ -213,6 +313,81 @@ public class Skunk {
             throw new UsageError(
                     "Either need to set a source folder (--source=DIR) or a processed data folder (--processed=DIR)!");
         }
+        // --threads=N
+        if (line.hasOption(OPT_THREADS)) {
+            String threadsArg = line.getOptionValue(OPT_THREADS);
+            try {
+                numThreads = Integer.parseInt(threadsArg);
+            } catch (NumberFormatException e) {
+                throw new UsageError("The number of threads must be a positive integer, got `" + threadsArg + "'.");
+            }
+            if (numThreads < 1) {
+                throw new UsageError("The number of threads must be a positive integer, got `" + threadsArg + "'.");
+            }
+        }
+        // --streaming
+        if (line.hasOption(OPT_STREAMING)) {
+            streaming = true;
+        }
+        // --csv-max-rows=N
+        if (line.hasOption(OPT_CSV_MAX_ROWS)) {
+            String maxRowsArg = line.getOptionValue(OPT_CSV_MAX_ROWS);
+            try {
+                csvMaxRows = Integer.parseInt(maxRowsArg);
+            } catch (NumberFormatException e) {
+                throw new UsageError("The maximum number of CSV rows must be a positive integer, got `" + maxRowsArg
+                        + "'.");
+            }
+            if (csvMaxRows < 1) {
+                throw new UsageError("The maximum number of CSV rows must be a positive integer, got `" + maxRowsArg
+                        + "'.");
+            }
+        }
+        // --csv-unsorted
+        if (line.hasOption(OPT_CSV_UNSORTED)) {
+            csvUnsorted = true;
+        }
+        // --gzip-reports
+        if (line.hasOption(OPT_GZIP_REPORTS)) {
+            gzipReports = true;
+        }
+        // --map-threshold=BYTES
+        if (line.hasOption(OPT_MAP_THRESHOLD)) {
+            String thresholdArg = line.getOptionValue(OPT_MAP_THRESHOLD);
+            try {
+                mapThreshold = Long.parseLong(thresholdArg);
+            } catch (NumberFormatException e) {
+                throw new UsageError("The map threshold must be a non-negative number of bytes, got `" + thresholdArg
+                        + "'.");
+            }
+            if (mapThreshold < 0) {
+                throw new UsageError("The map threshold must be a non-negative number of bytes, got `" + thresholdArg
+                        + "'.");
+            }
+        }
+        // --intermediate-format=FORMAT
+        if (line.hasOption(OPT_INTERMEDIATE_FORMAT)) {
+            String formatArg = line.getOptionValue(OPT_INTERMEDIATE_FORMAT);
+            try {
+                intermediateFormat = ProcessedDataHandler.Format.valueOf(formatArg.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new UsageError("The intermediate format must be `xml' or `binary', got `" + formatArg + "'.");
+            }
+        }
+        // --incremental
+        if (line.hasOption(OPT_INCREMENTAL)) {
+            if (!this.sourcePath.isPresent()) {
+                throw new UsageError("Incremental processing (option `-" + OPT_INCREMENTAL
+                        + "') requires a source path (option `-" + OPT_SOURCE + "').");
+            }
+            if (line.hasOption(OPT_INTERMEDIATE_FORMAT) && (intermediateFormat != ProcessedDataHandler.Format.BINARY)) {
+                throw new UsageError("Incremental processing (option `-" + OPT_INCREMENTAL
+                        + "') requires the binary intermediate format.");
+            }
+            incremental = true;
+            saveIntermediate = true;
+            intermediateFormat = ProcessedDataHandler.Format.BINARY;
+        }
         // --save-intermediate
         if (line.hasOption(OPT_SAVE_INTERMEDIATE)) {
             saveIntermediate = true;
@@ -224,6 +399,36 @@ public class Skunk {
         }
     }
 
+    /**
+     * Determines the configuration files to use.  Each argument may either name a configuration file or a directory.
+     * For a directory, all files in it ending in <code>.csm</code> are used, in alphabetical order.
+     *
+     * @param args the arguments of the <code>--config</code> option
+     * @return the paths of the configuration files
+     */
+    private static List<String> configFilePaths(String[] args) {
+        List<String> result = new ArrayList<>();
+        for (String configPath : args) {
+            File fConfig = new File(configPath);
+            if (fConfig.isDirectory()) {
+                File[] configFiles = fConfig.listFiles((dir, name) -> name.endsWith(".csm"));
+                if ((configFiles == null) || (configFiles.length == 0)) {
+                    throw new UsageError("The configuration directory, " + configPath
+                            + ", does not contain any configuration (*.csm) files.");
+                }
+                Arrays.sort(configFiles);
+                for (File f : configFiles) {
+                    result.add(f.getPath());
+                }
+            } else if (fConfig.exists()) {
+                result.add(configPath);
+            } else {
+                throw new UsageError("The configuration file, " + configPath + ", does not exist.");
+            }
+        }
+        return result;
+    }
+
     private Options makeOptions(boolean forHelp) {
         boolean required = !forHelp;
         Options options = new Options();
@@ -236,16 +441,72 @@ public class Skunk {
         // --config= option
         options.addOption(Option.builder(String.valueOf(OPT_CONFIG))
                 .longOpt("config")
-                .desc("code smell detection configuration")
-                .hasArg()
-                .argName("FILE")
-                .type(PatternOptionBuilder.EXISTING_FILE_VALUE)
+                .desc("code smell detection configuration(s); a directory stands for all *.csm files in it. Detection"
+                        + " is run once per configuration, on the same data.")
+                .hasArgs()
+                .argName("FILE|DIR")
                 .build());
         // --save-intermediate flag
         options.addOption(Option.builder(String.valueOf(OPT_SAVE_INTERMEDIATE))
                 .longOpt("save-intermediate")
                 .desc("save intermediate analysis results to speed up future detection runs")
                 .build());
+        // --intermediate-format= option
+        options.addOption(Option.builder(String.valueOf(OPT_INTERMEDIATE_FORMAT))
+                .longOpt("intermediate-format")
+                .desc("format of the intermediate analysis results saved with --save-intermediate, either `xml' or"
+                        + " `binary' [default: xml]. The binary format is more compact and loads much faster."
+                        + " --processed recognizes either format.")
+                .hasArg()
+                .argName("FORMAT")
+                .build());
+        // --incremental flag
+        options.addOption(Option.builder(String.valueOf(OPT_INCREMENTAL))
+                .longOpt("incremental")
+                .desc("only process the files that have changed since the previous incremental run. The data of"
+                        + " the other files is taken from the intermediate data that the previous run saved in the"
+                        + " working directory. Implies --save-intermediate --intermediate-format=binary.")
+                .build());
+        // --threads= option
+        options.addOption(Option.builder(String.valueOf(OPT_THREADS))
+                .longOpt("threads")
+                .desc("number of worker threads to use for parsing srcML files, computing metrics and for the detection [default: 1]")
+                .hasArg()
+                .argName("N")
+                .build());
+        // --streaming flag
+        options.addOption(Option.builder(String.valueOf(OPT_STREAMING))
+                .longOpt("streaming")
+                .desc("read srcML files with a streaming XML parser instead of building a DOM for each file;"
+                        + " reduces memory usage for large files")
+                .build());
+        // --csv-max-rows= option
+        options.addOption(Option.builder(String.valueOf(OPT_CSV_MAX_ROWS))
+                .longOpt("csv-max-rows")
+                .desc("only write the N smelliest functions, files and features to the metrics CSV files"
+                        + " [default: all]")
+                .hasArg()
+                .argName("N")
+                .build());
+        // --csv-unsorted flag
+        options.addOption(Option.builder(String.valueOf(OPT_CSV_UNSORTED))
+                .longOpt("csv-unsorted")
+                .desc("write the rows of the metrics CSV files in processing order instead of sorting them by smell"
+                        + " value; with --csv-max-rows, the first N rows are written")
+                .build());
+        // --gzip-reports flag
+        options.addOption(Option.builder(String.valueOf(OPT_GZIP_REPORTS))
+                .longOpt("gzip-reports")
+                .desc("save the text detection results (_detection_*.txt) gzip-compressed, as _detection_*.txt.gz")
+                .build());
+        // --map-threshold= option
+        options.addOption(Option.builder(String.valueOf(OPT_MAP_THRESHOLD))
+                .longOpt("map-threshold")
+                .desc("map srcML files of at least BYTES bytes into memory instead of reading them into the Java heap;"
+                        + " 0 maps all files [default: " + SrcMlFolderReader.DEFAULT_MAP_THRESHOLD + "]")
+                .hasArg()
+                .argName("BYTES")
+                .build());
 
         // --source= and --processed= options
         OptionGroup inputOptions = new OptionGroup();
@@ -2,13 +2,17 @@ package com.easy.detection.output;
 
 import com.easy.detection.data.*;
 import com.easy.detection.detector.DetectionConfig;
+import com.easy.detection.detector.DetectionResult;
 import com.easy.detection.detector.SmellReason;
 import com.easy.util.FileUtils;
 import com.easy.detection.data.File;
 import org.apache.commons.csv.CSVPrinter;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.util.*;
+import java.util.function.Consumer;
 
 public class AnalyzedDataHandler {
     private final Context ctx;
@@ -19,7 +23,7 @@ public class AnalyzedDataHandler {
     public final static Comparator<FeatureReference> FEATURECONSTANT_FEATURENAME_COMPARATOR = new Comparator<FeatureReference>() {
         @Override
         public int compare(FeatureReference f1, FeatureReference f2) {
-            return f1.feature.Name.compareTo(f2.feature.Name);
+            return f1.GetFeature().Name.compareTo(f2.GetFeature().Name);
         }
     };
     /**
@@ -28,7 +32,7 @@ public class AnalyzedDataHandler {
     public final static Comparator<FeatureReference> FEATURECONSTANT_FILEPATH_COMPARATOR = new Comparator<FeatureReference>() {
         @Override
         public int compare(FeatureReference f1, FeatureReference f2) {
-            return f1.filePath.compareTo(f2.filePath);
+            return f1.GetFilePath().compareTo(f2.GetFilePath());
         }
     };
     /**
@@ -37,7 +41,7 @@ public class AnalyzedDataHandler {
     public final static Comparator<FeatureReference> FEATURECONSTANT_START_COMPARATOR = new Comparator<FeatureReference>() {
         @Override
         public int compare(FeatureReference f1, FeatureReference f2) {
-            return Integer.compare(f1.start, f2.start);
+            return Integer.compare(f1.GetStart(), f2.GetStart());
         }
     };
     /**
@@ -46,52 +50,28 @@ public class AnalyzedDataHandler {
     public final static Comparator<FeatureReference> FEATURECONSTANT_METHOD_COMPARATOR = new Comparator<FeatureReference>() {
         @Override
         public int compare(FeatureReference f1, FeatureReference f2) {
-            if (f1.inMethod == null) {
-                if (f2.inMethod == null) return 0;
+            if (f1.GetInMethod() == null) {
+                if (f2.GetInMethod() == null) return 0;
                 return -1;
             }
-            if (f2.inMethod == null) return 1;
-            int s1 = f1.inMethod.start1;
-            int s2 = f2.inMethod.start1;
+            if (f2.GetInMethod() == null) return 1;
+            int s1 = f1.GetInMethod().start1;
+            int s2 = f2.GetInMethod().start1;
             return Integer.compare(s1, s2);
         }
     };
     /**
-     * The comparator that compares the smell value of the csv records.
+     * Whether the rows of the metrics CSV files are sorted by smell value
      */
-    public final static Comparator<Object[]> ABSmellComparator = new Comparator<Object[]>() {
-        @Override
-        public int compare(Object[] f1, Object[] f2) {
-            final int ixAbSmell = MethodMetricsColumns.ABSmell.ordinal();
-            float s1 = (float) f1[ixAbSmell];
-            float s2 = (float) f2[ixAbSmell];
-            return Float.compare(s2, s1);
-        }
-    };
+    private boolean sortCsvRows = true;
     /**
-     * The comparator that compares the smell value of the csv records.
+     * The maximum number of rows of each metrics CSV file, or <code>0</code> for all rows
      */
-    public final static Comparator<Object[]> AFSmellComparator = new Comparator<Object[]>() {
-        @Override
-        public int compare(Object[] f1, Object[] f2) {
-            final int ixAfSmell = FileMetricsColumns.AFSmell.ordinal();
-            float s1 = (float) f1[ixAfSmell];
-            float s2 = (float) f2[ixAfSmell];
-            return Float.compare(s2, s1);
-        }
-    };
+    private int maxCsvRows = 0;
     /**
-     * The comparator that compares the smell value of the csv records.
+     * Whether the text detection results are saved gzip-compressed
      */
-    public final static Comparator<Object[]> LGSmellComparator = new Comparator<Object[]>() {
-        @Override
-        public int compare(Object[] f1, Object[] f2) {
-            final int ixLgSmell = FeatureMetricsColumns.LGSmell.ordinal();
-            float s1 = (float) f1[ixLgSmell];
-            float s2 = (float) f2[ixLgSmell];
-            return Float.compare(s2, s1);
-        }
-    };
+    private boolean gzipTextResults = false;
 
     /**
      * Instantiates a new presenter.
@@ -102,204 +82,243 @@ public class AnalyzedDataHandler {
         this.ctx = ctx;
     }
 
+    /**
+     * @param sortCsvRows <code>true</code> (the default) to write the rows of the metrics CSV files in descending order
+     *                    of their smell value; <code>false</code> to write them in the order in which the functions,
+     *                    files and features are stored, without sorting
+     */
+    public void setSortCsvRows(boolean sortCsvRows) {
+        this.sortCsvRows = sortCsvRows;
+    }
+
+    /**
+     * @param maxCsvRows the maximum number of rows written to each metrics CSV file, or <code>0</code> (the default)
+     *                   to write all rows.  If rows are sorted, the smelliest rows are written.
+     */
+    public void setMaxCsvRows(int maxCsvRows) {
+        this.maxCsvRows = maxCsvRows;
+    }
+
+    /**
+     * @param gzipTextResults <code>true</code> to save the text detection results gzip-compressed (the file names end
+     *                        in <code>.txt.gz</code>); <code>false</code> (the default) to save them as plain text
+     */
+    public void setGzipTextResults(boolean gzipTextResults) {
+        this.gzipTextResults = gzipTextResults;
+    }
+
     /**** TXT Start End Saving *****/
-    public void SaveTextResults(Map<FeatureReference, List<SmellReason>> results, String resultsPath) {
-        // get the results of the complete detection process and the whole
-        // project
-        String overview = this.getOverviewResults(results);
-        // get overview per attribute
-        String attributes = this.getAttributeOverviewResults(results);
-        // Sortiert nach location und file
-        String files = this.getFileSortedResults(results);
-        String methods = this.getMethodSortedResults(results);
-        // get the results sorted per feature
-        String features = this.getFeatureSortedResults(results);
+    public void SaveTextResults(DetectionResult results, String resultsPath) {
         SimpleFileWriter writer = new SimpleFileWriter();
         try {
-            writer.write(new java.io.File(resultsPath + "/_detection_overview.txt"), overview);
-            writer.write(new java.io.File(resultsPath + "/_detection_attributes.txt"), attributes);
-            writer.write(new java.io.File(resultsPath + "/_detection_files.txt"), files);
-            writer.write(new java.io.File(resultsPath + "/_detection_methods.txt"), methods);
-            writer.write(new java.io.File(resultsPath + "/_detection_features.txt"), features);
+            // get the results of the complete detection process and the whole
+            // project
+            writeTextResult(writer, resultsPath, "_detection_overview.txt", out -> writeOverviewResults(results, out));
+            // get overview per attribute
+            writeTextResult(writer, resultsPath, "_detection_attributes.txt",
+                    out -> writeAttributeOverviewResults(results, out));
+            // Sortiert nach location und file
+            writeTextResult(writer, resultsPath, "_detection_files.txt", out -> writeFileSortedResults(results, out));
+            writeTextResult(writer, resultsPath, "_detection_methods.txt",
+                    out -> writeMethodSortedResults(results, out));
+            // get the results sorted per feature
+            writeTextResult(writer, resultsPath, "_detection_features.txt",
+                    out -> writeFeatureSortedResults(results, out));
             System.out.println("Detection result files (" + writer.prettyFileNameList() + ") saved in `"
                     + writer.getDirForDisplay() + "'");
-        } catch (IOException e) {
+        } catch (IOException | UncheckedIOException e) {
             throw new RuntimeException("I/O error while saving detection results as text.", e);
         }
     }
 
     /**
-     * Creates the overview metrics for each attribute, and saves it to the output result
+     * Writes a part of the detection results as text
+     */
+    private interface TextResultWriter {
+        void write(Writer out) throws IOException;
+    }
+
+    /**
+     * Streams a part of the detection results to a buffered file, compressing it if {@link #gzipTextResults} is set
+     */
+    private void writeTextResult(SimpleFileWriter writer, String resultsPath, String fileName,
+                                 TextResultWriter resultWriter) throws IOException {
+        Consumer<Writer> dataProvider = out -> {
+            try {
+                resultWriter.write(out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+        if (gzipTextResults) {
+            writer.writeGzipped(new java.io.File(resultsPath, fileName + ".gz"), dataProvider);
+        } else {
+            writer.writeText(new java.io.File(resultsPath, fileName), dataProvider);
+        }
+    }
+
+    /**
+     * Writes the overview metrics for each attribute
      *
      * @param results the results
-     * @return the attribute overview results
+     * @param out     the writer to which the attribute overview is written
      */
-    private String getAttributeOverviewResults(Map<FeatureReference, List<SmellReason>> results) {
-        String res = ctx.config.toString() + "\r\n\r\n\r\n\r\n\r\n";
-        List<AttributeOverview> attributes = new ArrayList<>();
-        for (FeatureReference key : results.keySet()) {
-            for (SmellReason reason : results.get(key)) {
-                // get fitting attribute or create one
-                boolean add = true;
-                for (AttributeOverview overview : attributes) {
-                    if (overview.Reason.equals(reason)) add = false;
-                }
-                if (add) attributes.add(new AttributeOverview(ctx, reason));
-                // add location information
-                for (AttributeOverview overview : attributes)
-                    if (overview.Reason.equals(reason)) overview.AddFeatureLocationInfo(key);
+    private void writeAttributeOverviewResults(DetectionResult results, Writer out)
+            throws IOException {
+        out.write(ctx.config.toString() + "\r\n\r\n\r\n\r\n\r\n");
+        Map<SmellReason, AttributeOverview> attributes = new EnumMap<>(SmellReason.class);
+        for (FeatureReference key : results.GetReferences()) {
+            for (SmellReason reason : results.GetReasons(key)) {
+                // get fitting attribute or create one, and add location information
+                attributes.computeIfAbsent(reason, r -> new AttributeOverview(ctx, r)).AddFeatureLocationInfo(key);
             }
         }
-        // add attribute overview to output
-        for (AttributeOverview attr : attributes)
-            res += attr.toString();
-        return res;
+        // add attribute overview to output, in the order of the reasons
+        for (AttributeOverview attr : attributes.values())
+            out.write(attr.toString());
     }
 
     /**
-     * Sorts the result per file and start1 and adds it to the resulting file
+     * Sorts the result per file and start1 and writes it
      *
      * @param results the results
-     * @return the location results
+     * @param out     the writer to which the location results are written
      */
-    private String getFileSortedResults(Map<FeatureReference, List<SmellReason>> results) {
-        String res = ctx.config.toString() + "\r\n\r\n\r\n\r\n\r\n\r\n";
+    private void writeFileSortedResults(DetectionResult results, Writer out)
+            throws IOException {
+        out.write(ctx.config.toString() + "\r\n\r\n\r\n\r\n\r\n\r\n");
         // sort the keys after featurename, filepath and start1
-        List<FeatureReference> sortedKeys = new ArrayList<>(results.keySet());
+        List<FeatureReference> sortedKeys = new ArrayList<>(results.GetReferences());
         Collections.sort(sortedKeys, new ComparatorChain<>(FEATURECONSTANT_FILEPATH_COMPARATOR,
                 FEATURECONSTANT_START_COMPARATOR));
-        res += ">>> File-Sorted Results:\r\n";
+        out.write(">>> File-Sorted Results:\r\n");
         String currentPath = "";
         // print the the locations and reasons sorted after feature
         for (FeatureReference key : sortedKeys) {
-            if (!key.filePath.equals(currentPath)) {
-                currentPath = key.filePath;
-                res += "\r\n\r\n\r\n[File: " + currentPath + "]\r\n";
-                res += "Start\t\tEnd\t\tFeature\t\tReason\r\n";
+            if (!key.GetFilePath().equals(currentPath)) {
+                currentPath = key.GetFilePath();
+                out.write("\r\n\r\n\r\n[File: " + currentPath + "]\r\n");
+                out.write("Start\t\tEnd\t\tFeature\t\tReason\r\n");
             }
-            res += key.start + "\t\t" + key.end + "\t\t" + key.feature.Name + "\t\t" + results.get(key).toString()
-                    + "\r\n";
+            out.write(key.GetStart() + "\t\t" + key.GetEnd() + "\t\t" + key.GetFeature().Name + "\t\t" + results.GetReasons(key).toString()
+                    + "\r\n");
         }
-        return res;
     }
 
     /**
-     * Sorts the results per feature, and presents the locations and reason for each corresponding feature
+     * Sorts the results per feature, and writes the locations and reason for each corresponding feature
      *
      * @param results the detection results
-     * @return the results per feature
+     * @param out     the writer to which the results per feature are written
      */
-    private String getFeatureSortedResults(Map<FeatureReference, List<SmellReason>> results) {
-        String res = ctx.config.toString() + "\r\n\r\n\r\n\r\n\r\n";
+    private void writeFeatureSortedResults(DetectionResult results, Writer out)
+            throws IOException {
+        out.write(ctx.config.toString() + "\r\n\r\n\r\n\r\n\r\n");
         // sort the keys after featurename, filepath and start1
-        List<FeatureReference> sortedKeys = new ArrayList<>(results.keySet());
+        List<FeatureReference> sortedKeys = new ArrayList<>(results.GetReferences());
         Collections.sort(sortedKeys, new ComparatorChain<>(FEATURECONSTANT_FEATURENAME_COMPARATOR,
                 FEATURECONSTANT_FILEPATH_COMPARATOR, FEATURECONSTANT_START_COMPARATOR));
-        res += ">>> Feature-Sorted Results";
+        out.write(">>> Feature-Sorted Results");
         String currentName = "";
         String currentPath = "";
         // print the the locations and reasons sorted after feature
         for (FeatureReference key : sortedKeys) {
-            if (!key.feature.Name.equals(currentName)) {
-                currentName = key.feature.Name;
-                res += "\r\n\r\n\r\n[Feature: " + currentName + "]\r\n";
+            if (!key.GetFeature().Name.equals(currentName)) {
+                currentName = key.GetFeature().Name;
+                out.write("\r\n\r\n\r\n[Feature: " + currentName + "]\r\n");
                 // reset filepath
                 currentPath = "";
             }
-            if (!key.filePath.equals(currentPath)) {
-                currentPath = key.filePath;
-                res += "File: " + currentPath + "\r\n";
-                res += "Start\t\tEnd\t\tReason\r\n";
+            if (!key.GetFilePath().equals(currentPath)) {
+                currentPath = key.GetFilePath();
+                out.write("File: " + currentPath + "\r\n");
+                out.write("Start\t\tEnd\t\tReason\r\n");
             }
-            res += key.start + "\t\t" + key.end + "\t\t" + results.get(key).toString() + "\r\n";
+            out.write(key.GetStart() + "\t\t" + key.GetEnd() + "\t\t" + results.GetReasons(key).toString() + "\r\n");
         }
-        return res;
     }
 
     /**
-     * Sorts the results per Method and returns it in a string per file/method/cnstant
+     * Sorts the results per Method and writes them per file/method/cnstant
      *
      * @param results the detection results
-     * @return the results per feature
+     * @param out     the writer to which the results per method are written
      */
-    private String getMethodSortedResults(Map<FeatureReference, List<SmellReason>> results) {
-        String res = ctx.config.toString() + "\r\n\r\n\r\n\r\n\r\n";
-        List<FeatureReference> sortedKeys = new ArrayList<>(results.keySet());
+    private void writeMethodSortedResults(DetectionResult results, Writer out)
+            throws IOException {
+        out.write(ctx.config.toString() + "\r\n\r\n\r\n\r\n\r\n");
+        List<FeatureReference> sortedKeys = new ArrayList<>(results.GetReferences());
         Collections.sort(sortedKeys, new ComparatorChain<>(FEATURECONSTANT_FILEPATH_COMPARATOR,
                 FEATURECONSTANT_METHOD_COMPARATOR, FEATURECONSTANT_START_COMPARATOR));
-        res += ">>> Method-Sorted Results";
+        out.write(">>> Method-Sorted Results");
         Method currentMethod = null;
         String currentPath = "";
         // print feature constants with reason per File and Method
         for (FeatureReference key : sortedKeys) {
             // don't display feature that are not in a method
-            if (key.inMethod == null) continue;
-            if (!key.filePath.equals(currentPath)) {
-                currentPath = key.filePath;
-                res += "\r\n\r\nFile: " + key.FilePathForDisplay();
+            if (key.GetInMethod() == null) continue;
+            if (!key.GetFilePath().equals(currentPath)) {
+                currentPath = key.GetFilePath();
+                out.write("\r\n\r\nFile: " + key.FilePathForDisplay());
             }
-            if (!key.inMethod.equals(currentMethod)) {
-                currentMethod = key.inMethod;
-                res += "\r\nMethod: " + currentMethod.uniqueFunctionSignature + "\r\n";
-                res += "Start\t\tEnd\t\tReason\r\n";
+            if (!key.GetInMethod().equals(currentMethod)) {
+                currentMethod = key.GetInMethod();
+                out.write("\r\nMethod: " + currentMethod.uniqueFunctionSignature + "\r\n");
+                out.write("Start\t\tEnd\t\tReason\r\n");
             }
-            res += key.start + "\t\t" + key.end + "\t\t" + results.get(key).toString() + "\r\n";
+            out.write(key.GetStart() + "\t\t" + key.GetEnd() + "\t\t" + results.GetReasons(key).toString() + "\r\n");
         }
-        return res;
     }
 
     /**
-     * Get the results of the complete set.
+     * Writes the results of the complete set.
      *
      * @param results the result hash map from the detection process
+     * @param out     the writer to which the overview is written
      */
-    private String getOverviewResults(Map<FeatureReference, List<SmellReason>> results) {
-        String res = ctx.config.toString();
+    private void writeOverviewResults(DetectionResult results, Writer out)
+            throws IOException {
         // amount of feature constants
-        List<String> constants = new ArrayList<>();
+        Set<String> constants = new HashSet<>();
         float percentOfConstants = 0;
         // amount of feature constants
-        int countLocations = results.entrySet().size();
+        int countLocations = results.GetCount();
         float percentOfLocations = 0;
         // lofcs in project
         int completeLofc = 0;
         // loac in project
-        Map<String, List<Integer>> loacs = new HashMap<>();
+        Map<String, BitSet> loacs = new HashMap<>();
         int completeLoac = 0;
         float loacPercentage = 0;
-        for (FeatureReference constant : results.keySet()) {
+        for (FeatureReference constant : results.GetReferences()) {
             // get the amount of feature constants by saving each feature
             // constant name
-            if (!constants.contains(constant.feature.Name)) constants.add(constant.feature.Name);
+            constants.add(constant.GetFeature().Name);
             // add lines of code to result
-            completeLofc += constant.end - constant.start;
+            completeLofc += constant.GetEnd() - constant.GetStart();
             // add all lines per file to the data structure, that are part of
             // the feature constant... no doubling for loac calculation
-            if (!loacs.keySet().contains(constant.filePath)) loacs.put(constant.filePath, new ArrayList<>());
-            for (int i = constant.start; i <= constant.end; i++) {
-                if (!loacs.get(constant.filePath).contains(i)) loacs.get(constant.filePath).add(i);
-            }
+            AttributeOverview.addLines(loacs, constant);
         }
         // calculate max loac
-        for (String file : loacs.keySet())
-            completeLoac += loacs.get(file).size();
+        for (BitSet lines : loacs.values())
+            completeLoac += lines.cardinality();
         // calculate percentages
         loacPercentage = completeLoac * 100.0f / ctx.featureExpressions.GetLoc();
         percentOfLocations = countLocations * 100.0f / ctx.featureExpressions.numberOfFeatureConstantReferences;
         percentOfConstants = constants.size() * 100.0f / ctx.featureExpressions.GetFeatures().size();
         // Complete overview
-        res += "\r\n\r\n\r\n>>> Complete Overview\r\n";
-        res += "Number of features: \t" + constants.size() + " (" + percentOfConstants + "% of "
-                + ctx.featureExpressions.GetFeatures().size() + " constants)\r\n";
-        res += "Number of feature constants: \t" + countLocations + " (" + percentOfLocations + "% of "
-                + ctx.featureExpressions.numberOfFeatureConstantReferences + " locations)\r\n";
-        res += "Lines of annotated Code: \t" + completeLoac + " (" + loacPercentage + "% of "
-                + ctx.featureExpressions.GetLoc() + " LOC)\r\n";
-        res += "Lines of feature code: \t\t" + completeLofc + "\r\n";
-        res += "Mean LOFC per feature: \t\t" + ctx.featureExpressions.GetMeanLofc() + "\r\n\r\n\r\n";
-        return res;
+        out.write(ctx.config.toString());
+        out.write("\r\n\r\n\r\n>>> Complete Overview\r\n");
+        out.write("Number of features: \t" + constants.size() + " (" + percentOfConstants + "% of "
+                + ctx.featureExpressions.GetFeatures().size() + " constants)\r\n");
+        out.write("Number of feature constants: \t" + countLocations + " (" + percentOfLocations + "% of "
+                + ctx.featureExpressions.numberOfFeatureConstantReferences + " locations)\r\n");
+        out.write("Lines of annotated Code: \t" + completeLoac + " (" + loacPercentage + "% of "
+                + ctx.featureExpressions.GetLoc() + " LOC)\r\n");
+        out.write("Lines of feature code: \t\t" + completeLofc + "\r\n");
+        out.write("Mean LOFC per feature: \t\t" + ctx.featureExpressions.GetMeanLofc() + "\r\n\r\n\r\n");
     }
-
     /**** TXT Start End Saving *****/
     /**** CSV Smell Value Saving ****/
     public void SaveCsvResults(String resultsPath) {
@@ -334,19 +353,16 @@ public class AnalyzedDataHandler {
                 // add the header for the CSV file
                 CsvRowProvider<File, Context, FileMetricsColumns> p = new CsvRowProvider<>(FileMetricsColumns.class, ctx);
                 csv.printRecord(p.headerRow());
-                // calculate values and add records
-                List<Object[]> fileData = new ArrayList<>();
+                // calculate values and add records, sorted by smell value
+                CsvRowRanking<File> rows = newRanking(file -> p.printRow(csv, file, file.isSmelly()));
                 for (File file : ctx.files.AllFiles()) {
                     file.setSmelly(isSmellyFile(file));
                     if (file.GetLinesOfAnnotatedCode() == 0) {
                         continue;
                     }
-                    fileData.add(p.dataRow(file, file.isSmelly()));
+                    rows.add(file, (float) FileMetricsColumns.AFSmell.csvColumnValue(file, ctx));
                 }
-                // sort by smell value
-                Collections.sort(fileData, new ComparatorChain<>(AFSmellComparator));
-                for (Object[] record : fileData)
-                    csv.printRecord(record);
+                rows.finish();
             }
         };
         h.write(fileName);
@@ -364,16 +380,13 @@ public class AnalyzedDataHandler {
                 CsvRowProvider<Feature, Context, FeatureMetricsColumns> p = new CsvRowProvider<>(FeatureMetricsColumns.class,
                         ctx);
                 csv.printRecord(p.headerRow());
-                List<Object[]> featureData = new ArrayList<>();
+                CsvRowRanking<Feature> rows = newRanking(feat -> p.printRow(csv, feat, feat.isSmelly()));
                 for (Feature feat : ctx.featureExpressions.GetFeatures()) {
                     feat.setSmelly(isSmellyFeature(feat));
                     // TODO: CHECK IF SKIPFEATURE IS REALLY NECESSARY
-                    featureData.add(p.dataRow(feat, feat.isSmelly()));
+                    rows.add(feat, (float) FeatureMetricsColumns.LGSmell.csvColumnValue(feat, ctx));
                 }
-                // sort by smell value
-                Collections.sort(featureData, new ComparatorChain<>(LGSmellComparator));
-                for (Object[] record : featureData)
-                    csv.printRecord(record);
+                rows.finish();
             }
         };
         h.write(fileName);
@@ -391,25 +404,33 @@ public class AnalyzedDataHandler {
                 CsvRowProvider<Method, Context, MethodMetricsColumns> p = new CsvRowProvider<>(MethodMetricsColumns.class, ctx);
                 // add the header for the csv file
                 csv.printRecord(p.headerRow());
-                // calculate values and add records
-                List<Object[]> methodData = new ArrayList<>();
+                // calculate values and add records, sorted by smell value
+                CsvRowRanking<Method> rows = newRanking(meth -> p.printRow(csv, meth, meth.isSmelly()));
                 for (Method meth : ctx.functions.AllMethods()) {
                     meth.setSmelly(isSmellyMethod(meth)); // Set true if method is smelly
                     if (meth.GetLinesOfAnnotatedCode() == 0) { // if method does not contains any features we skip it
                         continue;
                     }
-                    Object[] row = p.dataRow(meth, meth.isSmelly());
-                    methodData.add(row);
+                    rows.add(meth, (float) MethodMetricsColumns.ABSmell.csvColumnValue(meth, ctx));
                 }
-                // sort by smell value
-                Collections.sort(methodData, new ComparatorChain<>(ABSmellComparator));
-                for (Object[] record : methodData)
-                    csv.printRecord(record);
+                rows.finish();
             }
         };
         h.write(fileName);
     }
 
+    /**
+     * Creates the ranking that decides which rows of a metrics CSV file are written in which order, according to
+     * {@link #sortCsvRows} and {@link #maxCsvRows}.  Rows are written as they are needed, so that the rows of all
+     * objects never have to be held in memory at the same time.
+     *
+     * @param printer writes the row of an object
+     * @return a new ranking
+     */
+    private <T> CsvRowRanking<T> newRanking(CsvRowRanking.RowPrinter<T> printer) {
+        return new CsvRowRanking<>(sortCsvRows, maxCsvRows, printer);
+    }
+
     /**
      * Check if Method is smelly according to config file
      *
@@ -5,17 +5,23 @@ import com.easy.detection.data.FeatureExpressionCollection;
 import com.easy.detection.data.FeatureReference;
 import com.easy.detection.detector.SmellReason;
 
-import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 
 public class AttributeOverview {
 
     private final Context ctx;
     public SmellReason Reason = null;
-    private ArrayList<String> featureConstants = null;
+    private Set<String> featureConstants = null;
     private int noFeatureLocs = 0;
     private int lofc = 0;
-    private HashMap<String, ArrayList<Integer>> loacs = null;
+    /**
+     * The annotated lines per file
+     */
+    private Map<String, BitSet> loacs = null;
 
     /**
      * Instantiates a new attribute overview.
@@ -27,7 +33,7 @@ public class AttributeOverview {
         this.ctx = ctx;
         this.Reason = reason;
         this.loacs = new HashMap<>();
-        this.featureConstants = new ArrayList<>();
+        this.featureConstants = new HashSet<>();
     }
 
     /**
@@ -38,20 +44,24 @@ public class AttributeOverview {
     public void AddFeatureLocationInfo(FeatureReference constant) {
         // add metrics
         this.noFeatureLocs++;
-        this.lofc = constant.end - constant.start;
+        this.lofc = constant.GetEnd() - constant.GetStart();
 
         // add feature constant if not already part of it
-        if (!this.featureConstants.contains(constant.feature.Name))
-            this.featureConstants.add(constant.feature.Name);
+        this.featureConstants.add(constant.GetFeature().Name);
 
         // add all lines per file to the data structure, that are part of the feature constant... no doubling for loac calculation
-        if (!loacs.keySet().contains(constant.filePath))
-            loacs.put(constant.filePath, new ArrayList<>());
+        addLines(loacs, constant);
+    }
 
-        for (int i = constant.start; i <= constant.end; i++) {
-            if (!loacs.get(constant.filePath).contains(i))
-                loacs.get(constant.filePath).add(i);
-        }
+    /**
+     * Adds the lines of a feature constant to the set of lines of its file
+     *
+     * @param linesPerFile the sets of lines, by file path
+     * @param constant     the feature constant
+     */
+    static void addLines(Map<String, BitSet> linesPerFile, FeatureReference constant) {
+        BitSet lines = linesPerFile.computeIfAbsent(constant.GetFilePath(), k -> new BitSet());
+        if (constant.GetEnd() >= constant.GetStart()) lines.set(constant.GetStart(), constant.GetEnd() + 1);
     }
 
     @Override
@@ -60,8 +70,8 @@ public class AttributeOverview {
 
         // calculate max loac
         int completeLoac = 0;
-        for (String file : loacs.keySet())
-            completeLoac += loacs.get(file).size();
+        for (BitSet lines : loacs.values())
+            completeLoac += lines.cardinality();
 
         // calculate percentages
         float percentOfLoc = completeLoac * 100 / featureExpressions.GetLoc();
@@ -3,6 +3,10 @@
  */
 package com.easy.detection.output;
 
+import org.apache.commons.csv.CSVPrinter;
+
+import java.io.IOException;
+
 /**
  * Static selection of functions on Enumerations that model CSV files
  *
@@ -78,4 +82,26 @@ public class CsvEnumUtils {
         r[len] = isSmelly;
         return r;
     }
+
+    /**
+     * Print the row of the given object, <code>o</code>, with the same values as
+     * {@link #dataRow(Class, Object, Object, boolean)} returns
+     *
+     * @param csv          the printer to which the row is written
+     * @param columnsClass
+     * @param o
+     * @param ctx
+     * @throws IOException if printing fails
+     */
+    public static <TInput, TContext, TEnum extends Enum<?> & CsvColumnValueProvider<TInput, TContext>> void printRow(
+            CSVPrinter csv, Class<? extends TEnum> columnsClass, TInput o, TContext ctx, boolean isSmelly)
+            throws IOException {
+        TEnum[] enumConstants = columnsClass.getEnumConstants();
+        if (enumConstants == null) throw new IllegalArgumentException("Not an enum type: " + columnsClass);
+        for (TEnum e : enumConstants) {
+            csv.print(e.csvColumnValue(o, ctx));
+        }
+        csv.print(isSmelly);
+        csv.println();
+    }
 }
@@ -3,6 +3,7 @@ package com.easy.detection.output;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVPrinter;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
@@ -12,11 +13,11 @@ import java.io.IOException;
  */
 public abstract class CsvFileWriterHelper {
     public void write(File file) {
-        FileWriter writer = null;
+        BufferedWriter writer = null;
         final String fileName = file.getPath();
         CSVPrinter csv = null;
         try {
-            writer = new FileWriter(file);
+            writer = new BufferedWriter(new FileWriter(file));
             try {
                 csv = new CSVPrinter(writer, CSVFormat.EXCEL);
                 actuallyDoStuff(csv);
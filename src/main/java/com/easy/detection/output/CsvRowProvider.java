@@ -1,5 +1,9 @@
 package com.easy.detection.output;
 
+import org.apache.commons.csv.CSVPrinter;
+
+import java.io.IOException;
+
 /**
  * Helps marshall a Java object into its representation as a CSV row.  Specifically, the object is converted into an array of objects, which are later converted into <code>String</code>s using #toString() and then CSV-escaped by some CSV library.
  *
@@ -32,4 +36,16 @@ public class CsvRowProvider<TInput, TContext, TEnum extends Enum<?> & CsvColumnV
     public Object[] dataRow(TInput o, boolean isSmelly) {
         return CsvEnumUtils.dataRow(columnsClass, o, ctx, isSmelly);
     }
+
+    /**
+     * Prints the CSV row of the given object, with the same values as {@link #dataRow(Object, boolean)}, but without
+     * building an array of them first
+     *
+     * @param csv the printer to which the row is written
+     * @param o   The input object
+     * @throws IOException if printing fails
+     */
+    public void printRow(CSVPrinter csv, TInput o, boolean isSmelly) throws IOException {
+        CsvEnumUtils.printRow(csv, columnsClass, o, ctx, isSmelly);
+    }
 }
@@ -0,0 +1,145 @@
+package com.easy.detection.output;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Determines the order in which the objects of a metrics CSV file are written, without building the rows first.  Each
+ * object is added together with its smell value.  By default, the rows are written in descending order of their smell
+ * value, objects with the same smell value in the order in which they were added (like a stable sort of the rows).
+ * <p>
+ * Only a <code>long</code> key and a reference are kept per object: the upper half of the key is the smell value,
+ * the lower half is the position of the object.  If the number of rows is limited, only the smelliest objects are
+ * kept, in a heap of the size of the limit.  If sorting is disabled, rows are written as soon as they are added.
+ * </p>
+ *
+ * @param <T> Type of the objects that are written as CSV rows
+ */
+class CsvRowRanking<T> {
+    /**
+     * Writes the row of an object
+     */
+    interface RowPrinter<T> {
+        void printRow(T o) throws IOException;
+    }
+
+    private final boolean sorted;
+    private final int maxRows;
+    private final RowPrinter<T> printer;
+    /**
+     * In sorted mode, a max-heap of the keys of the kept objects, i.e., the least smelly object is at the root
+     */
+    private long[] keys;
+    private Object[] items;
+    private int size = 0;
+    private int numAdded = 0;
+
+    /**
+     * @param sorted  <code>true</code> if rows are to be sorted by smell value; otherwise, they are written in the
+     *                order in which they are added
+     * @param maxRows the maximum number of rows to write, or <code>0</code> to write all rows
+     * @param printer writes the row of an object
+     */
+    CsvRowRanking(boolean sorted, int maxRows, RowPrinter<T> printer) {
+        if (maxRows < 0) throw new IllegalArgumentException("Negative number of rows: " + maxRows);
+        this.sorted = sorted;
+        this.maxRows = maxRows;
+        this.printer = printer;
+        int initialCapacity = (maxRows > 0) ? Math.min(maxRows, 1024) : 1024;
+        this.keys = sorted ? new long[initialCapacity] : null;
+        this.items = sorted ? new Object[initialCapacity] : null;
+    }
+
+    /**
+     * Adds an object.  In unsorted mode, its row is written immediately (unless the maximum number of rows has already
+     * been written).
+     *
+     * @param o          an object
+     * @param smellValue its smell value, by which the rows are sorted
+     * @throws IOException if writing the row fails
+     */
+    void add(T o, float smellValue) throws IOException {
+        final int position = numAdded++;
+        if (!sorted) {
+            if ((maxRows == 0) || (position < maxRows)) printer.printRow(o);
+            return;
+        }
+        final long key = key(smellValue, position);
+        if ((maxRows == 0) || (size < maxRows)) {
+            if (size == keys.length) {
+                int newCapacity = (maxRows > 0) ? Math.min(maxRows, size * 2) : size * 2;
+                keys = Arrays.copyOf(keys, newCapacity);
+                items = Arrays.copyOf(items, newCapacity);
+            }
+            keys[size] = key;
+            items[size] = o;
+            siftUp(size++);
+        } else if (key < keys[0]) {
+            // smellier than the least smelly object kept so far
+            keys[0] = key;
+            items[0] = o;
+            siftDown(0, size);
+        }
+    }
+
+    /**
+     * In sorted mode, writes the rows of the kept objects, smelliest first.  Does nothing in unsorted mode.
+     *
+     * @throws IOException if writing a row fails
+     */
+    @SuppressWarnings("unchecked")
+    void finish() throws IOException {
+        if (!sorted) return;
+        // heap sort: repeatedly moves the greatest key to the end, so that the keys end up in ascending order
+        for (int end = size - 1; end > 0; end--) {
+            swap(0, end);
+            siftDown(0, end);
+        }
+        for (int i = 0; i < size; i++) {
+            printer.printRow((T) items[i]);
+            items[i] = null;
+        }
+        size = 0;
+    }
+
+    /**
+     * Combines a smell value and the position of an object into a key.  Ascending order of the keys is descending
+     * order of the smell values (as defined by {@link Float#compare(float, float)}), then ascending order of the
+     * positions.
+     */
+    static long key(float smellValue, int position) {
+        int bits = Float.floatToIntBits(smellValue);
+        // flip the magnitude bits of negative values, so that the bits compare like the float values
+        int ordered = bits ^ ((bits >> 31) & 0x7fffffff);
+        return ((long) ~ordered << 32) | (position & 0xffffffffL);
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (keys[parent] >= keys[i]) break;
+            swap(parent, i);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i, int end) {
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= end) break;
+            if ((child + 1 < end) && (keys[child + 1] > keys[child])) child++;
+            if (keys[i] >= keys[child]) break;
+            swap(i, child);
+            i = child;
+        }
+    }
+
+    private void swap(int i, int j) {
+        long k = keys[i];
+        keys[i] = keys[j];
+        keys[j] = k;
+        Object o = items[i];
+        items[i] = items[j];
+        items[j] = o;
+    }
+}
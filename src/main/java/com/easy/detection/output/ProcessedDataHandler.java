@@ -1,12 +1,17 @@
 package com.easy.detection.output;
 
+import com.easy.detection.data.BinaryProcessedData;
 import com.easy.detection.data.Context;
+import com.easy.detection.data.ProcessedFileCache;
 import com.easy.util.FileUtils;
 import org.apache.log4j.Logger;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Optional;
@@ -20,8 +25,31 @@ import java.util.function.Consumer;
  */
 public class ProcessedDataHandler {
     private static Logger LOG = Logger.getLogger(ProcessedDataHandler.class);
+
+    /**
+     * Version of the XML files.  Needs to be incremented whenever the XML written for the features, functions or files
+     * changes.  Saved in the general file; data without a version was saved before versions were introduced and is
+     * treated as version 1.
+     */
+    public static final int XML_VERSION = 2;
+    private static final String XML_VERSION_KEY = "XmlVersion=";
+
     private final Context ctx;
 
+    /**
+     * Formats in which the processed data can be saved
+     */
+    public enum Format {
+        /**
+         * Gzipped XML files (one each for features, functions and files), written by XStream
+         */
+        XML,
+        /**
+         * A single file in the compact binary format of {@link BinaryProcessedData}, which loads much faster
+         */
+        BINARY
+    }
+
     private enum ProcessedDataFile {
         FEATURES {
             @Override
@@ -67,7 +95,8 @@ public class ProcessedDataHandler {
             public void save(Context ctx, SimpleFileWriter writer) throws IOException {
                 String generalInput = "FeatureExpressionCollection=" + ctx.featureExpressions.GetLoc() + ";"
                         + ctx.featureExpressions.GetMeanLofc() + ";"
-                        + ctx.featureExpressions.numberOfFeatureConstantReferences;
+                        + ctx.featureExpressions.numberOfFeatureConstantReferences + "\n"
+                        + XML_VERSION_KEY + XML_VERSION;
                 writer.write(new File(filename(ctx)), generalInput);
             }
 
@@ -123,26 +152,54 @@ public class ProcessedDataHandler {
         this.ctx = ctx;
     }
 
+    private String binaryFilename() {
+        return ctx.getProcessedDataFilenamePrefix() + "data.bin";
+    }
+
     /**
      * Save the data processed during the operation into a general file,
      * features file and a method file
      */
     public void SaveProcessedData() {
+        SaveProcessedData(Format.XML);
+    }
+
+    /**
+     * Save the data processed during the operation in the given format
+     *
+     * @param format the format of the saved data
+     */
+    public void SaveProcessedData(Format format) {
         LOG.info("Saving processed data ...");
 
         // Save files
         final SimpleFileWriter writer = new SimpleFileWriter();
-        ProcessedDataFile currentFile = null;
-        try {
-            for (ProcessedDataFile f : ProcessedDataFile.values()) {
-                currentFile = f;
-                LOG.info("Writing output for " + f);
-                f.save(ctx, writer);
-                LOG.info("Done writing output for " + f);
-            }
-        } catch (IOException e) {
-            LOG.error("Writing output for " + currentFile + " failed.", e);
-            throw new RuntimeException("I/O exception while saving processed data files", e);
+        if (format == Format.BINARY) {
+            try {
+                writer.writeBinary(new File(binaryFilename()), out -> {
+                    try {
+                        BinaryProcessedData.write(ctx, out);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (IOException | UncheckedIOException e) {
+                LOG.error("Writing binary output failed.", e);
+                throw new RuntimeException("I/O exception while saving processed data file", e);
+            }
+        } else {
+            ProcessedDataFile currentFile = null;
+            try {
+                for (ProcessedDataFile f : ProcessedDataFile.values()) {
+                    currentFile = f;
+                    LOG.info("Writing output for " + f);
+                    f.save(ctx, writer);
+                    LOG.info("Done writing output for " + f);
+                }
+            } catch (IOException e) {
+                LOG.error("Writing output for " + currentFile + " failed.", e);
+                throw new RuntimeException("I/O exception while saving processed data files", e);
+            }
         }
 
         String msg = String.format("Done saving processed data. Files (%s) saved in `%s'.\n", writer.prettyFileNameList(), writer.getDirForDisplay());
@@ -150,7 +207,8 @@ public class ProcessedDataHandler {
     }
 
     /**
-     * Load processed data from the given folder
+     * Load processed data from the given folder.  If the folder contains processed data in the binary format, that data
+     * is loaded.  Otherwise, the XML files are loaded.
      *
      * @param folderPath the path of the folder containing processed data files
      */
@@ -161,12 +219,25 @@ public class ProcessedDataHandler {
         // open the directory
         File directory = new File(folderPath);
 
+        File binaryFile = new File(directory, binaryFilename());
+        if (binaryFile.isFile()) {
+            try {
+                BinaryProcessedData.read(ctx, ByteBuffer.wrap(Files.readAllBytes(binaryFile.toPath())));
+            } catch (IOException | RuntimeException e) {
+                throw new RuntimeException("Error loading processed data from " + binaryFile, e);
+            }
+            System.out.println(" done.");
+            return;
+        }
+
         Set<ProcessedDataFile> filesRead = EnumSet.noneOf(ProcessedDataFile.class);
         Set<ProcessedDataFile> filesToRead = EnumSet.allOf(ProcessedDataFile.class);
 
         if (directory.exists() && directory.isDirectory()) {
             // check for necessary files
             try {
+                File generalFile = new File(directory, ProcessedDataFile.GENERAL.filename(ctx));
+                if (generalFile.isFile()) checkXmlVersion(generalFile);
                 for (File current : directory.listFiles()) {
                     if (!current.isDirectory()) {
                         Optional<ProcessedDataFile> optConstant = ProcessedDataFile.findConstantByFile(ctx, current);
@@ -196,6 +267,43 @@ public class ProcessedDataHandler {
         }
     }
 
+    /**
+     * Checks that the XML files were saved in the current format, see {@link #XML_VERSION}
+     *
+     * @param generalFile the general file saved with the XML files
+     */
+    private static void checkXmlVersion(File generalFile) throws IOException {
+        int version = 1;
+        for (String line : FileUtils.readLines(generalFile)) {
+            if (line.startsWith(XML_VERSION_KEY)) {
+                version = Integer.parseInt(line.substring(XML_VERSION_KEY.length()).trim());
+            }
+        }
+        if (version != XML_VERSION) {
+            throw new RuntimeException("Unsupported version of XML processed data: " + version + " (expected "
+                    + XML_VERSION + "). Re-create the processed data from the source.");
+        }
+    }
+
+    /**
+     * Loads the files processed by a previous incremental run from the binary processed data in the given folder.
+     *
+     * @param folderPath the path of the folder to which the previous run saved its processed data
+     * @return the cached files; empty if there is no usable processed data in the folder
+     */
+    public ProcessedFileCache LoadFileCache(String folderPath) {
+        File binaryFile = new File(folderPath, binaryFilename());
+        if (!binaryFile.isFile()) {
+            LOG.info("No processed data of a previous run found in `" + FileUtils.relPathForDisplay(folderPath)
+                    + "'. All files will be processed.");
+            return ProcessedFileCache.Empty(ctx);
+        }
+        ProcessedFileCache cache = ProcessedFileCache.Load(ctx, binaryFile);
+        LOG.info("Loaded " + cache.GetNumCachedFiles() + " processed file(s) of the previous run from `"
+                + FileUtils.relPathForDisplay(binaryFile.getPath()) + "'.");
+        return cache;
+    }
+
     private void dieDueToMissingFilesToLoad(Set<ProcessedDataFile> filesRead, Set<ProcessedDataFile> filesToRead) {
         StringBuilder present = new StringBuilder();
         StringBuilder missing = new StringBuilder();
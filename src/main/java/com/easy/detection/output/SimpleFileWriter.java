@@ -4,6 +4,7 @@ import com.easy.util.FileUtils;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Writer;
 import java.util.SortedSet;
 import java.util.TreeSet;
@@ -18,11 +19,21 @@ public class SimpleFileWriter {
         rememberWrittenFile(f);
     }
 
+    public void writeText(File f, Consumer<Writer> dataProvider) throws IOException {
+        FileUtils.writeText(f, dataProvider);
+        rememberWrittenFile(f);
+    }
+
     public void writeGzipped(File f, Consumer<Writer> dataProvider) throws IOException {
         FileUtils.writeGzipped(f, dataProvider);
         rememberWrittenFile(f);
     }
 
+    public void writeBinary(File f, Consumer<OutputStream> dataProvider) throws IOException {
+        FileUtils.writeBinary(f, dataProvider);
+        rememberWrittenFile(f);
+    }
+
     private void rememberWrittenFile(File f) throws IOException {
         if (dir == null) dir = f.getCanonicalFile().getParent();
         fileNames.add(f.getName());
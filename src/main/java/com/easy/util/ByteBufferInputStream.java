@@ -0,0 +1,50 @@
+package com.easy.util;
+
+import java.io.InputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+/**
+ * An input stream that reads the remaining bytes of a {@link ByteBuffer}, e.g., of a memory-mapped file.  The bytes
+ * are copied directly from the buffer into the array of the reader, without an intermediate copy of the whole content.
+ * The stream does not need to be closed; a mapped buffer is released once it is no longer reachable.
+ */
+public final class ByteBufferInputStream extends InputStream {
+    private final ByteBuffer buffer;
+
+    /**
+     * @param buffer the buffer to read, from its current position to its limit
+     */
+    public ByteBufferInputStream(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+        return buffer.hasRemaining() ? (buffer.get() & 0xff) : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        if ((off < 0) || (len < 0) || (len > b.length - off)) throw new IndexOutOfBoundsException();
+        if (len == 0) return 0;
+        if (!buffer.hasRemaining()) return -1;
+        int n = Math.min(len, buffer.remaining());
+        buffer.get(b, off, n);
+        return n;
+    }
+
+    @Override
+    public long skip(long n) {
+        if (n <= 0) return 0;
+        int skipped = (int) Math.min(n, buffer.remaining());
+        // through Buffer, because ByteBuffer.position(int) only exists since JDK 9
+        ((Buffer) buffer).position(buffer.position() + skipped);
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return buffer.remaining();
+    }
+}
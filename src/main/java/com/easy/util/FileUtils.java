@@ -8,9 +8,13 @@ import org.apache.log4j.Logger;
 import java.io.*;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.List;
 import java.util.function.Consumer;
 import java.util.zip.GZIPInputStream;
@@ -210,24 +214,75 @@ public final class FileUtils {
         org.apache.commons.io.FileUtils.write(file, contents, DEFAULT_CHARSET);
     }
 
+    /**
+     * Writes a text file through a buffered writer, creating its parent directories if necessary
+     */
+    public static void writeText(File file, Consumer<Writer> dataProvider) throws IOException {
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                org.apache.commons.io.FileUtils.openOutputStream(file), DEFAULT_CHARSET))) {
+            dataProvider.accept(out);
+        } catch (IOException | RuntimeException ex) {
+            deleteIncompleteFile(file, ex);
+            throw ex;
+        }
+    }
+
     public static void writeGzipped(File file, Consumer<Writer> dataProvider) throws IOException {
-        try (Writer out = new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(file)), DEFAULT_CHARSET)) {
+        try (Writer out = new OutputStreamWriter(new GZIPOutputStream(new BufferedOutputStream(
+                org.apache.commons.io.FileUtils.openOutputStream(file))), DEFAULT_CHARSET)) {
             dataProvider.accept(out);
         } catch (IOException | RuntimeException ex) {
-            LOG.warn("Exception while writing file " + file + ". Trying to remove file.", ex);
-            try {
-                boolean deleted = file.delete();
-                if (!deleted) {
-                    LOG.error("Failed to delete likely incomplete output file " + file + ". Delete file manually!");
-                }
-            } catch (RuntimeException deletionEx) {
-                LOG.error("Exception while trying to delete likely incomplete output file " + file + "." +
-                        " Delete file manually!", deletionEx);
-            }
+            deleteIncompleteFile(file, ex);
             throw ex;
         }
     }
 
+    public static void writeBinary(File file, Consumer<OutputStream> dataProvider) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+            dataProvider.accept(out);
+        } catch (IOException | RuntimeException ex) {
+            deleteIncompleteFile(file, ex);
+            throw ex;
+        }
+    }
+
+    private static void deleteIncompleteFile(File file, Exception ex) {
+        LOG.warn("Exception while writing file " + file + ". Trying to remove file.", ex);
+        try {
+            boolean deleted = file.delete();
+            if (!deleted) {
+                LOG.error("Failed to delete likely incomplete output file " + file + ". Delete file manually!");
+            }
+        } catch (RuntimeException deletionEx) {
+            LOG.error("Exception while trying to delete likely incomplete output file " + file + "." +
+                    " Delete file manually!", deletionEx);
+        }
+    }
+
+    /**
+     * Opens a file for reading its whole content.  Files of at least <code>mapThreshold</code> bytes are mapped into
+     * memory and read directly from the mapped region, so that their content is neither copied into a byte array of
+     * the size of the file nor held on the Java heap.  Smaller files, for which mapping does not pay off, are read into
+     * a byte array.
+     *
+     * @param file         the file to read
+     * @param mapThreshold the minimum size of a file, in bytes, that is mapped into memory; <code>0</code> to map all
+     *                     non-empty files, {@link Long#MAX_VALUE} to map none
+     * @return a stream of the content of the file; the caller should close it
+     * @throws IOException if the file cannot be read
+     */
+    public static InputStream openForReading(Path file, long mapThreshold) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if ((size > 0) && (size >= mapThreshold) && (size <= Integer.MAX_VALUE)) {
+                // The mapping remains valid after the channel has been closed.
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                return new ByteBufferInputStream(mapped);
+            }
+        }
+        return new ByteArrayInputStream(Files.readAllBytes(file));
+    }
+
     public static void readGzipped(File file, Consumer<Reader> dataSink) throws IOException {
         try (Reader r = new InputStreamReader(new GZIPInputStream(new FileInputStream(file)), FileUtils.DEFAULT_CHARSET)) {
             dataSink.accept(r);
@@ -0,0 +1,137 @@
+package com.easy.util;
+
+import java.util.Arrays;
+
+/**
+ * A set of <code>int</code> values that keeps the values in the order in which they were added, like a
+ * {@link java.util.LinkedHashSet} of {@link Integer}s, but without boxing the values.  The values are stored in an
+ * array.  Small sets are searched linearly; once a set grows beyond {@link #MAX_LINEAR_SIZE} values, an open-addressing
+ * hash table of the indices of the values is built, so that {@link #contains(int)} and {@link #add(int)} take constant
+ * time.
+ */
+public final class IntSet {
+    /**
+     * The maximum size up to which values are searched linearly instead of through the hash table
+     */
+    private static final int MAX_LINEAR_SIZE = 8;
+    private static final int NO_SLOT = -1;
+
+    private int[] values;
+    private int size;
+    /**
+     * Index in {@link #values} of the value hashed to each slot, or {@link #NO_SLOT}; <code>null</code> while the set
+     * is small
+     */
+    private int[] slots;
+
+    /**
+     * Creates an empty set
+     */
+    public IntSet() {
+        this.values = new int[4];
+    }
+
+    /**
+     * @return the number of values in this set
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return <code>true</code> if this set has no values
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @param index the position of a value, between 0 (inclusive) and {@link #size()} (exclusive)
+     * @return the value that was added at this position
+     */
+    public int get(int index) {
+        if ((index < 0) || (index >= size)) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        }
+        return values[index];
+    }
+
+    /**
+     * @return the values, in the order in which they were added
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+
+    /**
+     * @param value a value
+     * @return <code>true</code> if the value is part of this set
+     */
+    public boolean contains(int value) {
+        if (slots == null) {
+            for (int i = 0; i < size; i++) {
+                if (values[i] == value) return true;
+            }
+            return false;
+        }
+        return slots[findSlot(value)] != NO_SLOT;
+    }
+
+    /**
+     * Adds a value if it is not yet part of this set
+     *
+     * @param value the value
+     * @return <code>true</code> if the value was added; <code>false</code> if it already was part of this set
+     */
+    public boolean add(int value) {
+        if (contains(value)) return false;
+        if (size == values.length) values = Arrays.copyOf(values, size * 2);
+        values[size++] = value;
+        if (slots != null) {
+            if (size * 2 > slots.length) {
+                rehash(slots.length * 2);
+            } else {
+                slots[findSlot(value)] = size - 1;
+            }
+        } else if (size > MAX_LINEAR_SIZE) {
+            rehash(4 * Integer.highestOneBit(size));
+        }
+        return true;
+    }
+
+    /**
+     * @param value a value
+     * @return the slot of the value, or the free slot where it would be inserted
+     */
+    private int findSlot(int value) {
+        final int mask = slots.length - 1;
+        int slot = mix(value) & mask;
+        while ((slots[slot] != NO_SLOT) && (values[slots[slot]] != value)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash(int numSlots) {
+        slots = new int[numSlots];
+        Arrays.fill(slots, NO_SLOT);
+        for (int i = 0; i < size; i++) {
+            slots[findSlot(values[i])] = i;
+        }
+    }
+
+    private static int mix(int value) {
+        final int h = value * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) result.append(", ");
+            result.append(values[i]);
+        }
+        return result.append(']').toString();
+    }
+}
@@ -0,0 +1,40 @@
+package com.easy.util;
+
+import com.thoughtworks.xstream.converters.Converter;
+import com.thoughtworks.xstream.converters.MarshallingContext;
+import com.thoughtworks.xstream.converters.UnmarshallingContext;
+import com.thoughtworks.xstream.io.HierarchicalStreamReader;
+import com.thoughtworks.xstream.io.HierarchicalStreamWriter;
+
+/**
+ * XStream converter for {@link IntSet}s.  A set is written as a comma-separated list of its values, in the order in
+ * which they were added, e.g. <code>12,3,40</code>.
+ */
+public class IntSetConverter implements Converter {
+    @Override
+    @SuppressWarnings("rawtypes")
+    public boolean canConvert(Class type) {
+        return type == IntSet.class;
+    }
+
+    @Override
+    public void marshal(Object source, HierarchicalStreamWriter writer, MarshallingContext context) {
+        IntSet set = (IntSet) source;
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < set.size(); i++) {
+            if (i > 0) result.append(',');
+            result.append(set.get(i));
+        }
+        writer.setValue(result.toString());
+    }
+
+    @Override
+    public Object unmarshal(HierarchicalStreamReader reader, UnmarshallingContext context) {
+        IntSet set = new IntSet();
+        for (String token : reader.getValue().split(",")) {
+            token = token.trim();
+            if (!token.isEmpty()) set.add(Integer.parseInt(token));
+        }
+        return set;
+    }
+}
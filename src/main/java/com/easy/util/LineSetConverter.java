@@ -0,0 +1,64 @@
+package com.easy.util;
+
+import com.thoughtworks.xstream.converters.Converter;
+import com.thoughtworks.xstream.converters.MarshallingContext;
+import com.thoughtworks.xstream.converters.UnmarshallingContext;
+import com.thoughtworks.xstream.io.HierarchicalStreamReader;
+import com.thoughtworks.xstream.io.HierarchicalStreamWriter;
+
+import java.util.BitSet;
+
+/**
+ * XStream converter for sets of line numbers (see {@link LineSets}).  A set is written as a comma-separated list of
+ * lines and line ranges, e.g. <code>3,7-12,15</code>.  For backwards compatibility, reading also accepts the format of
+ * a list of integers (<code>&lt;int&gt;3&lt;/int&gt;&lt;int&gt;7&lt;/int&gt;...</code>), which is how intermediate
+ * files represented line sets when they were still stored as <code>List&lt;Integer&gt;</code>.
+ */
+public class LineSetConverter implements Converter {
+    @Override
+    @SuppressWarnings("rawtypes")
+    public boolean canConvert(Class type) {
+        return type == BitSet.class;
+    }
+
+    @Override
+    public void marshal(Object source, HierarchicalStreamWriter writer, MarshallingContext context) {
+        BitSet lines = (BitSet) source;
+        StringBuilder result = new StringBuilder();
+        for (int from = lines.nextSetBit(0); from >= 0; ) {
+            int to = lines.nextClearBit(from) - 1;
+            if (result.length() > 0) result.append(',');
+            result.append(from);
+            if (to > from) result.append('-').append(to);
+            from = lines.nextSetBit(to + 1);
+        }
+        writer.setValue(result.toString());
+    }
+
+    @Override
+    public Object unmarshal(HierarchicalStreamReader reader, UnmarshallingContext context) {
+        BitSet lines = new BitSet();
+        if (reader.hasMoreChildren()) {
+            while (reader.hasMoreChildren()) {
+                reader.moveDown();
+                lines.set(Integer.parseInt(reader.getValue().trim()));
+                reader.moveUp();
+            }
+            return lines;
+        }
+
+        for (String token : reader.getValue().split(",")) {
+            token = token.trim();
+            if (token.isEmpty()) continue;
+            int dash = token.indexOf('-');
+            if (dash < 0) {
+                lines.set(Integer.parseInt(token));
+            } else {
+                int from = Integer.parseInt(token.substring(0, dash));
+                int to = Integer.parseInt(token.substring(dash + 1));
+                lines.set(from, to + 1);
+            }
+        }
+        return lines;
+    }
+}
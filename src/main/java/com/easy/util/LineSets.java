@@ -0,0 +1,50 @@
+package com.easy.util;
+
+import java.util.BitSet;
+
+/**
+ * Helper functions for sets of line numbers that are represented as {@link BitSet}s, where bit <code>i</code> is set
+ * iff line <code>i</code> is in the set.
+ */
+public final class LineSets {
+    private LineSets() {
+    }
+
+    /**
+     * Counts the lines of a set that lie in the given range.
+     *
+     * @param lines         the set of lines
+     * @param fromInclusive first line of the range
+     * @param toInclusive   last line of the range
+     * @return the number of lines <code>l</code> in the set with <code>fromInclusive &lt;= l &lt;= toInclusive</code>
+     */
+    public static int countInRange(BitSet lines, int fromInclusive, int toInclusive) {
+        int count = 0;
+        for (int l = lines.nextSetBit(Math.max(fromInclusive, 0)); (l >= 0) && (l <= toInclusive);
+             l = lines.nextSetBit(l + 1)) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Adds all lines of the given range to a set, except for the lines contained in another set.
+     *
+     * @param lines         the set to add to
+     * @param fromInclusive first line of the range
+     * @param toInclusive   last line of the range
+     * @param excluded      lines not to add
+     */
+    public static void addRangeExcept(BitSet lines, int fromInclusive, int toInclusive, BitSet excluded) {
+        int from = Math.max(fromInclusive, 0);
+        while (from <= toInclusive) {
+            int nextExcluded = excluded.nextSetBit(from);
+            if ((nextExcluded < 0) || (nextExcluded > toInclusive)) {
+                lines.set(from, toInclusive + 1);
+                return;
+            }
+            lines.set(from, nextExcluded);
+            from = nextExcluded + 1;
+        }
+    }
+}
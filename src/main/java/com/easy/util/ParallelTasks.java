@@ -0,0 +1,106 @@
+package com.easy.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Helper functions for running independent actions on a pool of worker threads
+ */
+public final class ParallelTasks {
+    /**
+     * The number of chunks per worker thread into which the items are split.  More chunks than threads even out chunks
+     * that take longer than others.
+     */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private ParallelTasks() {
+    }
+
+    /**
+     * Performs an action for each item.  The action must only modify the item it is given, so that it can be performed
+     * for different items at the same time.
+     *
+     * @param items      the items
+     * @param numThreads number of worker threads; a value of 1 (or less) performs all actions on the calling thread, in
+     *                   the order of the items
+     * @param action     the action to perform for each item
+     */
+    public static <T> void forEach(Iterable<T> items, int numThreads, Consumer<? super T> action) {
+        if (numThreads <= 1) {
+            for (T item : items) action.accept(item);
+            return;
+        }
+        mapChunks(items, numThreads, chunk -> {
+            for (T item : chunk) action.accept(item);
+            return null;
+        });
+    }
+
+    /**
+     * Splits the items into chunks of consecutive items and performs an action for each chunk.  The actions for
+     * different chunks are performed at the same time, so they must not modify shared state.
+     *
+     * @param items      the items
+     * @param numThreads number of worker threads; a value of 1 (or less) performs the action for a single chunk of all
+     *                   items on the calling thread
+     * @param action     the action to perform for each chunk
+     * @return the results of the action, in the order of the chunks
+     */
+    public static <T, R> List<R> mapChunks(Iterable<T> items, int numThreads, Function<List<T>, R> action) {
+        final List<T> all = new ArrayList<>();
+        for (T item : items) all.add(item);
+        if (numThreads <= 1) return Collections.singletonList(action.apply(all));
+        if (all.isEmpty()) return Collections.emptyList();
+
+        final int numChunks = numThreads * CHUNKS_PER_THREAD;
+        final int chunkSize = Math.max(1, (all.size() + numChunks - 1) / numChunks);
+        final List<Callable<R>> tasks = new ArrayList<>();
+        for (int from = 0; from < all.size(); from += chunkSize) {
+            final List<T> chunk = all.subList(from, Math.min(from + chunkSize, all.size()));
+            tasks.add(() -> action.apply(chunk));
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.min(numThreads, tasks.size()));
+        try {
+            final List<R> results = new ArrayList<>(tasks.size());
+            for (Future<R> result : executor.invokeAll(tasks)) {
+                results.add(await(result));
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for worker threads", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Waits for a task that runs on a worker thread.  An unchecked exception thrown by the task is rethrown as is, so
+     * that the caller sees the same exception as if the task had run on the calling thread.
+     *
+     * @param result the result of the task
+     * @return the value computed by the task
+     */
+    public static <R> R await(Future<R> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for worker threads", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new RuntimeException("Error in worker thread", cause);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.easy.util;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Assigns dense <code>int</code> handles to strings, such as feature names or file paths, so that data structures can
+ * store and compare handles instead of strings.  Each distinct string gets the next free handle, starting at 0, the
+ * first time it is interned.  Handles are translated back to strings with {@link #Get(int)}.
+ * <p>
+ * All methods are safe to call from multiple threads.  Looking up a handle or a string does not lock.
+ * </p>
+ */
+public final class SymbolTable {
+    /**
+     * Value returned by {@link #Lookup(String)} for strings that have not been interned
+     */
+    public static final int NO_HANDLE = -1;
+
+    private final Map<String, Integer> handles = new ConcurrentHashMap<>();
+    /**
+     * The strings by handle.  Replaced by a larger copy when full; the array is published only after the new string
+     * has been stored in it, so any handle obtained from {@link #handles} is valid for the current array.
+     */
+    private volatile String[] symbols = new String[64];
+    private int size = 0;
+
+    /**
+     * @param symbol a string
+     * @return the handle of the string; a new handle if the string has not been interned before
+     */
+    public int Intern(String symbol) {
+        Integer handle = handles.get(symbol);
+        if (handle != null) return handle;
+        synchronized (this) {
+            handle = handles.get(symbol);
+            if (handle != null) return handle;
+            String[] current = symbols;
+            if (size == current.length) current = Arrays.copyOf(current, size * 2);
+            current[size] = symbol;
+            symbols = current;
+            handles.put(symbol, size);
+            return size++;
+        }
+    }
+
+    /**
+     * @param symbol a string
+     * @return the handle of the string, or {@link #NO_HANDLE} if the string has not been interned
+     */
+    public int Lookup(String symbol) {
+        Integer handle = handles.get(symbol);
+        return (handle == null) ? NO_HANDLE : handle;
+    }
+
+    /**
+     * @param handle a handle returned by {@link #Intern(String)}
+     * @return the string of the handle
+     */
+    public String Get(int handle) {
+        return symbols[handle];
+    }
+
+    /**
+     * @return the number of interned strings
+     */
+    public int GetCount() {
+        return handles.size();
+    }
+}
@@ -0,0 +1,97 @@
+package com.easy.detection.data;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+public class BinaryProcessedDataTest {
+    private TestProject project;
+    private Context processed;
+    private byte[] data;
+
+    @BeforeClass
+    public void processProject() throws IOException {
+        project = new TestProject(Files.createTempDirectory("skunk-binary-test"));
+        project.file("a.c.xml")
+                .global("ga", "FEAT_A")
+                .function("fa0", "defined(FEAT_A) || defined(FEAT_B)", "FEAT_C > FEAT_A")
+                .function("fa1")
+                .function("fa2", "!defined(FEAT_B) && defined(FEAT_C) > FEAT_D");
+        project.file("b.c.xml")
+                .function("fb0", "FEAT_D", "defined(FEAT_A) || defined(FEAT_E) > !defined(FEAT_C)")
+                .global("gb", "FEAT_E");
+        project.save();
+        processed = new Context(null);
+        project.process(processed, null);
+        data = write(processed);
+    }
+
+    @AfterClass
+    public void deleteProject() throws IOException {
+        try (Stream<Path> paths = Files.walk(project.dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    private static byte[] write(Context ctx) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryProcessedData.write(ctx, out);
+        return out.toByteArray();
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        Context loaded = new Context(null);
+        BinaryProcessedData.read(loaded, ByteBuffer.wrap(data));
+
+        String expected = TestProject.describe(processed, true);
+        Assert.assertTrue(expected.contains("combinedWith=[ #"), "Test project has no combined references");
+        Assert.assertTrue(expected.contains(" in=static int fa0("), "Test project has no references in functions");
+        Assert.assertEquals(TestProject.describe(loaded, true), expected);
+        Assert.assertEquals(write(loaded), data, "Writing the loaded data again yields different bytes");
+    }
+
+    @Test
+    public void testReadRejectsBadMagicNumber() {
+        ByteBuffer corrupt = ByteBuffer.wrap(data.clone());
+        corrupt.putInt(0, 0x12345678);
+        assertReadFails(corrupt, "Not a file of binary processed data (bad magic number)");
+    }
+
+    @Test
+    public void testReadRejectsOtherVersion() {
+        ByteBuffer other = ByteBuffer.wrap(data.clone());
+        other.putInt(4, BinaryProcessedData.VERSION + 1);
+        assertReadFails(other, "Unsupported version of binary processed data: " + (BinaryProcessedData.VERSION + 1)
+                + " (expected " + BinaryProcessedData.VERSION + "). Re-create the processed data from the source.");
+    }
+
+    @Test
+    public void testReadRejectsTruncatedData() {
+        for (int length = 0; length < data.length; length++) {
+            assertReadFails(ByteBuffer.wrap(Arrays.copyOf(data, length)), "Binary processed data is truncated");
+            // the array of this buffer holds all of the data, but nothing past the limit must be read
+            assertReadFails(ByteBuffer.wrap(data, 0, length), "Binary processed data is truncated");
+        }
+    }
+
+    private static void assertReadFails(ByteBuffer data, String expectedMessage) {
+        try {
+            BinaryProcessedData.read(new Context(null), data);
+        } catch (RuntimeException e) {
+            Assert.assertEquals(e.getMessage(), expectedMessage);
+            return;
+        }
+        Assert.fail("Reading succeeded, expected failure: " + expectedMessage);
+    }
+}
@@ -0,0 +1,112 @@
+package com.easy.detection.data;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Stream;
+
+public class ProcessedFileCacheTest {
+    private TestProject project;
+
+    @BeforeMethod
+    public void createProject() throws IOException {
+        project = new TestProject(Files.createTempDirectory("skunk-incremental-test"));
+        project.file("a.c.xml")
+                .global("ga", "FEAT_A")
+                .function("fa0", "defined(FEAT_A) || defined(FEAT_B)", "FEAT_C > FEAT_A")
+                .function("fa1", "!defined(FEAT_B) && defined(FEAT_C) > FEAT_D");
+        project.file("b.c.xml")
+                .function("fb0", "FEAT_B", "defined(FEAT_A) || defined(FEAT_E) > FEAT_C")
+                .global("gb", "FEAT_E");
+        project.file("c.c.xml")
+                .function("fc0");
+        project.save();
+    }
+
+    @AfterMethod
+    public void deleteProject() throws IOException {
+        try (Stream<Path> paths = Files.walk(project.dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    /**
+     * Processes the project incrementally, with the data saved by the previous run
+     *
+     * @param ctx              an empty context
+     * @param previousRunData  the binary processed data of the previous run, or <code>null</code> for the first run
+     * @param numRestoredFiles the number of files expected to be restored
+     * @return the binary processed data of this run
+     */
+    private byte[] processIncrementally(Context ctx, byte[] previousRunData, int numRestoredFiles) throws IOException {
+        ProcessedFileCache cache = (previousRunData == null)
+                ? ProcessedFileCache.Empty(ctx)
+                : BinaryProcessedData.readCache(ctx, ByteBuffer.wrap(previousRunData));
+        project.process(ctx, cache);
+        Assert.assertEquals(cache.GetNumRestoredFiles(), numRestoredFiles, "Number of restored files");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryProcessedData.write(ctx, out);
+        return out.toByteArray();
+    }
+
+    private static Set<Integer> referenceIds(Context ctx) {
+        Set<Integer> ids = new HashSet<>();
+        int numReferences = 0;
+        for (Feature f : ctx.featureExpressions.GetFeatures()) {
+            for (int i = 0; i < f.references.size(); i++) {
+                ids.add(f.references.get(i));
+                numReferences++;
+            }
+        }
+        Assert.assertEquals(ids.size(), numReferences, "Reference IDs are not unique");
+        return ids;
+    }
+
+    @Test
+    public void testIncrementalRunAfterChangeEqualsFullRun() throws Exception {
+        Context firstRun = new Context(null);
+        byte[] firstRunData = processIncrementally(firstRun, null, 0);
+        Set<Integer> firstRunIds = referenceIds(firstRun);
+
+        String changedPath = project.file("b.c.xml")
+                .global("gb", "FEAT_F")
+                .function("fb0", "FEAT_C", "defined(FEAT_B) || defined(FEAT_F)")
+                .function("fb1", "!defined(FEAT_A) && defined(FEAT_D) > FEAT_E").path;
+        project.save();
+
+        Context incrementalRun = new Context(null);
+        processIncrementally(incrementalRun, firstRunData, 2);
+        Context fullRun = new Context(null);
+        project.process(fullRun, null);
+        Assert.assertEquals(TestProject.describe(incrementalRun, false), TestProject.describe(fullRun, false));
+
+        // restored references keep their IDs, new references get IDs that the previous run did not use
+        Set<Integer> incrementalRunIds = referenceIds(incrementalRun);
+        for (FeatureReference r : incrementalRun.featureExpressions.GetReferencesInFile(changedPath)) {
+            Assert.assertFalse(firstRunIds.contains(r.id), "ID of new reference " + r + " was used before");
+            incrementalRunIds.remove(r.id);
+        }
+        Assert.assertFalse(incrementalRunIds.isEmpty());
+        Assert.assertTrue(firstRunIds.containsAll(incrementalRunIds), "Restored references got new IDs");
+    }
+
+    @Test
+    public void testIncrementalRunWithoutChangesRestoresAllFiles() throws Exception {
+        Context firstRun = new Context(null);
+        byte[] firstRunData = processIncrementally(firstRun, null, 0);
+        Context secondRun = new Context(null);
+        byte[] secondRunData = processIncrementally(secondRun, firstRunData, 3);
+        Assert.assertEquals(TestProject.describe(secondRun, true), TestProject.describe(firstRun, true));
+        Assert.assertEquals(secondRunData, firstRunData);
+    }
+}
@@ -0,0 +1,249 @@
+package com.easy.detection.data;
+
+import com.easy.detection.input.CppStatsFolderReader;
+import com.easy.detection.input.SrcMlFolderReader;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A small cppstats result folder for tests: srcML files with functions and feature annotations, and the cppstats CSV
+ * files describing them.  Also runs the processing of Skunk on the folder and describes the processed data as text, so
+ * that two contexts can be compared.
+ */
+final class TestProject {
+    private static final String FUNCTION_HEAD = "<function><type><specifier>static</specifier> <name>int</name></type>"
+            + " <name>%s</name><parameter_list>(<param><decl><type><name>int</name> *</type><name>a</name></decl>"
+            + "</param>, <param><decl><type><name>char</name></type> <name>b</name></decl></param>)</parameter_list>";
+    private static final String STATEMENT = "  <expr_stmt><expr><name>x</name> = <call><name>f</name><argument_list>"
+            + "(<argument><expr><name>a</name></expr></argument>)</argument_list></call></expr>;</expr_stmt>";
+    private static final String RETURN = "  <return>return <expr><literal type=\"number\">0</literal></expr>;</return>";
+    private static final String ENDIF = "<cpp:endif>#<cpp:directive>endif</cpp:directive></cpp:endif>";
+
+    final Path dir;
+    private final Map<String, SrcMlFile> files = new LinkedHashMap<>();
+
+    TestProject(Path dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * Adds a srcML file to the project or replaces it.  Call {@link #save()} to write the changes.
+     *
+     * @param name the name of the file, e.g., <code>a.c.xml</code>
+     * @return the file, to which functions and global declarations can be added
+     */
+    SrcMlFile file(String name) {
+        SrcMlFile file = new SrcMlFile(dir.resolve("_cppstats").resolve("src").resolve(name).toString());
+        files.put(name, file);
+        return file;
+    }
+
+    /**
+     * Writes the srcML files and the cppstats CSV files
+     */
+    void save() throws IOException {
+        Files.createDirectories(dir.resolve("_cppstats").resolve("src"));
+        StringBuilder locations = new StringBuilder("FILENAME,LINE_START,LINE_END,TYPE,EXPRESSION,CONSTANTS\n");
+        StringBuilder general = new StringBuilder("FILENAME,LOC\n");
+        for (SrcMlFile f : files.values()) {
+            String text = f.text.toString() + "</unit>\n";
+            Files.write(Paths.get(f.path), text.getBytes(StandardCharsets.UTF_8));
+            for (String[] row : f.rows) {
+                locations.append(f.path).append(',').append(row[0]).append(',').append(row[1]).append(',')
+                        .append(row[2]).append(",\"").append(row[3]).append("\",x\n");
+            }
+            general.append(f.path).append(',').append(f.lines + 1).append('\n');
+        }
+        Files.write(dir.resolve("cppstats_featurelocations.csv"), locations.toString().getBytes(StandardCharsets.UTF_8));
+        Files.write(dir.resolve("cppstats.csv"), general.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Processes the project like <code>--source</code> does
+     *
+     * @param ctx   an empty context
+     * @param cache the files of a previous incremental run, or <code>null</code> to process all files
+     */
+    void process(Context ctx, ProcessedFileCache cache) {
+        CppStatsFolderReader cppReader = new CppStatsFolderReader(ctx, dir.toString());
+        cppReader.setCache(cache);
+        cppReader.ProcessFiles();
+        SrcMlFolderReader mlReader = new SrcMlFolderReader(ctx);
+        mlReader.setCache(cache);
+        mlReader.ProcessFiles();
+        ctx.functions.PostAction();
+        ctx.files.PostAction();
+    }
+
+    /**
+     * Describes the features, feature references, functions and files of a context, including all metrics
+     *
+     * @param ctx     the context
+     * @param withIds whether to include the IDs of the feature references.  If not, references are identified by
+     *                feature, file and start line.
+     * @return one line per object
+     */
+    static String describe(Context ctx, boolean withIds) {
+        FeatureExpressionCollection features = ctx.featureExpressions;
+        StringBuilder out = new StringBuilder();
+        out.append("loc=").append(features.GetLoc()).append(" meanLofc=").append(features.GetMeanLofc())
+                .append(" references=").append(features.numberOfFeatureConstantReferences).append('\n');
+        for (Feature f : features.GetFeatures()) {
+            out.append("feature ").append(f.Name).append(" lofc=").append(f.getLofc())
+                    .append(" nesting=").append(f.minNestingDepth).append("..").append(f.maxNestingDepth)
+                    .append(" granularity=").append(f.minGranularity).append("..").append(f.maxGranularity)
+                    .append(" files=").append(f.GetAmountCompilationFiles()).append('\n');
+            for (FeatureReference r : f.getReferences()) {
+                out.append("  ").append(key(r, withIds))
+                        .append(" end=").append(r.GetEnd())
+                        .append(" nesting=").append(r.GetNestingDepth())
+                        .append(" not=").append(r.GetNotFlag())
+                        .append(" granularity=").append(r.GetGranularity())
+                        .append(" discipline=").append(r.GetDiscipline())
+                        .append(" in=").append(r.GetInMethod() == null ? null : r.GetInMethod().uniqueFunctionSignature)
+                        .append(" combinedWith=[");
+                for (int id : r.GetCombinedWith()) {
+                    out.append(' ').append(key(features.GetFeatureConstant(id), withIds));
+                }
+                out.append(" ]\n");
+            }
+        }
+        for (Method m : ctx.functions.AllMethods()) {
+            out.append("function ").append(m.uniqueFunctionSignature).append(" in ").append(m.filePath)
+                    .append(" lines=").append(m.start1).append("..").append(m.end1)
+                    .append(" loc=").append(m.grossLoc).append('/').append(m.netLoc)
+                    .append(" lofc=").append(m.lofc)
+                    .append(" nesting=").append(m.nestingSum).append('/').append(m.nestingDepthMax)
+                    .append(" loac=").append(m.processedLoac)
+                    .append(" constants=").append(m.numberFeatureConstantsNonDup)
+                    .append(" locations=").append(m.numberFeatureLocations)
+                    .append(" negations=").append(m.negationCount)
+                    .append(" references=").append(keys(ctx, m.featureReferences.toArray(), withIds)).append('\n');
+        }
+        for (File f : ctx.files.AllFiles()) {
+            out.append("file ").append(f.filePath)
+                    .append(" loc=").append(f.loc)
+                    .append(" lofc=").append(f.lofc)
+                    .append(" nesting=").append(f.nestingSum).append('/').append(f.nestingDepthMax)
+                    .append(" loac=").append(f.processedLoac)
+                    .append(" constants=").append(f.numberFeatureConstantsNonDup)
+                    .append(" locations=").append(f.numberOfFeatureLocations)
+                    .append(" negations=").append(f.negationCount)
+                    .append(" functions=").append(f.methods.size())
+                    .append(" references=").append(keys(ctx, f.featureConstants.toArray(), withIds)).append('\n');
+        }
+        return out.toString();
+    }
+
+    private static String key(FeatureReference r, boolean withIds) {
+        String key = r.GetFeature().Name + "@" + r.GetFilePath() + ":" + r.GetStart();
+        return withIds ? "#" + r.id + " " + key : key;
+    }
+
+    private static List<String> keys(Context ctx, int[] ids, boolean withIds) {
+        List<String> result = new ArrayList<>(ids.length);
+        for (int id : ids) result.add(key(ctx.featureExpressions.GetFeatureConstant(id), withIds));
+        return result;
+    }
+
+    /**
+     * A srcML file of the project, with the rows of the cppstats feature locations CSV file that describe it
+     */
+    static final class SrcMlFile {
+        final String path;
+        private final StringBuilder text = new StringBuilder();
+        /**
+         * Start, end, type and expression of each annotation, in the order of their start lines
+         */
+        private final List<String[]> rows = new ArrayList<>();
+        /**
+         * Number of lines written so far, which is also the (0-based) line number cppstats reports for the next line
+         */
+        private int lines = 0;
+
+        private SrcMlFile(String path) {
+            this.path = path;
+            line("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>");
+            line("<unit xmlns=\"http://www.sdml.info/srcML/src\" xmlns:cpp=\"http://www.sdml.info/srcML/cpp\""
+                    + " language=\"C\" filename=\"" + path.replace(".xml", "") + "\">");
+            line("");
+        }
+
+        /**
+         * Adds a function with a statement in each of the given annotations
+         *
+         * @param name        the name of the function
+         * @param annotations the conditions of the annotations, e.g., <code>defined(A) || defined(B)</code> for an
+         *                    <code>#if</code> or <code>A</code> for an <code>#ifdef</code>.  A condition of the form
+         *                    <code>outer &gt; inner</code> nests the annotation <code>inner</code> in
+         *                    <code>outer</code>.
+         * @return this file
+         */
+        SrcMlFile function(String name, String... annotations) {
+            line(String.format(FUNCTION_HEAD, name));
+            line("<block>{");
+            for (String annotation : annotations) {
+                String[] nested = annotation.split(" > ");
+                String[] outer = open(nested[0]);
+                line(STATEMENT);
+                if (nested.length > 1) {
+                    String[] inner = open(nested[1]);
+                    line(STATEMENT);
+                    close(inner);
+                }
+                line("");
+                close(outer);
+            }
+            line(RETURN);
+            line("}</block></function>");
+            line("");
+            return this;
+        }
+
+        /**
+         * Adds a global variable declaration enclosed in an <code>#ifdef</code>
+         *
+         * @param name    the name of the variable
+         * @param feature the name of the feature
+         * @return this file
+         */
+        SrcMlFile global(String name, String feature) {
+            String[] row = open(feature);
+            line("<decl_stmt><decl><type><name>int</name></type> <name>" + name + "</name></decl>;</decl_stmt>");
+            close(row);
+            return this;
+        }
+
+        private String[] open(String condition) {
+            final String[] row;
+            if (condition.matches("\\w+")) {
+                row = new String[]{String.valueOf(lines), null, "#ifdef", condition};
+                line("<cpp:ifdef>#<cpp:directive>ifdef</cpp:directive> <name>" + condition + "</name></cpp:ifdef>");
+            } else {
+                row = new String[]{String.valueOf(lines), null, "#if", condition};
+                line("<cpp:if>#<cpp:directive>if</cpp:directive> <expr>" + condition.replace("&", "&amp;")
+                        + "</expr></cpp:if>");
+            }
+            rows.add(row);
+            return row;
+        }
+
+        private void close(String[] row) {
+            row[1] = String.valueOf(lines);
+            line(ENDIF);
+        }
+
+        private void line(String line) {
+            text.append(line).append('\n');
+            lines++;
+        }
+    }
+}
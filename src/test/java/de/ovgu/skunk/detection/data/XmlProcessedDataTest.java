@@ -0,0 +1,82 @@
+package com.easy.detection.data;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+public class XmlProcessedDataTest {
+    private TestProject project;
+    private Context processed;
+    private String featuresXml;
+    private String functionsXml;
+    private String filesXml;
+
+    @BeforeClass
+    public void processProject() throws IOException {
+        project = new TestProject(Files.createTempDirectory("skunk-xml-test"));
+        project.file("a.c.xml")
+                .global("ga", "FEAT_A")
+                .function("fa0", "defined(FEAT_A) || defined(FEAT_B)", "FEAT_C > FEAT_A")
+                .function("fa1", "!defined(FEAT_B) && defined(FEAT_C) > FEAT_D");
+        project.file("b.c.xml")
+                .function("fb0", "FEAT_D", "defined(FEAT_A) || defined(FEAT_E) > !defined(FEAT_C)")
+                .global("gb", "FEAT_E");
+        project.save();
+        processed = new Context(null);
+        project.process(processed, null);
+        processed.getReport().time("phase", () -> {
+        });
+
+        featuresXml = toXml(processed.featureExpressions.SerializeFeatures());
+        functionsXml = toXml(processed.functions.SerializeMethods());
+        filesXml = toXml(processed.files.SerializeFiles());
+    }
+
+    @AfterClass
+    public void deleteProject() throws IOException {
+        try (Stream<Path> paths = Files.walk(project.dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    private static String toXml(Consumer<Writer> serializer) {
+        StringWriter out = new StringWriter();
+        serializer.accept(out);
+        return out.toString();
+    }
+
+    @Test
+    public void testRunReportIsNotSaved() {
+        for (String xml : new String[]{featuresXml, functionsXml, filesXml}) {
+            Assert.assertTrue(xml.contains("<ctx"), "The context is not part of the XML any more; test is pointless");
+            Assert.assertFalse(xml.contains("<report"), "The run report is saved with the processed data");
+            Assert.assertFalse(xml.contains("RunReport"), "The run report is saved with the processed data");
+        }
+    }
+
+    @Test
+    public void testRoundTrip() {
+        Context loaded = new Context(null);
+        loaded.featureExpressions.DeserializeFeatures(new StringReader(featuresXml));
+        loaded.functions.deserializeMethods(new StringReader(functionsXml));
+        loaded.files.DeserializeFiles(new StringReader(filesXml));
+        // the general values are saved in a text file of their own
+        loaded.featureExpressions.AddLoc(processed.featureExpressions.GetLoc());
+        loaded.featureExpressions.SetMeanLofc(processed.featureExpressions.GetMeanLofc());
+        loaded.featureExpressions.numberOfFeatureConstantReferences =
+                processed.featureExpressions.numberOfFeatureConstantReferences;
+
+        Assert.assertEquals(TestProject.describe(loaded, true), TestProject.describe(processed, true));
+    }
+}
@@ -0,0 +1,89 @@
+package com.easy.detection.input;
+
+import com.easy.detection.data.Method;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class FunctionLineIndexTest {
+
+    private static Method function(String name, int start1, int grossLoc) {
+        return new Method(null, "int " + name + "()", "/foo.c", start1, grossLoc, 1);
+    }
+
+    /**
+     * Adjusts the end positions of the functions like {@link SrcMlFolderReader} does before building the index
+     */
+    private static FunctionLineIndex index(Method... functionsByOccurrence) {
+        for (int i = 0; i < functionsByOccurrence.length - 1; i++) {
+            functionsByOccurrence[i].maybeAdjustMethodEndBasedOnNextFunction(functionsByOccurrence[i + 1]);
+        }
+        return new FunctionLineIndex(functionsByOccurrence);
+    }
+
+    @Test
+    public void testEmptyIndex() {
+        FunctionLineIndex index = index();
+        Assert.assertNull(index.FindEnclosingFunction(0));
+        Assert.assertNull(index.FindEnclosingFunction(1));
+        Assert.assertNull(index.FindEnclosingFunction(100));
+    }
+
+    @Test
+    public void testFindEnclosingFunction() {
+        Method f = function("f", 10, 5);
+        Method g = function("g", 20, 10);
+        Method h = function("h", 31, 10);
+        FunctionLineIndex index = index(f, g, h);
+
+        // before the first function
+        Assert.assertNull(index.FindEnclosingFunction(1));
+        Assert.assertNull(index.FindEnclosingFunction(9));
+        // first and last lines
+        Assert.assertSame(index.FindEnclosingFunction(10), f);
+        Assert.assertSame(index.FindEnclosingFunction(14), f);
+        Assert.assertSame(index.FindEnclosingFunction(20), g);
+        Assert.assertSame(index.FindEnclosingFunction(29), g);
+        Assert.assertSame(index.FindEnclosingFunction(31), h);
+        Assert.assertSame(index.FindEnclosingFunction(40), h);
+        // between functions
+        Assert.assertNull(index.FindEnclosingFunction(15));
+        Assert.assertNull(index.FindEnclosingFunction(19));
+        Assert.assertNull(index.FindEnclosingFunction(30));
+        // after the last function
+        Assert.assertNull(index.FindEnclosingFunction(41));
+    }
+
+    @Test
+    public void testAdjustedFunctionsDoNotOverlap() {
+        // the parser reports f and g to be longer than they are, so that they overlap the functions following them
+        Method f = function("f", 10, 30);
+        Method g = function("g", 20, 30);
+        Method h = function("h", 40, 3);
+        FunctionLineIndex index = index(f, g, h);
+        Assert.assertEquals(f.end1, 18);
+        Assert.assertEquals(g.end1, 38);
+
+        for (int line = 0; line < 50; line++) {
+            Method expected = null;
+            for (Method m : new Method[]{f, g, h}) {
+                if ((m.start1 <= line) && (line <= m.end1)) {
+                    Assert.assertNull(expected, "Functions overlap in line " + line);
+                    expected = m;
+                }
+            }
+            Assert.assertSame(index.FindEnclosingFunction(line), expected, "Line " + line);
+        }
+        Assert.assertNull(index.FindEnclosingFunction(19));
+        Assert.assertSame(index.FindEnclosingFunction(20), g);
+        Assert.assertNull(index.FindEnclosingFunction(39));
+    }
+
+    @Test
+    public void testSingleFunction() {
+        Method f = function("f", 1, 1);
+        FunctionLineIndex index = index(f);
+        Assert.assertNull(index.FindEnclosingFunction(0));
+        Assert.assertSame(index.FindEnclosingFunction(1), f);
+        Assert.assertNull(index.FindEnclosingFunction(2));
+    }
+}
@@ -1,8 +1,14 @@
 package com.easy.detection.input;
 
+import com.easy.detection.data.FilePath;
 import org.testng.Assert;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
 
 /**
  * Created by wfenske on 13.03.17.
@@ -136,4 +142,21 @@ public class FunctionSignatureParserTest {
         String actualOutput = FunctionSignatureParser.normalizeWhitespace(input);
         Assert.assertEquals(actualOutput, expectedOutput);
     }
+
+    @Test
+    public void testParseKandRFunctionSignature() throws Exception {
+        String srcMl = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+                + "<unit xmlns=\"http://www.sdml.info/srcML/src\" language=\"C\">\n"
+                + "<function><type><specifier>static</specifier> <name>int</name></type>\n"
+                + "<name>newerf</name> <parameter_list>(<param><decl><type><name>f1</name></type></decl></param>, <param><decl><type><name>f2</name></type></decl></param>)</parameter_list>\n"
+                + "<decl_stmt><decl><type><name>char</name> *</type><name>f1</name></decl>, <decl><type ref=\"prev\"/>*<name>f2</name></decl>;</decl_stmt>\n"
+                + "</function></unit>\n";
+        Document doc = new PositionalXmlReader().readXML(new ByteArrayInputStream(srcMl.getBytes(StandardCharsets.UTF_8)));
+        Node functionNode = doc.getElementsByTagName("function").item(0);
+
+        ParsedFunctionSignature signature = new FunctionSignatureParser(functionNode, new FilePath("newerf.c.xml", "newerf.c")).parseFunctionSignature();
+        Assert.assertEquals(signature.signature, "static int newerf(f1, f2)");
+        Assert.assertEquals(signature.cStartLoc, 2);
+        Assert.assertEquals(signature.originalLinesOfCode, 2);
+    }
 }
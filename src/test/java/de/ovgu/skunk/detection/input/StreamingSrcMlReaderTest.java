@@ -0,0 +1,77 @@
+package com.easy.detection.input;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.w3c.dom.Element;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class StreamingSrcMlReaderTest {
+
+    private static final String SRCML = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n" // 1
+            + "<unit xmlns=\"http://www.sdml.info/srcML/src\" xmlns:cpp=\"http://www.sdml.info/srcML/cpp\" language=\"C\">\n" // 2
+            + "<cpp:ifdef>#<cpp:directive>ifdef</cpp:directive> <name>A</name></cpp:ifdef>\n" // 3
+            + "<decl_stmt><decl><type><name>int</name></type> <name>g</name></decl>;</decl_stmt>\n" // 4
+            + "<cpp:endif>#<cpp:directive>endif</cpp:directive></cpp:endif>\n" // 5
+            + "<function><type><name>int</name></type> <name>f</name><parameter_list>(<param><decl><type><name>int</name></type> <name>a</name></decl></param>,\n" // 6
+            + "<cpp:ifdef>#<cpp:directive>ifdef</cpp:directive> <name>B</name></cpp:ifdef>\n" // 7
+            + "<param><decl><type><name>long</name></type> <name>b</name></decl></param>,\n" // 8
+            + "<cpp:endif>#<cpp:directive>endif</cpp:directive></cpp:endif>\n" // 9
+            + "<param><decl><type><name>char</name></type> <name>c</name></decl></param>)</parameter_list>\n" // 10
+            + "<block>{\n" // 11
+            + "<cpp:ifndef>#<cpp:directive>ifndef</cpp:directive> <name>C</name></cpp:ifndef>\n" // 12
+            + "<if>if <condition>(<expr><name>a</name></expr>)</condition><then> <block>{ }</block></then>\n" // 13
+            + "<cpp:endif>#<cpp:directive>endif</cpp:directive></cpp:endif>\n" // 14
+            + "<else>else <block>{ }</block></else></if>\n" // 15
+            + "<return>return <expr><literal type=\"number\">0</literal></expr>;</return>\n" // 16
+            + "}</block></function>\n" // 17
+            + "</unit>\n";
+
+    @Test
+    public void testReadFunctionsAndDirectiveSites() throws Exception {
+        Map<Integer, Integer> maxEndLinesByDirectiveLine = new HashMap<>();
+        maxEndLinesByDirectiveLine.put(3, 5);
+        maxEndLinesByDirectiveLine.put(7, 9);
+        maxEndLinesByDirectiveLine.put(12, 14);
+        maxEndLinesByDirectiveLine.put(16, 16); // no directive on this line
+
+        List<Element> functions = new ArrayList<>();
+        Map<Integer, StreamingSrcMlReader.CppDirectiveSite> sites = new StreamingSrcMlReader().read(
+                new ByteArrayInputStream(SRCML.getBytes(StandardCharsets.UTF_8)), maxEndLinesByDirectiveLine,
+                (functionIndex, functionNode) -> {
+                    Assert.assertEquals(functionIndex, functions.size());
+                    functions.add(functionNode);
+                });
+
+        Assert.assertEquals(functions.size(), 1);
+        Element function = functions.get(0);
+        Assert.assertEquals(PositionalXmlReader.getElementLineNumberAsIs(function), 6);
+        Assert.assertTrue(function.getTextContent().startsWith("int f(int a,\n#ifdef B\nlong b,\n"));
+        Assert.assertTrue(function.getTextContent().endsWith("return 0;\n}"));
+
+        Assert.assertEquals(sites.keySet().size(), 3);
+
+        StreamingSrcMlReader.CppDirectiveSite topLevel = sites.get(3);
+        assertNodes(topLevel, "cpp:ifdef/unit@3", "decl_stmt/unit@4", "cpp:endif/unit@5");
+
+        StreamingSrcMlReader.CppDirectiveSite param = sites.get(7);
+        assertNodes(param, "cpp:ifdef/parameter_list@7", "param/parameter_list@8", "cpp:endif/parameter_list@9");
+
+        StreamingSrcMlReader.CppDirectiveSite ifElse = sites.get(12);
+        assertNodes(ifElse, "cpp:ifndef/block@12", "if/block@13+else");
+    }
+
+    private static void assertNodes(StreamingSrcMlReader.CppDirectiveSite site, String... expected) {
+        List<String> actual = new ArrayList<>();
+        for (StreamingSrcMlReader.AnnotatedNode node : site.annotatedNodes) {
+            actual.add(node.nodeName + "/" + node.parentNodeName + "@" + node.lineNumberAsIs
+                    + (node.hasElseChild ? "+else" : ""));
+        }
+        Assert.assertEquals(actual.toArray(), expected);
+    }
+}
@@ -0,0 +1,102 @@
+package com.easy.detection.output;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public class CsvRowRankingTest {
+
+    /**
+     * @return the indices of the values, in the order in which their rows are written
+     */
+    private static List<Integer> rank(boolean sorted, int maxRows, float... smellValues) throws IOException {
+        List<Integer> printed = new ArrayList<>();
+        CsvRowRanking<Integer> ranking = new CsvRowRanking<>(sorted, maxRows, printed::add);
+        for (int i = 0; i < smellValues.length; i++) ranking.add(i, smellValues[i]);
+        ranking.finish();
+        return printed;
+    }
+
+    /**
+     * @return the indices of the values, sorted like {@link CsvRowRanking} should: stable, in descending order of the
+     * values as defined by {@link Float#compare(float, float)}, limited to <code>maxRows</code> (unless 0)
+     */
+    private static List<Integer> expectedRanking(int maxRows, float... smellValues) {
+        List<Integer> indices = new ArrayList<>();
+        for (int i = 0; i < smellValues.length; i++) indices.add(i);
+        indices.sort((i1, i2) -> Float.compare(smellValues[i2], smellValues[i1]));
+        return (maxRows == 0) ? indices : indices.subList(0, Math.min(maxRows, indices.size()));
+    }
+
+    private static float[] randomValues(int n, long seed) {
+        Random random = new Random(seed);
+        float[] values = new float[n];
+        // few distinct values, so that there are many ties
+        for (int i = 0; i < n; i++) values[i] = random.nextInt(40) / 4f - 3f;
+        return values;
+    }
+
+    @Test
+    public void testEqualValuesKeepInsertionOrder() throws Exception {
+        Assert.assertEquals(rank(true, 0, 1f, 2f, 1f, 2f, 1f, 0f, 2f), Arrays.asList(1, 3, 6, 0, 2, 4, 5));
+    }
+
+    @Test
+    public void testSpecialValuesSortLikeFloatCompare() throws Exception {
+        float[] values = {-1f, 0.0f, -0.0f, Float.NaN, Float.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY, 3.5f, -3.5f,
+                Float.MIN_VALUE, -Float.MIN_VALUE, Float.MAX_VALUE, -Float.MAX_VALUE, -0.0f, 0.0f,
+                Float.intBitsToFloat(0x7fc00001), -1f};
+        List<Integer> expected = Arrays.asList(3, 14, 4, 10, 6, 8, 1, 13, 2, 12, 9, 0, 15, 7, 11, 5);
+        Assert.assertEquals(expectedRanking(0, values), expected);
+        Assert.assertEquals(rank(true, 0, values), expected);
+    }
+
+    @Test
+    public void testKeyOrder() {
+        Assert.assertTrue(CsvRowRanking.key(0.0f, 5) < CsvRowRanking.key(-0.0f, 0));
+        Assert.assertTrue(CsvRowRanking.key(-1f, 0) < CsvRowRanking.key(-2f, 0));
+        Assert.assertTrue(CsvRowRanking.key(1f, 0) < CsvRowRanking.key(1f, 1));
+        Assert.assertTrue(CsvRowRanking.key(1f, Integer.MAX_VALUE) < CsvRowRanking.key(0.5f, 0));
+        Assert.assertTrue(CsvRowRanking.key(Float.NaN, 1) < CsvRowRanking.key(Float.POSITIVE_INFINITY, 0));
+    }
+
+    @Test
+    public void testMaxRowsKeepsTopRows() throws Exception {
+        float[] values = randomValues(500, 42);
+        for (int maxRows : new int[]{1, 2, 37, 499, 500, 501}) {
+            Assert.assertEquals(rank(true, maxRows, values), expectedRanking(maxRows, values), "maxRows=" + maxRows);
+        }
+    }
+
+    @Test
+    public void testMoreRowsThanInitialCapacity() throws Exception {
+        float[] values = randomValues(5000, 4711);
+        for (int maxRows : new int[]{0, 1025, 3000, 5000, 10000}) {
+            Assert.assertEquals(rank(true, maxRows, values), expectedRanking(maxRows, values), "maxRows=" + maxRows);
+        }
+    }
+
+    @Test
+    public void testUnsortedWritesImmediatelyAndStopsAtMaxRows() throws Exception {
+        List<Integer> printed = new ArrayList<>();
+        CsvRowRanking<Integer> ranking = new CsvRowRanking<>(false, 3, printed::add);
+        for (int i = 0; i < 10; i++) {
+            ranking.add(i, 10 - i);
+            Assert.assertEquals(printed.size(), Math.min(i + 1, 3));
+        }
+        ranking.finish();
+        Assert.assertEquals(printed, Arrays.asList(0, 1, 2));
+        Assert.assertEquals(rank(false, 0, 1f, 3f, 2f), Arrays.asList(0, 1, 2));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testNegativeMaxRows() {
+        new CsvRowRanking<Integer>(true, -1, o -> {
+        });
+    }
+}
@@ -0,0 +1,87 @@
+package com.easy.detection.output;
+
+import com.easy.detection.data.Context;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+public class ProcessedDataHandlerTest {
+    private Path dir;
+
+    @BeforeMethod
+    public void createDir() throws IOException {
+        dir = Files.createTempDirectory("skunk-processed-test");
+    }
+
+    @AfterMethod
+    public void deleteDir() throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    /**
+     * Saves the XML files of an empty context to {@link #dir}, with the given contents of the general file
+     */
+    private void saveXml(String general) throws IOException {
+        Context ctx = new Context(null);
+        writeGzipped("skunk_intermediate_features.xml.gz", ctx.featureExpressions.SerializeFeatures());
+        writeGzipped("skunk_intermediate_functions.xml.gz", ctx.functions.SerializeMethods());
+        writeGzipped("skunk_intermediate_files.xml.gz", ctx.files.SerializeFiles());
+        Files.write(dir.resolve("skunk_intermediate_general.txt"), general.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void writeGzipped(String filename, Consumer<Writer> xml) throws IOException {
+        try (Writer out = new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(dir.resolve(filename))),
+                StandardCharsets.UTF_8)) {
+            xml.accept(out);
+        }
+    }
+
+    @Test
+    public void testLoadCurrentXmlVersion() throws IOException {
+        saveXml("FeatureExpressionCollection=12;3;4\nXmlVersion=" + ProcessedDataHandler.XML_VERSION);
+        Context ctx = new Context(null);
+        ctx.processedDataHandler.LoadProcessedData(dir.toString());
+        Assert.assertEquals(ctx.featureExpressions.GetLoc(), 12);
+        Assert.assertEquals(ctx.featureExpressions.numberOfFeatureConstantReferences, 4);
+    }
+
+    @Test
+    public void testLoadRejectsXmlWithoutVersion() throws IOException {
+        // the general file as written before the XML files had a version
+        saveXml("FeatureExpressionCollection=12;3;4");
+        assertLoadFails("Unsupported version of XML processed data: 1 (expected " + ProcessedDataHandler.XML_VERSION
+                + "). Re-create the processed data from the source.");
+    }
+
+    @Test
+    public void testLoadRejectsOtherXmlVersion() throws IOException {
+        saveXml("FeatureExpressionCollection=12;3;4\nXmlVersion=" + (ProcessedDataHandler.XML_VERSION + 1));
+        assertLoadFails("Unsupported version of XML processed data: " + (ProcessedDataHandler.XML_VERSION + 1)
+                + " (expected " + ProcessedDataHandler.XML_VERSION + "). Re-create the processed data from the source.");
+    }
+
+    private void assertLoadFails(String expectedMessage) {
+        try {
+            new Context(null).processedDataHandler.LoadProcessedData(dir.toString());
+        } catch (RuntimeException e) {
+            Assert.assertNotNull(e.getCause(), e.toString());
+            Assert.assertEquals(e.getCause().getMessage(), expectedMessage);
+            return;
+        }
+        Assert.fail("Loading succeeded, expected failure: " + expectedMessage);
+    }
+}
@@ -0,0 +1,78 @@
+package com.easy.util;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.nio.ByteBuffer;
+
+public class ByteBufferInputStreamTest {
+
+    private static ByteBufferInputStream stream(int... bytes) {
+        byte[] data = new byte[bytes.length];
+        for (int i = 0; i < bytes.length; i++) data[i] = (byte) bytes[i];
+        return new ByteBufferInputStream(ByteBuffer.wrap(data));
+    }
+
+    @Test
+    public void testReadUntilEndOfBuffer() {
+        ByteBufferInputStream in = stream(1, 0xff);
+        Assert.assertEquals(in.available(), 2);
+        Assert.assertEquals(in.read(), 1);
+        Assert.assertEquals(in.read(), 0xff);
+        Assert.assertEquals(in.available(), 0);
+        Assert.assertEquals(in.read(), -1);
+        Assert.assertEquals(in.read(new byte[4], 0, 4), -1);
+    }
+
+    @Test
+    public void testReadArray() {
+        ByteBufferInputStream in = stream(1, 2, 3);
+        byte[] b = new byte[5];
+        Assert.assertEquals(in.read(b, 1, 2), 2);
+        Assert.assertEquals(b, new byte[]{0, 1, 2, 0, 0});
+        Assert.assertEquals(in.read(b, 0, 5), 1);
+        Assert.assertEquals(b[0], 3);
+        Assert.assertEquals(in.read(b, 0, 5), -1);
+    }
+
+    @Test
+    public void testReadNothing() {
+        ByteBufferInputStream in = stream(1);
+        Assert.assertEquals(in.read(new byte[2], 2, 0), 0);
+        Assert.assertEquals(in.available(), 1);
+        in.read();
+        // reading no bytes returns 0 even at the end of the buffer
+        Assert.assertEquals(in.read(new byte[2], 0, 0), 0);
+    }
+
+    @Test(expectedExceptions = IndexOutOfBoundsException.class)
+    public void testReadPastArray() {
+        stream(1, 2, 3).read(new byte[2], 1, 2);
+    }
+
+    @Test
+    public void testSkip() {
+        ByteBufferInputStream in = stream(1, 2, 3, 4);
+        Assert.assertEquals(in.skip(0), 0);
+        Assert.assertEquals(in.skip(-5), 0);
+        Assert.assertEquals(in.skip(2), 2);
+        Assert.assertEquals(in.available(), 2);
+        Assert.assertEquals(in.read(), 3);
+        // skipping past the end stops at the end
+        Assert.assertEquals(in.skip(Long.MAX_VALUE), 1);
+        Assert.assertEquals(in.available(), 0);
+        Assert.assertEquals(in.skip(1), 0);
+        Assert.assertEquals(in.read(), -1);
+    }
+
+    @Test
+    public void testReadsFromPositionToLimit() {
+        ByteBuffer buffer = ByteBuffer.wrap(new byte[]{1, 2, 3, 4, 5});
+        buffer.position(1);
+        buffer.limit(3);
+        ByteBufferInputStream in = new ByteBufferInputStream(buffer);
+        Assert.assertEquals(in.available(), 2);
+        Assert.assertEquals(in.skip(10), 2);
+        Assert.assertEquals(in.read(), -1);
+    }
+}
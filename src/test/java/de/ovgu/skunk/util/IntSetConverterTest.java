@@ -0,0 +1,45 @@
+package com.easy.util;
+
+import com.thoughtworks.xstream.XStream;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class IntSetConverterTest {
+
+    static class Holder {
+        IntSet numbers = new IntSet();
+        IntSet empty = new IntSet();
+    }
+
+    private static XStream newStream() {
+        XStream stream = new XStream();
+        stream.registerConverter(new IntSetConverter());
+        stream.alias("holder", Holder.class);
+        return stream;
+    }
+
+    @Test
+    public void testRoundTrip() {
+        Holder holder = new Holder();
+        for (int value : new int[]{12, 3, -40, 0, Integer.MIN_VALUE, 7, 100, 8, 9, 10, Integer.MAX_VALUE, 3}) {
+            holder.numbers.add(value);
+        }
+
+        String xml = newStream().toXML(holder);
+        Assert.assertTrue(xml.contains("<numbers>12,3,-40,0,-2147483648,7,100,8,9,10,2147483647</numbers>"), xml);
+        Assert.assertTrue(xml.contains("<empty></empty>"), xml);
+
+        Holder restored = (Holder) newStream().fromXML(xml);
+        Assert.assertEquals(restored.numbers.toArray(), holder.numbers.toArray());
+        Assert.assertTrue(restored.numbers.contains(Integer.MIN_VALUE));
+        Assert.assertFalse(restored.numbers.contains(11));
+        Assert.assertTrue(restored.empty.isEmpty());
+    }
+
+    @Test
+    public void testReadIgnoresWhitespace() {
+        Holder restored = (Holder) newStream().fromXML("<holder><numbers> 5, 1 ,5,\n 2 </numbers><empty/></holder>");
+        Assert.assertEquals(restored.numbers.toArray(), new int[]{5, 1, 2});
+        Assert.assertTrue(restored.empty.isEmpty());
+    }
+}
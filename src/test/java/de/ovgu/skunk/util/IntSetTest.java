@@ -0,0 +1,114 @@
+package com.easy.util;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+public class IntSetTest {
+
+    /**
+     * Adds the values to an {@link IntSet} and to a {@link LinkedHashSet}, checking after each value that both sets
+     * agree
+     */
+    private static IntSet addAndCompare(int... values) {
+        IntSet set = new IntSet();
+        Set<Integer> expected = new LinkedHashSet<>();
+        for (int value : values) {
+            Assert.assertEquals(set.add(value), expected.add(value), "add(" + value + ")");
+            assertSameValues(set, expected);
+        }
+        for (int value : values) Assert.assertTrue(set.contains(value), "contains(" + value + ")");
+        return set;
+    }
+
+    private static void assertSameValues(IntSet set, Set<Integer> expected) {
+        Assert.assertEquals(set.size(), expected.size());
+        Assert.assertEquals(set.isEmpty(), expected.isEmpty());
+        List<Integer> actual = new ArrayList<>();
+        for (int value : set.toArray()) actual.add(value);
+        Assert.assertEquals(actual, new ArrayList<>(expected));
+        for (int i = 0; i < set.size(); i++) Assert.assertEquals(set.get(i), (int) actual.get(i));
+    }
+
+    @Test
+    public void testEmpty() {
+        IntSet set = new IntSet();
+        Assert.assertTrue(set.isEmpty());
+        Assert.assertEquals(set.size(), 0);
+        Assert.assertEquals(set.toArray(), new int[0]);
+        Assert.assertFalse(set.contains(0));
+        Assert.assertEquals(set.toString(), "[]");
+    }
+
+    @Test
+    public void testSwitchFromLinearSearchToHashTable() {
+        // 8 values are searched linearly, the 9th builds the hash table
+        IntSet set = addAndCompare(8, 7, 6, 5, 4, 3, 2, 1);
+        Assert.assertFalse(set.contains(0));
+        Assert.assertFalse(set.add(1));
+        Assert.assertTrue(set.add(0));
+        Assert.assertEquals(set.size(), 9);
+        for (int value = 0; value <= 8; value++) {
+            Assert.assertTrue(set.contains(value), "contains(" + value + ")");
+            Assert.assertFalse(set.add(value), "add(" + value + ")");
+        }
+        Assert.assertFalse(set.contains(9));
+        Assert.assertFalse(set.contains(-1));
+        Assert.assertEquals(set.toArray(), new int[]{8, 7, 6, 5, 4, 3, 2, 1, 0});
+        Assert.assertEquals(set.toString(), "[8, 7, 6, 5, 4, 3, 2, 1, 0]");
+    }
+
+    @Test
+    public void testDuplicatesAcrossSwitch() {
+        addAndCompare(3, 3, 1, 4, 1, 5, 9, 2, 6, 5, 3, 5, 8, 9, 7, 9, 3, 2, 3, 8, 4, 6, 2, 6, 4, 3, 3, 8, 3, 2, 7);
+    }
+
+    @Test
+    public void testSeveralRehashesWithNegativeAndExtremeValues() {
+        int[] values = new int[300];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (i % 2 == 0) ? -i : i << 20;
+        }
+        values[7] = Integer.MIN_VALUE;
+        values[100] = Integer.MAX_VALUE;
+        values[200] = -1;
+        addAndCompare(values);
+    }
+
+    @Test
+    public void testManyCollidingValues() {
+        // 2000 values from a range of 3000, many of them duplicates: with a hash table at most half full, many values
+        // collide in their slot and are found by probing
+        Random random = new Random(42);
+        int[] values = new int[2000];
+        Set<Integer> expected = new HashSet<>();
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextInt(3000) - 1500;
+            expected.add(values[i]);
+        }
+        IntSet set = addAndCompare(values);
+        for (int value = -1600; value < 1600; value++) {
+            Assert.assertEquals(set.contains(value), expected.contains(value), "contains(" + value + ")");
+        }
+    }
+
+    @Test(expectedExceptions = IndexOutOfBoundsException.class)
+    public void testGetPastSize() {
+        IntSet set = new IntSet();
+        set.add(1);
+        set.get(1);
+    }
+
+    @Test(expectedExceptions = IndexOutOfBoundsException.class)
+    public void testGetNegativeIndex() {
+        IntSet set = new IntSet();
+        set.add(1);
+        set.get(-1);
+    }
+}
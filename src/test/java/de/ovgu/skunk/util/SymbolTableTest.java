@@ -0,0 +1,72 @@
+package com.easy.util;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class SymbolTableTest {
+
+    @Test
+    public void testInternAssignsDenseHandles() {
+        SymbolTable table = new SymbolTable();
+        Assert.assertEquals(table.Lookup("a"), SymbolTable.NO_HANDLE);
+        Assert.assertEquals(table.Intern("a"), 0);
+        Assert.assertEquals(table.Intern("b"), 1);
+        Assert.assertEquals(table.Intern("a"), 0);
+        Assert.assertEquals(table.Intern(""), 2);
+        Assert.assertEquals(table.Lookup("b"), 1);
+        Assert.assertEquals(table.Get(2), "");
+        Assert.assertEquals(table.GetCount(), 3);
+    }
+
+    @Test
+    public void testInternFromManyThreads() throws Exception {
+        final int numThreads = 8;
+        final int numSymbols = 5000;
+        final SymbolTable table = new SymbolTable();
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        try {
+            List<Future<int[]>> results = new ArrayList<>();
+            for (int t = 0; t < numThreads; t++) {
+                final int offset = t * 7;
+                results.add(executor.submit(() -> {
+                    // every thread interns all symbols, starting at a different one, and checks each handle at once
+                    int[] handles = new int[numSymbols];
+                    start.await();
+                    for (int i = 0; i < numSymbols; i++) {
+                        int symbol = (i + offset) % numSymbols;
+                        handles[symbol] = table.Intern("symbol" + symbol);
+                        Assert.assertEquals(table.Get(handles[symbol]), "symbol" + symbol);
+                    }
+                    return handles;
+                }));
+            }
+            start.countDown();
+
+            int[] expected = ParallelTasks.await(results.get(0));
+            for (Future<int[]> result : results) {
+                Assert.assertEquals(ParallelTasks.await(result), expected, "Threads got different handles");
+            }
+            Assert.assertEquals(table.GetCount(), numSymbols);
+            Map<Integer, String> symbolsByHandle = new HashMap<>();
+            for (int symbol = 0; symbol < numSymbols; symbol++) {
+                int handle = expected[symbol];
+                Assert.assertTrue((handle >= 0) && (handle < numSymbols), "Handle not dense: " + handle);
+                Assert.assertNull(symbolsByHandle.put(handle, "symbol" + symbol), "Handle not unique: " + handle);
+                Assert.assertEquals(table.Get(handle), "symbol" + symbol);
+                Assert.assertEquals(table.Lookup("symbol" + symbol), handle);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}